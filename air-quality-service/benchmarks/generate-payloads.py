@@ -0,0 +1,98 @@
+#!/usr/bin/env python3
+"""Génère des réponses OpenAQ v3 /locations et /locations/{id}/latest de tailles variées.
+
+La structure (champs, imbrication, types) reproduit celle des réponses réelles de l'API v3,
+y compris les sous-arbres que le service ignore (owner, provider, instruments, licenses, bounds...).
+Les valeurs sont pseudo-aléatoires mais déterministes (graine fixe) pour des mesures reproductibles.
+"""
+import json
+import random
+from pathlib import Path
+
+OUT = Path(__file__).parent / "src/main/resources/payloads"
+PARAMETERS = [
+    (1, "pm10", "µg/m³", "PM10"),
+    (2, "pm25", "µg/m³", "PM2.5"),
+    (3, "o3", "µg/m³", "O₃ mass"),
+    (5, "no2", "µg/m³", "NO₂ mass"),
+    (6, "so2", "µg/m³", "SO₂ mass"),
+    (4, "co", "µg/m³", "CO mass"),
+    (19, "pm1", "µg/m³", "PM1"),
+    (100, "temperature", "c", "Temperature (C)"),
+    (98, "relativehumidity", "%", "RH"),
+]
+
+
+def location(rng, location_id, sensor_base):
+    lat = round(48.8566 + rng.uniform(-0.2, 0.2), 6)
+    lon = round(2.3522 + rng.uniform(-0.3, 0.3), 6)
+    params = rng.sample(PARAMETERS, rng.randint(2, 6))
+    sensors = []
+    for index, (pid, name, units, display) in enumerate(params):
+        sensors.append({
+            "id": sensor_base + index,
+            "name": f"{name} {units}",
+            "parameter": {"id": pid, "name": name, "units": units, "displayName": display},
+        })
+    return {
+        "id": location_id,
+        "name": f"FR{location_id:05d}",
+        "locality": rng.choice(["Paris", "Vitry-sur-Seine", "Gennevilliers", "Bobigny", None]),
+        "timezone": "Europe/Paris",
+        "country": {"id": 22, "code": "FR", "name": "France"},
+        "owner": {"id": 4, "name": "Unknown Governmental Organization"},
+        "provider": {"id": 66, "name": "EEA France"},
+        "isMobile": False,
+        "isMonitor": True,
+        "instruments": [{"id": 2, "name": "Government Monitor"}],
+        "sensors": sensors,
+        "coordinates": {"latitude": lat, "longitude": lon},
+        "licenses": [{
+            "id": 38,
+            "name": "Open Data Commons Open Database License",
+            "attribution": {"name": "EEA", "url": None},
+            "dateFrom": "2016-01-01",
+            "dateTo": None,
+        }],
+        "bounds": [lon, lat, lon, lat],
+        "distance": round(rng.uniform(100, 25000), 2),
+        "datetimeFirst": {"utc": "2016-11-09T12:00:00Z", "local": "2016-11-09T13:00:00+01:00"},
+        "datetimeLast": {"utc": "2025-01-15T10:00:00Z", "local": "2025-01-15T11:00:00+01:00"},
+    }
+
+
+def locations_payload(rng, count):
+    results = [location(rng, 4000 + i, 10000 + i * 10) for i in range(count)]
+    return {
+        "meta": {"name": "openaq-api", "website": "/", "page": 1, "limit": max(count, 20), "found": count},
+        "results": results,
+    }
+
+
+def latest_payload(rng, count):
+    results = []
+    for i in range(count):
+        lat = round(48.8566 + rng.uniform(-0.2, 0.2), 6)
+        lon = round(2.3522 + rng.uniform(-0.3, 0.3), 6)
+        results.append({
+            "datetime": {"utc": "2025-01-15T10:00:00Z", "local": "2025-01-15T11:00:00+01:00"},
+            "value": round(rng.uniform(1, 120), 1),
+            "coordinates": {"latitude": lat, "longitude": lon},
+            "sensorsId": 10000 + i,
+            "locationsId": 4000,
+        })
+    return {
+        "meta": {"name": "openaq-api", "website": "/", "page": 1, "limit": 100, "found": count},
+        "results": results,
+    }
+
+
+if __name__ == "__main__":
+    OUT.mkdir(parents=True, exist_ok=True)
+    rng = random.Random(42)
+    for count in (5, 20, 100):
+        (OUT / f"locations-{count}.json").write_text(
+            json.dumps(locations_payload(rng, count), ensure_ascii=False), encoding="utf-8")
+    for count in (3, 10, 50):
+        (OUT / f"latest-{count}.json").write_text(
+            json.dumps(latest_payload(rng, count), ensure_ascii=False), encoding="utf-8")
@@ -0,0 +1,44 @@
+package com.formation.airquality.benchmark;
+
+import com.formation.airquality.service.AqiCalculator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Classification AQI (calculateAQI + getQualityLevel) sur un échantillon de paramètres et de valeurs.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AqiBenchmark {
+
+    private static final String[] PARAMETERS = {"pm25", "pm10", "no2", "o3", "PM2.5", "co", "unknown"};
+    private static final int SAMPLES = 1024;
+
+    private final String[] parameters = new String[SAMPLES];
+    private final double[] values = new double[SAMPLES];
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        for (int i = 0; i < SAMPLES; i++) {
+            parameters[i] = PARAMETERS[random.nextInt(PARAMETERS.length)];
+            values[i] = random.nextDouble() * 300;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void classify(Blackhole blackhole) {
+        for (int i = 0; i < SAMPLES; i++) {
+            int aqi = AqiCalculator.calculateAQI(parameters[i], values[i]);
+            blackhole.consume(AqiCalculator.getQualityLevel(aqi));
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.formation.airquality.benchmark;
+
+import com.formation.airquality.model.AirQualityData;
+import com.formation.airquality.openaq.LatestMeasurement;
+import com.formation.airquality.openaq.OpenAqLocation;
+import com.formation.airquality.openaq.OpenAqStreamingDecoder;
+import com.formation.airquality.openaq.StationReadings;
+import com.formation.airquality.service.MeasurementAssembler;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction de la List&lt;AirQualityData&gt; renvoyée par /city à partir des stations décodées,
+ * avec le plafond de 10 mesures du service ou sans plafond.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AssemblyBenchmark {
+
+    @Param({"5", "20", "100"})
+    public int locations;
+
+    @Param({"10", "2147483647"})
+    public int maxMeasurements;
+
+    private List<StationReadings> stations;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<LatestMeasurement> latest = OpenAqStreamingDecoder.decodeLatest(Payloads.latest(10), 10);
+        stations = new ArrayList<>();
+        for (OpenAqLocation location : OpenAqStreamingDecoder.decodeLocations(Payloads.locations(locations))) {
+            stations.add(new StationReadings(location, latest));
+        }
+    }
+
+    @Benchmark
+    public List<AirQualityData> assemble() {
+        return MeasurementAssembler.assemble(stations, "Paris", "FR", maxMeasurements);
+    }
+}
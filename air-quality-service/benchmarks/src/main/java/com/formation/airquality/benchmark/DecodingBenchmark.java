@@ -0,0 +1,105 @@
+package com.formation.airquality.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.formation.airquality.openaq.LatestMeasurement;
+import com.formation.airquality.openaq.OpenAqLocation;
+import com.formation.airquality.openaq.OpenAqStreamingDecoder;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Décodage des réponses /locations et /latest : décodeur streaming du service, comparé à l'arbre JsonNode
+ * (ancienne implémentation) qui sert de référence.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodingBenchmark {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * Réponse /locations : seuls les benchmarks qui la décodent varient avec {@code locations}.
+     */
+    @State(Scope.Benchmark)
+    public static class LocationsPayload {
+        @Param({"5", "20", "100"})
+        public int locations;
+
+        private byte[] json;
+
+        @Setup
+        public void setUp() {
+            json = Payloads.locations(locations);
+        }
+    }
+
+    /**
+     * Réponse /latest : seuls les benchmarks qui la décodent varient avec {@code measurements}.
+     */
+    @State(Scope.Benchmark)
+    public static class LatestPayload {
+        @Param({"3", "10", "50"})
+        public int measurements;
+
+        private byte[] json;
+
+        @Setup
+        public void setUp() {
+            json = Payloads.latest(measurements);
+        }
+    }
+
+    @Benchmark
+    public List<OpenAqLocation> decodeLocationsStreaming(LocationsPayload payload) throws IOException {
+        return OpenAqStreamingDecoder.decodeLocations(payload.json);
+    }
+
+    @Benchmark
+    public List<LatestMeasurement> decodeLatestStreaming(LatestPayload payload) throws IOException {
+        // Même plafond que le service : 10 mesures
+        return OpenAqStreamingDecoder.decodeLatest(payload.json, 10);
+    }
+
+    @Benchmark
+    public JsonNode decodeLocationsTree(LocationsPayload payload) throws IOException {
+        return OBJECT_MAPPER.readTree(payload.json);
+    }
+
+    /**
+     * Construction des mappings sensorId -> paramètre depuis un arbre JsonNode, comme avant le décodeur streaming.
+     */
+    @Benchmark
+    public List<Map<Integer, JsonNode>> sensorMapsFromTree(LocationsPayload payload) throws IOException {
+        JsonNode results = OBJECT_MAPPER.readTree(payload.json).get("results");
+        List<Map<Integer, JsonNode>> maps = new java.util.ArrayList<>(results.size());
+        for (JsonNode location : results) {
+            Map<Integer, JsonNode> sensorParameterMap = new HashMap<>();
+            for (JsonNode sensor : location.get("sensors")) {
+                sensorParameterMap.put(sensor.get("id").asInt(), sensor.get("parameter"));
+            }
+            maps.add(sensorParameterMap);
+        }
+        return maps;
+    }
+
+    /**
+     * Mappings sensorId -> paramètre tels que produits par le décodeur streaming.
+     */
+    @Benchmark
+    public int sensorMapsStreaming(LocationsPayload payload) throws IOException {
+        int sensors = 0;
+        for (OpenAqLocation location : OpenAqStreamingDecoder.decodeLocations(payload.json)) {
+            sensors += location.sensors().size();
+        }
+        return sensors;
+    }
+}
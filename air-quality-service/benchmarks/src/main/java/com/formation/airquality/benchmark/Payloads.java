@@ -0,0 +1,35 @@
+package com.formation.airquality.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Réponses OpenAQ v3 embarquées dans le jar (générées par generate-payloads.py) : aucun accès réseau.
+ * Synthétiques : même structure que les réponses réelles, valeurs pseudo-aléatoires. Une réponse capturée
+ * peut être déposée sous le même nom (locations-N.json, latest-N.json) pour comparer.
+ */
+final class Payloads {
+
+    private Payloads() {
+    }
+
+    static byte[] locations(int count) {
+        return load("/payloads/locations-" + count + ".json");
+    }
+
+    static byte[] latest(int count) {
+        return load("/payloads/latest-" + count + ".json");
+    }
+
+    private static byte[] load(String resource) {
+        try (InputStream in = Payloads.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalArgumentException("Missing payload " + resource);
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
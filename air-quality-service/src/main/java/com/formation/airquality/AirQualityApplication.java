@@ -2,8 +2,10 @@ package com.formation.airquality;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class AirQualityApplication {
     public static void main(String[] args) {
         SpringApplication.run(AirQualityApplication.class, args);
@@ -0,0 +1,243 @@
+package com.formation.airquality.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Cache mémoire à durée de vie (TTL) et taille bornée (éviction LRU).
+ * Les miss concurrents sur une même clé sont fusionnés : un seul appelant charge la valeur,
+ * les autres attendent son résultat au lieu de déclencher leur propre appel amont.
+ */
+public class CoalescingCache<K, V> {
+
+    private final long ttlNanos;
+    private final Map<K, Entry<V>> entries;
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter coalescedCounter;
+    private final Counter evictionCounter;
+
+    public CoalescingCache(String name, Duration ttl, int maxSize, MeterRegistry meterRegistry) {
+        this.ttlNanos = ttl.toNanos();
+        this.evictionCounter = counter("airquality.cache.evictions", "Entrées évincées du cache (taille max atteinte)", name, meterRegistry);
+        this.hitCounter = counter("airquality.cache.hits", "Lectures servies depuis le cache", name, meterRegistry);
+        this.missCounter = counter("airquality.cache.misses", "Lectures ayant déclenché un chargement amont", name, meterRegistry);
+        this.coalescedCounter = counter("airquality.cache.coalesced", "Lectures en attente d'un chargement déjà en cours", name, meterRegistry);
+
+        // LinkedHashMap en ordre d'accès : l'entrée la moins récemment utilisée est évincée en premier
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > maxSize) {
+                    evictionCounter.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        Gauge.builder("airquality.cache.size", this, CoalescingCache::size)
+                .description("Nombre d'entrées dans le cache")
+                .tag("cache", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Renvoie la valeur en cache si elle est fraîche, sinon la charge via {@code loader}.
+     * Si un chargement est déjà en cours pour cette clé, attend son résultat.
+     */
+    public V get(K key, Supplier<V> loader) {
+        V cached = getIfFresh(key);
+        if (cached != null) {
+            hitCounter.increment();
+            return cached;
+        }
+
+        CompletableFuture<V> loading = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, loading);
+        if (existing != null) {
+            coalescedCounter.increment();
+            return await(existing);
+        }
+
+        try {
+            // Un autre chargement a pu se terminer entre la lecture et l'inscription
+            V value = getIfFresh(key);
+            if (value != null) {
+                hitCounter.increment();
+            } else {
+                missCounter.increment();
+                value = loader.get();
+                put(key, value);
+            }
+            loading.complete(value);
+            return value;
+        } catch (Throwable e) {
+            // Erreurs comprises : les appelants en attente ne doivent jamais rester bloqués
+            loading.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, loading);
+        }
+    }
+
+    /**
+     * Variante non bloquante de {@link #get}. Le chargement est détaché de l'abonné qui l'a
+     * déclenché : s'il est annulé, la valeur est tout de même mise en cache pour les autres.
+     */
+    public Mono<V> getAsync(K key, Supplier<Mono<V>> loader) {
+        return Mono.deferContextual(context -> {
+            V cached = getIfFresh(key);
+            if (cached != null) {
+                hitCounter.increment();
+                return Mono.just(cached);
+            }
+
+            CompletableFuture<V> loading = new CompletableFuture<>();
+            CompletableFuture<V> existing = inFlight.putIfAbsent(key, loading);
+            if (existing != null) {
+                coalescedCounter.increment();
+                return Mono.fromFuture(existing, true);
+            }
+
+            V value = getIfFresh(key);
+            if (value != null) {
+                hitCounter.increment();
+                loading.complete(value);
+                inFlight.remove(key, loading);
+                return Mono.just(value);
+            }
+
+            missCounter.increment();
+            Mono<V> load;
+            try {
+                load = loader.get();
+            } catch (Throwable e) {
+                // Échec avant même le Mono : libère la clé pour que les appelants suivants ne restent pas en attente
+                loading.completeExceptionally(e);
+                inFlight.remove(key, loading);
+                return Mono.error(e);
+            }
+            load.contextWrite(context)
+                    .subscribe(
+                            loaded -> {
+                                put(key, loaded);
+                                loading.complete(loaded);
+                                inFlight.remove(key, loading);
+                            },
+                            error -> {
+                                loading.completeExceptionally(error);
+                                inFlight.remove(key, loading);
+                            },
+                            () -> {
+                                // Mono vide : rien à mettre en cache
+                                loading.complete(null);
+                                inFlight.remove(key, loading);
+                            });
+            return Mono.fromFuture(loading, true);
+        });
+    }
+
+    /**
+     * Dernière valeur connue pour cette clé, même expirée tant qu'elle n'a pas été évincée, avec son âge ;
+     * null si absente. Sert de repli quand le chargement est impossible.
+     */
+    public Aged<V> getStale(K key) {
+        Entry<V> entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry == null) {
+            return null;
+        }
+        return new Aged<>(entry.value(), Duration.ofNanos(System.nanoTime() - entry.storedAtNanos()));
+    }
+
+    public void put(K key, V value) {
+        synchronized (entries) {
+            entries.put(key, new Entry<>(value, System.nanoTime()));
+        }
+    }
+
+    /**
+     * Restaure une valeur chargée précédemment (redémarrage à chaud) avec son âge d'origine :
+     * elle n'est fraîche que si cet âge est inférieur au TTL. Une entrée déjà présente est conservée.
+     */
+    public void restore(K key, V value, Duration age) {
+        synchronized (entries) {
+            entries.putIfAbsent(key, new Entry<>(value, System.nanoTime() - age.toNanos()));
+        }
+    }
+
+    /**
+     * Copie des entrées présentes, expirées comprises, avec leur âge.
+     */
+    public Map<K, Aged<V>> snapshot() {
+        long now = System.nanoTime();
+        Map<K, Aged<V>> copy = new LinkedHashMap<>();
+        synchronized (entries) {
+            // Parcours direct : get() modifierait l'ordre d'accès
+            for (Map.Entry<K, Entry<V>> entry : entries.entrySet()) {
+                copy.put(entry.getKey(), new Aged<>(entry.getValue().value(),
+                        Duration.ofNanos(now - entry.getValue().storedAtNanos())));
+            }
+        }
+        return copy;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private V getIfFresh(K key) {
+        Entry<V> entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry == null || System.nanoTime() - entry.storedAtNanos() > ttlNanos) {
+            return null;
+        }
+        return entry.value();
+    }
+
+    private static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static Counter counter(String name, String description, String cache, MeterRegistry meterRegistry) {
+        return Counter.builder(name)
+                .description(description)
+                .tag("cache", cache)
+                .register(meterRegistry);
+    }
+
+    private record Entry<V>(V value, long storedAtNanos) {
+    }
+
+    public record Aged<V>(V value, Duration age) {
+    }
+}
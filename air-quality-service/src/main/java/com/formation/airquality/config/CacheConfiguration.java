@@ -0,0 +1,34 @@
+package com.formation.airquality.config;
+
+import com.formation.airquality.cache.CoalescingCache;
+import com.formation.airquality.model.AirQualityData;
+import com.formation.airquality.openaq.StationReadings;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+public class CacheConfiguration {
+
+    // Réponses /city par ville + pays normalisés
+    @Bean
+    public CoalescingCache<String, List<AirQualityData>> cityResponseCache(
+            MeterRegistry meterRegistry,
+            @Value("${airquality.cache.city.ttl:10m}") Duration ttl,
+            @Value("${airquality.cache.city.max-size:200}") int maxSize) {
+        return new CoalescingCache<>("city", ttl, maxSize, meterRegistry);
+    }
+
+    // Dernières mesures par station OpenAQ, partagées entre toutes les villes et coordonnées
+    @Bean
+    public CoalescingCache<Integer, StationReadings> locationCache(
+            MeterRegistry meterRegistry,
+            @Value("${airquality.cache.location.ttl:10m}") Duration ttl,
+            @Value("${airquality.cache.location.max-size:5000}") int maxSize) {
+        return new CoalescingCache<>("location", ttl, maxSize, meterRegistry);
+    }
+}
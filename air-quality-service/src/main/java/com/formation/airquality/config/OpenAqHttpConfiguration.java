@@ -0,0 +1,86 @@
+package com.formation.airquality.config;
+
+import io.netty.channel.ChannelOption;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.socket.nio.NioChannelOption;
+import jdk.net.ExtendedSocketOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+import java.util.regex.Pattern;
+
+/**
+ * Client HTTP dédié à OpenAQ : pool de connexions borné et instrumenté, keep-alive TCP, HTTP/2 si
+ * l'API est en HTTPS (négocié par ALPN, repli HTTP/1.1) et réponses compressées en gzip.
+ *
+ * <p>Les métriques Reactor Netty ({@code reactor_netty_connection_provider_*} pour l'occupation du pool
+ * et l'attente d'une connexion, {@code reactor_netty_http_client_*} pour les connexions ouvertes et la durée
+ * des échanges) sont publiées dans le registre Micrometer global, exporté par Prometheus.
+ */
+@Configuration
+public class OpenAqHttpConfiguration {
+
+    // Les identifiants de station sont regroupés pour borner la cardinalité du tag uri
+    private static final Pattern LATEST_PATH = Pattern.compile("/locations/\\d+/latest");
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider openAqConnectionProvider(
+            @Value("${openaq.http.max-connections:50}") int maxConnections,
+            @Value("${openaq.http.pending-acquire-max-count:500}") int pendingAcquireMaxCount,
+            @Value("${openaq.http.pending-acquire-timeout:2s}") Duration pendingAcquireTimeout,
+            @Value("${openaq.http.max-idle-time:30s}") Duration maxIdleTime,
+            @Value("${openaq.http.max-life-time:5m}") Duration maxLifeTime,
+            @Value("${openaq.http.eviction-interval:15s}") Duration evictionInterval) {
+        return ConnectionProvider.builder("openaq")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                // Connexions fermées avant que l'équilibreur d'OpenAQ ne coupe les connexions inactives
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(evictionInterval)
+                .metrics(true)
+                .build();
+    }
+
+    @Bean
+    public ReactorClientHttpConnector openAqClientConnector(
+            ConnectionProvider openAqConnectionProvider,
+            @Value("${openaq.api.base-url:https://api.openaq.org/v3}") String baseUrl,
+            @Value("${openaq.http.connect-timeout:2s}") Duration connectTimeout,
+            @Value("${openaq.http.keep-alive-idle:60s}") Duration keepAliveIdle,
+            @Value("${openaq.http.http2:true}") boolean http2,
+            @Value("${openaq.http.compression:true}") boolean compression) {
+        HttpClient httpClient = keepAlive(HttpClient.create(openAqConnectionProvider), keepAliveIdle)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .compress(compression)
+                .metrics(true, uri -> LATEST_PATH.matcher(uri).replaceAll("/locations/{id}/latest"));
+
+        // HTTP/2 uniquement via TLS (ALPN) ; le faux serveur local en HTTP reste en HTTP/1.1 avec réutilisation
+        if (http2 && baseUrl.startsWith("https://")) {
+            httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11).secure();
+        }
+        return new ReactorClientHttpConnector(httpClient);
+    }
+
+    /**
+     * Keep-alive TCP après {@code idle} d'inactivité. L'option de délai dépend du transport retenu par
+     * Reactor Netty : epoll natif sous Linux (par défaut, sauf -Dreactor.netty.native=false), NIO sinon.
+     * Une option d'un autre transport serait ignorée sans erreur.
+     */
+    static HttpClient keepAlive(HttpClient httpClient, Duration idle) {
+        HttpClient keepAlive = httpClient.option(ChannelOption.SO_KEEPALIVE, true);
+        if (LoopResources.DEFAULT_NATIVE && Epoll.isAvailable()) {
+            return keepAlive.option(EpollChannelOption.TCP_KEEPIDLE, (int) idle.toSeconds());
+        }
+        return keepAlive.option(NioChannelOption.of(ExtendedSocketOptions.TCP_KEEPIDLE), (int) idle.toSeconds());
+    }
+}
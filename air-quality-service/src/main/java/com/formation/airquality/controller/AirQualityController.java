@@ -5,30 +5,42 @@ import com.formation.airquality.service.AirQualityService;
 import io.micrometer.core.annotation.Timed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
 
+/**
+ * Mode d'exécution bloquant (par défaut) : chaque requête occupe un thread Tomcat pendant l'appel amont.
+ */
 @RestController
+@ConditionalOnProperty(name = "airquality.execution.mode", havingValue = "blocking", matchIfMissing = true)
 @RequestMapping("/api/air-quality")
 @CrossOrigin(origins = "*")
 public class AirQualityController {
     private static final Logger logger = LoggerFactory.getLogger(AirQualityController.class);
     private final AirQualityService airQualityService;
+    private final EncodedCityResponses encodedCityResponses;
 
-    public AirQualityController(AirQualityService airQualityService) {
+    public AirQualityController(AirQualityService airQualityService, EncodedCityResponses encodedCityResponses) {
         this.airQualityService = airQualityService;
+        this.encodedCityResponses = encodedCityResponses;
     }
 
     @GetMapping("/city")
     @Timed(value = "airquality.city.request", description = "Time taken to get air quality by city")
-    public ResponseEntity<List<AirQualityData>> getAirQualityByCity(
+    public ResponseEntity<byte[]> getAirQualityByCity(
             @RequestParam String city,
-            @RequestParam(required = false, defaultValue = "FR") String country) {
+            @RequestParam(required = false, defaultValue = "FR") String country,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         logger.info("GET /api/air-quality/city?city={}&country={}", city, country);
         List<AirQualityData> data = airQualityService.getLatestMeasurements(city, country);
-        return ResponseEntity.ok(data);
+        return encodedCityResponses.respond(city, country, data, ifNoneMatch, acceptEncoding);
     }
 
     @GetMapping("/coordinates")
@@ -39,6 +51,10 @@ public class AirQualityController {
             @RequestParam(required = false, defaultValue = "25000") int radius) {
         logger.info("GET /api/air-quality/coordinates?lat={}&lon={}&radius={}",
                 latitude, longitude, radius);
+        if (radius <= 0 || radius > airQualityService.maxRadius()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "radius must be between 1 and " + airQualityService.maxRadius() + " meters");
+        }
         List<AirQualityData> data = airQualityService.getLatestByCoordinates(latitude, longitude, radius);
         return ResponseEntity.ok(data);
     }
@@ -0,0 +1,56 @@
+package com.formation.airquality.controller;
+
+import com.formation.airquality.model.BatchRequest;
+import com.formation.airquality.model.BatchResult;
+import com.formation.airquality.service.AirQualityService;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+
+/**
+ * Requêtes groupées : plusieurs villes et/ou points en un seul appel.
+ * En application/x-ndjson, chaque résultat est envoyé dès que son entrée est prête.
+ */
+@RestController
+@RequestMapping("/api/air-quality")
+@CrossOrigin(origins = "*")
+public class BatchAirQualityController {
+    private static final Logger logger = LoggerFactory.getLogger(BatchAirQualityController.class);
+    private final AirQualityService airQualityService;
+    private final int maxInputs;
+
+    public BatchAirQualityController(AirQualityService airQualityService,
+                                     @Value("${airquality.batch.max-inputs:100}") int maxInputs) {
+        this.airQualityService = airQualityService;
+        this.maxInputs = maxInputs;
+    }
+
+    @PostMapping(value = "/batch",
+                 produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    @Timed(value = "airquality.batch.request", description = "Time taken to get air quality for a batch of inputs")
+    public Flux<BatchResult> getAirQualityBatch(@RequestBody BatchRequest request) {
+        int inputs = request.getCities().size() + request.getPoints().size();
+        logger.info("POST /api/air-quality/batch cities={} points={}",
+                request.getCities().size(), request.getPoints().size());
+
+        if (inputs == 0 || inputs > maxInputs) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "A batch must contain between 1 and " + maxInputs + " cities or points");
+        }
+        if (request.getCities().stream().anyMatch(query -> query.getCity() == null || query.getCity().isBlank())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Every city entry needs a name");
+        }
+        int maxRadius = airQualityService.maxRadius();
+        if (request.getPoints().stream().anyMatch(point -> point.getRadius() <= 0 || point.getRadius() > maxRadius)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Every point radius must be between 1 and " + maxRadius + " meters");
+        }
+        return airQualityService.getBatch(request);
+    }
+}
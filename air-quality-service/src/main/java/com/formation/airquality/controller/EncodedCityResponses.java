@@ -0,0 +1,213 @@
+package com.formation.airquality.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.formation.airquality.model.AirQualityData;
+import com.formation.airquality.service.AirQualityService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Réponses /city pré-encodées : JSON brut et gzip, calculés une fois par résultat de ville et servis tels quels
+ * avec un ETag. Un résultat est réencodé seulement quand le service renvoie une autre liste (rafraîchissement
+ * de l'instantané ou du cache des villes) : les listes renvoyées sont immuables une fois publiées, la même
+ * instance désigne le même contenu. Les réponses de repli et de redémarrage à chaud, reconstruites à chaque
+ * requête, sont réencodées à chaque fois. {@code If-None-Match} obtient un 304 sans corps.
+ *
+ * <p>L'ETag est faible (W/) : il désigne le contenu, que la réponse soit compressée ou non,
+ * et survit à la recompression éventuelle par un proxy. Pour une réponse de repli, il est calculé avec l'âge
+ * arrondi à la minute : le corps donne l'âge exact, l'ETag reste le même pendant une minute et la revalidation
+ * fonctionne aussi en mode dégradé.
+ */
+@Component
+public class EncodedCityResponses {
+
+    private final ObjectMapper objectMapper;
+    // Dernier encodage par ville, les moins récemment servies retirées au-delà de max-size
+    private final Map<String, EncodedResponse> encoded;
+    private final Counter notModifiedCounter;
+    private final Counter notModifiedBytes;
+    private final Counter gzipBytes;
+
+    public EncodedCityResponses(ObjectMapper objectMapper,
+                                MeterRegistry meterRegistry,
+                                @Value("${airquality.cache.city.max-size:200}") int maxSize) {
+        this.objectMapper = objectMapper;
+        this.encoded = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, EncodedResponse> eldest) {
+                return size() > maxSize;
+            }
+        });
+        this.notModifiedCounter = Counter.builder("airquality.http.not.modified")
+                .description("Réponses /city 304 Not Modified (If-None-Match égal à l'ETag courant)")
+                .register(meterRegistry);
+        this.notModifiedBytes = savedBytesCounter("not_modified", meterRegistry);
+        this.gzipBytes = savedBytesCounter("gzip", meterRegistry);
+    }
+
+    /**
+     * Réponse pour ce résultat : 304 si le client a déjà cette version, sinon le corps pré-encodé
+     * (gzip si le client l'accepte).
+     */
+    public ResponseEntity<byte[]> respond(String city, String country, List<AirQualityData> data,
+                                          String ifNoneMatch, String acceptEncoding) {
+        EncodedResponse response = encode(AirQualityService.cityCacheKey(AirQualityService.resolveCity(city), country),
+                data);
+        boolean gzip = acceptsGzip(acceptEncoding);
+
+        if (matches(ifNoneMatch, response.etag())) {
+            notModifiedCounter.increment();
+            notModifiedBytes.increment(gzip ? response.gzip().length : response.json().length);
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(response.etag())
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(response.etag())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            gzipBytes.increment(response.json().length - response.gzip().length);
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(response.gzip());
+        }
+        return builder.body(response.json());
+    }
+
+    private EncodedResponse encode(String key, List<AirQualityData> data) {
+        // Même liste pour cette ville (instantané, cache des villes) : encodage réutilisé
+        EncodedResponse known = encoded.get(key);
+        if (known != null && known.source() == data) {
+            return known;
+        }
+
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(data);
+            EncodedResponse response = new EncodedResponse(data, json, gzip(json), etag(etagForm(data, json)));
+            encoded.put(key, response);
+            return response;
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Octets hachés pour l'ETag : le JSON servi, ou pour une réponse de repli le JSON avec l'âge arrondi à la
+     * minute inférieure.
+     */
+    private byte[] etagForm(List<AirQualityData> data, byte[] json) throws JsonProcessingException {
+        if (data.stream().allMatch(entry -> entry.getAgeSeconds() == null)) {
+            return json;
+        }
+        List<AirQualityData> normalized = new ArrayList<>(data.size());
+        for (AirQualityData entry : data) {
+            AirQualityData copy = new AirQualityData(entry.getCity(), entry.getCountry(), entry.getLatitude(),
+                    entry.getLongitude(), entry.getParameter(), entry.getValue(), entry.getUnit(),
+                    entry.getLastUpdated(), entry.getAqi(), entry.getQualityLevel(), entry.getStale(),
+                    entry.getAgeSeconds());
+            if (copy.getAgeSeconds() != null) {
+                copy.setAgeSeconds(copy.getAgeSeconds() - copy.getAgeSeconds() % 60);
+            }
+            normalized.add(copy);
+        }
+        return objectMapper.writeValueAsBytes(normalized);
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static String etag(byte[] json) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            return "W/\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest).substring(0, 22) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaque = etag.substring(2);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || (tag.startsWith("W/") ? tag.substring(2) : tag).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return quality(parts) > 0;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Poids {@code q} d'un codage ("gzip;q=0.0" refuse gzip) ; 1 s'il est absent ou illisible.
+     */
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 1;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private static Counter savedBytesCounter(String reason, MeterRegistry meterRegistry) {
+        return Counter.builder("airquality.http.bytes.saved")
+                .description("Octets de corps /city non envoyés (304 ou compression gzip)")
+                .baseUnit("bytes")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Encodages immuables d'un résultat ; {@code source} est la liste encodée, comparée par identité.
+     */
+    private record EncodedResponse(List<AirQualityData> source, byte[] json, byte[] gzip, String etag) {
+    }
+}
@@ -0,0 +1,56 @@
+package com.formation.airquality.controller;
+
+import com.formation.airquality.model.HistorySummary;
+import com.formation.airquality.service.AirQualityService;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+
+/**
+ * Historique mémoire : réponse locale, sans appel amont, identique quel que soit le mode d'exécution
+ * (bloquant ou reactive).
+ */
+@RestController
+@RequestMapping("/api/air-quality")
+@CrossOrigin(origins = "*")
+public class HistoryAirQualityController {
+    private static final Logger logger = LoggerFactory.getLogger(HistoryAirQualityController.class);
+    private final AirQualityService airQualityService;
+
+    public HistoryAirQualityController(AirQualityService airQualityService) {
+        this.airQualityService = airQualityService;
+    }
+
+    @GetMapping("/history")
+    @Timed(value = "airquality.history.request", description = "Time taken to summarize air quality history by city")
+    public ResponseEntity<HistorySummary> getHistory(
+            @RequestParam String city,
+            @RequestParam(required = false, defaultValue = "24h") String window,
+            @RequestParam(required = false, defaultValue = "1h") String step) {
+        logger.info("GET /api/air-quality/history?city={}&window={}&step={}", city, window, step);
+        HistorySummary summary = airQualityService.getHistory(city, duration("window", window), duration("step", step));
+        return summary != null ? ResponseEntity.ok(summary) : ResponseEntity.notFound().build();
+    }
+
+    // "24h", "PT30M" ou un nombre de millisecondes ; toute autre valeur est une erreur du client
+    private static Duration duration(String name, String value) {
+        Duration duration;
+        try {
+            duration = DurationStyle.detectAndParse(value);
+        } catch (IllegalArgumentException e) {
+            duration = null;
+        }
+        if (duration == null || duration.isNegative() || duration.isZero()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    name + " must be a positive duration such as 24h or PT30M, got: " + value);
+        }
+        return duration;
+    }
+}
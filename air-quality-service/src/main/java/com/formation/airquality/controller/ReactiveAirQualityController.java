@@ -0,0 +1,68 @@
+package com.formation.airquality.controller;
+
+import com.formation.airquality.model.AirQualityData;
+import com.formation.airquality.service.AirQualityService;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Mode d'exécution réactif : les endpoints renvoient des publishers et libèrent le thread
+ * de requête pendant l'appel amont. Mêmes routes que {@link AirQualityController}.
+ */
+@RestController
+@ConditionalOnProperty(name = "airquality.execution.mode", havingValue = "reactive")
+@RequestMapping("/api/air-quality")
+@CrossOrigin(origins = "*")
+public class ReactiveAirQualityController {
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveAirQualityController.class);
+    private final AirQualityService airQualityService;
+    private final EncodedCityResponses encodedCityResponses;
+
+    public ReactiveAirQualityController(AirQualityService airQualityService, EncodedCityResponses encodedCityResponses) {
+        this.airQualityService = airQualityService;
+        this.encodedCityResponses = encodedCityResponses;
+    }
+
+    @GetMapping("/city")
+    @Timed(value = "airquality.city.request", description = "Time taken to get air quality by city")
+    public Mono<ResponseEntity<byte[]>> getAirQualityByCity(
+            @RequestParam String city,
+            @RequestParam(required = false, defaultValue = "FR") String country,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        logger.info("GET /api/air-quality/city?city={}&country={}", city, country);
+        return airQualityService.getLatestMeasurementsReactive(city, country)
+                .map(data -> encodedCityResponses.respond(city, country, data, ifNoneMatch, acceptEncoding));
+    }
+
+    @GetMapping("/coordinates")
+    @Timed(value = "airquality.coordinates.request", description = "Time taken to get air quality by coordinates")
+    public Mono<ResponseEntity<List<AirQualityData>>> getAirQualityByCoordinates(
+            @RequestParam double latitude,
+            @RequestParam double longitude,
+            @RequestParam(required = false, defaultValue = "25000") int radius) {
+        logger.info("GET /api/air-quality/coordinates?lat={}&lon={}&radius={}",
+                latitude, longitude, radius);
+        if (radius <= 0 || radius > airQualityService.maxRadius()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "radius must be between 1 and " + airQualityService.maxRadius() + " meters");
+        }
+        return airQualityService.getLatestByCoordinatesReactive(latitude, longitude, radius)
+                .map(ResponseEntity::ok);
+    }
+
+    @GetMapping("/health")
+    public ResponseEntity<String> health() {
+        return ResponseEntity.ok("OK");
+    }
+}
@@ -0,0 +1,72 @@
+package com.formation.airquality.controller;
+
+import com.formation.airquality.model.CityUpdate;
+import com.formation.airquality.service.CityUpdateBroadcaster;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Flux Server-Sent Events des changements de qualité de l'air pour une ou plusieurs villes,
+ * à la place d'un polling de /city par onglet ouvert.
+ */
+@RestController
+@RequestMapping("/api/air-quality")
+@CrossOrigin(origins = "*")
+public class StreamAirQualityController {
+    private static final Logger logger = LoggerFactory.getLogger(StreamAirQualityController.class);
+    private final CityUpdateBroadcaster cityUpdateBroadcaster;
+    private final int maxCities;
+    private final Duration heartbeatInterval;
+    private final Duration maxDuration;
+
+    public StreamAirQualityController(CityUpdateBroadcaster cityUpdateBroadcaster,
+                                      @Value("${airquality.stream.max-cities:10}") int maxCities,
+                                      @Value("${airquality.stream.heartbeat-interval:15s}") Duration heartbeatInterval,
+                                      @Value("${airquality.stream.max-duration:1h}") Duration maxDuration) {
+        this.cityUpdateBroadcaster = cityUpdateBroadcaster;
+        this.maxCities = maxCities;
+        this.heartbeatInterval = heartbeatInterval;
+        this.maxDuration = maxDuration;
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<CityUpdate>> streamAirQuality(@RequestParam List<String> cities) {
+        logger.info("GET /api/air-quality/stream?cities={}", cities);
+
+        Set<String> resolved = new LinkedHashSet<>();
+        for (String city : cities) {
+            String known = cityUpdateBroadcaster.knownCity(city);
+            if (known == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown city: " + city);
+            }
+            resolved.add(known);
+        }
+        if (resolved.isEmpty() || resolved.size() > maxCities) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "A stream must follow between 1 and " + maxCities + " cities");
+        }
+
+        Flux<ServerSentEvent<CityUpdate>> updates = cityUpdateBroadcaster.subscribe(resolved)
+                .map(update -> ServerSentEvent.builder(update).event(update.getType()).build());
+        // Commentaire périodique : garde la connexion ouverte à travers les proxys quand rien ne change
+        Flux<ServerSentEvent<CityUpdate>> heartbeats = Flux.interval(heartbeatInterval)
+                .onBackpressureDrop()
+                .map(tick -> ServerSentEvent.<CityUpdate>builder().comment("keep-alive").build());
+        // Prefetch 1 : un client lent fait remonter la contre-pression jusqu'à la fusion du diffuseur.
+        // Spring MVC n'applique pas spring.mvc.async.request-timeout aux flux SSE : la durée du flux est bornée
+        // ici, puis EventSource se reconnecte
+        return Flux.merge(1, updates, heartbeats).take(maxDuration);
+    }
+}
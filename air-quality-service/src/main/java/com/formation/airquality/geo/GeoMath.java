@@ -0,0 +1,103 @@
+package com.formation.airquality.geo;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Calculs géographiques simples (distance, pavage d'un disque) pour les requêtes par coordonnées.
+ */
+public final class GeoMath {
+
+    private static final double EARTH_RADIUS_METERS = 6_371_000.0;
+    private static final double METERS_PER_DEGREE_LAT = 111_320.0;
+
+    private GeoMath() {
+    }
+
+    /**
+     * Distance orthodromique (formule de haversine) en mètres.
+     */
+    public static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.sqrt(a));
+    }
+
+    /**
+     * Centres de sous-disques de rayon {@code tileRadius} couvrant le disque de rayon {@code radius}
+     * autour du point demandé. Les centres suivent un réseau hexagonal (espacement r·√3, rangées à 1,5·r),
+     * seul pavage par cercles identiques qui couvre le plan avec un recouvrement minimal.
+     * Triés du plus proche au plus éloigné du centre, limités à {@code maxTiles} : au-delà de
+     * {@link #maxCoveredRadius} la couverture est incomplète.
+     */
+    public static List<double[]> coveringTiles(double latitude, double longitude, double radius,
+                                               double tileRadius, int maxTiles) {
+        double cellRadius = cellRadius(tileRadius);
+        // Une cellule hexagonale dont le centre est à plus de radius + cellRadius ne touche pas le disque
+        double reach = Math.min(radius + cellRadius, nearestReach(cellRadius, maxTiles));
+        double metersPerDegreeLon = METERS_PER_DEGREE_LAT * Math.cos(Math.toRadians(latitude));
+
+        List<double[]> offsets = hexOffsets(cellRadius, reach);
+        List<double[]> tiles = new ArrayList<>(Math.min(offsets.size(), maxTiles));
+        for (double[] offset : offsets.subList(0, Math.min(offsets.size(), maxTiles))) {
+            tiles.add(new double[]{
+                    latitude + offset[1] / METERS_PER_DEGREE_LAT,
+                    longitude + offset[0] / metersPerDegreeLon
+            });
+        }
+        return tiles;
+    }
+
+    /**
+     * Plus grand rayon (en mètres) entièrement couvert par {@code maxTiles} sous-disques de rayon
+     * {@code tileRadius} ; jamais moins de {@code tileRadius}, couvert par une seule requête.
+     */
+    public static int maxCoveredRadius(double tileRadius, int maxTiles) {
+        double cellRadius = cellRadius(tileRadius);
+        List<double[]> offsets = hexOffsets(cellRadius, nearestReach(cellRadius, maxTiles + 1));
+        // Le disque reste couvert tant que le centre suivant du réseau est hors de portée
+        double next = Math.hypot(offsets.get(maxTiles)[0], offsets.get(maxTiles)[1]);
+        return (int) Math.max(tileRadius, Math.ceil(next - cellRadius) - 1);
+    }
+
+    // Marge de 3 % pour absorber l'écart entre projection plane locale et distance orthodromique
+    private static double cellRadius(double tileRadius) {
+        return tileRadius * 0.97;
+    }
+
+    /**
+     * Rayon contenant au moins {@code count} centres du réseau : borne le parcours quel que soit le rayon demandé.
+     */
+    private static double nearestReach(double cellRadius, int count) {
+        return cellRadius * Math.sqrt(3) * (Math.ceil(Math.sqrt(count)) + 1);
+    }
+
+    /**
+     * Décalages (x, y) en mètres des centres du réseau hexagonal à moins de {@code reach}, du plus proche au plus éloigné.
+     */
+    private static List<double[]> hexOffsets(double cellRadius, double reach) {
+        double columnSpacing = cellRadius * Math.sqrt(3);
+        double rowSpacing = cellRadius * 1.5;
+
+        List<double[]> offsets = new ArrayList<>();
+        int rows = (int) Math.ceil(reach / rowSpacing);
+        int columns = (int) Math.ceil(reach / columnSpacing) + 1;
+        for (int row = -rows; row <= rows; row++) {
+            double y = row * rowSpacing;
+            double shift = (row & 1) == 0 ? 0.0 : columnSpacing / 2;
+            for (int column = -columns; column <= columns; column++) {
+                double x = column * columnSpacing + shift;
+                if (Math.hypot(x, y) <= reach) {
+                    offsets.add(new double[]{x, y});
+                }
+            }
+        }
+
+        offsets.sort(Comparator.comparingDouble(offset -> Math.hypot(offset[0], offset[1])));
+        return offsets;
+    }
+}
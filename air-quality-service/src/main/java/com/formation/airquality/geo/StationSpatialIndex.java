@@ -0,0 +1,386 @@
+package com.formation.airquality.geo;
+
+import com.formation.airquality.openaq.OpenAqLocation;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index spatial en grille (cellules de {@code cell-degrees} degrés) de toutes les stations OpenAQ déjà vues.
+ *
+ * <p>Chaque recherche /locations est enregistrée : les cellules entièrement contenues dans le disque couvert
+ * sont marquées fraîches, les cellules de bordure retiennent le disque qui les a partiellement couvertes.
+ * Le disque couvert est celui de la recherche si elle a renvoyé moins de résultats que la limite, sinon celui
+ * qui s'arrête à la station renvoyée la plus éloignée (OpenAQ classe les stations par distance). Une cellule
+ * est fraîche pour une recherche si elle a été entièrement couverte, ou si un disque déjà couvert contient
+ * toute la zone de la recherche.
+ *
+ * <p>{@link #lookup} sépare une recherche en stations indexées des cellules fraîches et zones restantes : seules
+ * celles-ci sont redemandées à OpenAQ. Les cellules qu'aucune recherche n'a touchées depuis {@code cell-ttl}
+ * sont retirées avec leurs stations.
+ */
+@Component
+public class StationSpatialIndex {
+
+    // Disques partiels retenus par cellule de bordure
+    private static final int MAX_PARTIAL_DISCS = 4;
+    // Zones manquantes demandées séparément à OpenAQ au plus, avant de redemander tout le disque
+    private static final int MAX_MISSING_ZONES = 3;
+    // Cellules parcourues au plus par recherche (près des pôles, la boîte englobante s'élargit en longitude)
+    private static final long MAX_SCANNED_CELLS = 10_000;
+
+    private final double cellDegrees;
+    private final long cellTtlMillis;
+    private final Map<Integer, OpenAqLocation> stations = new ConcurrentHashMap<>();
+    private final Map<Long, Cell> cells = new ConcurrentHashMap<>();
+
+    public StationSpatialIndex(MeterRegistry meterRegistry,
+                               @Value("${airquality.spatial.cell-degrees:0.05}") double cellDegrees,
+                               @Value("${airquality.spatial.cell-ttl:6h}") Duration cellTtl) {
+        this.cellDegrees = cellDegrees;
+        this.cellTtlMillis = cellTtl.toMillis();
+
+        Gauge.builder("airquality.spatial.stations", stations, Map::size)
+                .description("Stations OpenAQ présentes dans l'index spatial")
+                .register(meterRegistry);
+        Gauge.builder("airquality.spatial.cells", cells, Map::size)
+                .description("Cellules de la grille de l'index spatial")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Enregistre le résultat d'une recherche /locations de limite {@code limit}, classé par distance croissante.
+     */
+    public void recordQuery(double latitude, double longitude, double radius,
+                            List<OpenAqLocation> locations, int limit) {
+        long now = System.currentTimeMillis();
+        double farthest = 0;
+        for (OpenAqLocation location : locations) {
+            if (location.id() <= 0) {
+                continue;
+            }
+            farthest = Math.max(farthest,
+                    GeoMath.distanceMeters(latitude, longitude, location.latitude(), location.longitude()));
+            OpenAqLocation previous = stations.put(location.id(), location);
+            if (previous != null && cellKey(previous.latitude(), previous.longitude())
+                    != cellKey(location.latitude(), location.longitude())) {
+                Cell oldCell = cells.get(cellKey(previous.latitude(), previous.longitude()));
+                if (oldCell != null) {
+                    oldCell.stationIds.remove(location.id());
+                }
+            }
+            cells.compute(cellKey(location.latitude(), location.longitude()), (key, existing) -> {
+                Cell cell = existing != null ? existing : new Cell();
+                cell.stationIds.add(location.id());
+                cell.touchedAt = now;
+                return cell;
+            });
+        }
+
+        // Limite atteinte : au-delà de la station la plus éloignée, des stations du disque peuvent manquer
+        double coveredRadius = locations.size() < limit ? radius : Math.min(radius, farthest);
+        if (coveredRadius <= 0) {
+            return;
+        }
+        Disc disc = new Disc(latitude, longitude, coveredRadius, now);
+        forEachCell(latitude, longitude, coveredRadius, (row, column) -> {
+            double minLat = row * cellDegrees;
+            double minLon = column * cellDegrees;
+            if (!intersects(disc, minLat, minLon)) {
+                return true;
+            }
+            boolean full = containsCell(disc, minLat, minLon);
+            cells.compute(key(row, column), (key, existing) -> {
+                Cell cell = existing != null ? existing : new Cell();
+                if (full) {
+                    cell.fullyCoveredAt = now;
+                } else {
+                    cell.addPartial(disc);
+                }
+                cell.touchedAt = now;
+                return cell;
+            });
+            return true;
+        });
+    }
+
+    /**
+     * Stations du disque, de la plus proche à la plus éloignée, si toute la zone est couverte par des
+     * recherches encore fraîches ; null sinon (un appel amont est nécessaire).
+     */
+    public List<OpenAqLocation> findFresh(double latitude, double longitude, double radius, int limit) {
+        Lookup lookup = lookup(latitude, longitude, radius);
+        return lookup != null && lookup.missing().isEmpty() ? lookup.merge(List.of(), limit) : null;
+    }
+
+    /**
+     * Stations indexées des cellules fraîches du disque et zones restant à demander à OpenAQ. Null si le disque
+     * dépasse le budget de parcours de la grille.
+     */
+    public Lookup lookup(double latitude, double longitude, double radius) {
+        long now = System.currentTimeMillis();
+        Disc query = new Disc(latitude, longitude, radius, now);
+        List<Long> fresh = new ArrayList<>();
+        List<long[]> stale = new ArrayList<>();
+
+        boolean scanned = forEachCell(latitude, longitude, radius, (row, column) -> {
+            double minLat = row * cellDegrees;
+            double minLon = column * cellDegrees;
+            if (!intersects(query, minLat, minLon)) {
+                return true;
+            }
+            Cell cell = cells.get(key(row, column));
+            if (cell != null && cell.isCovered(query, now, cellTtlMillis)) {
+                fresh.add(key(row, column));
+            } else {
+                stale.add(new long[]{row, column});
+            }
+            return true;
+        });
+        if (!scanned) {
+            return null;
+        }
+
+        List<OpenAqLocation> indexed = new ArrayList<>();
+        for (Long key : fresh) {
+            Cell cell = cells.get(key);
+            if (cell == null) {
+                continue;
+            }
+            for (Integer id : cell.stationIds) {
+                OpenAqLocation location = stations.get(id);
+                if (location != null) {
+                    indexed.add(location);
+                }
+            }
+        }
+        return new Lookup(latitude, longitude, radius, indexed, missingZones(query, stale));
+    }
+
+    /**
+     * Disques couvrant les cellules à rafraîchir : regroupées en blocs de plus en plus grands jusqu'à tenir en
+     * {@code MAX_MISSING_ZONES} disques. Chaque disque coûte un appel : si leur surface cumulée dépasse la moitié
+     * de celle de la recherche, le disque entier est redemandé en un seul appel.
+     */
+    private List<Zone> missingZones(Disc query, List<long[]> stale) {
+        if (stale.isEmpty()) {
+            return List.of();
+        }
+        double latSpan = query.radius() / 111_320.0;
+        double lonSpan = query.radius() / (111_320.0 * Math.max(0.01, Math.cos(Math.toRadians(query.latitude()))));
+        Zone whole = new Zone(query.latitude(), query.longitude(), query.radius());
+
+        for (long block = 1; ; block *= 2) {
+            // Boîte englobante des cellules à rafraîchir de chaque bloc, limitée à celle de la recherche
+            Map<Long, double[]> boxes = new LinkedHashMap<>();
+            for (long[] cell : stale) {
+                double[] box = boxes.computeIfAbsent(key(Math.floorDiv(cell[0], block), Math.floorDiv(cell[1], block)),
+                        k -> new double[]{Double.MAX_VALUE, -Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE});
+                box[0] = Math.min(box[0], Math.max(cell[0] * cellDegrees, query.latitude() - latSpan));
+                box[1] = Math.max(box[1], Math.min((cell[0] + 1) * cellDegrees, query.latitude() + latSpan));
+                box[2] = Math.min(box[2], Math.max(cell[1] * cellDegrees, query.longitude() - lonSpan));
+                box[3] = Math.max(box[3], Math.min((cell[1] + 1) * cellDegrees, query.longitude() + lonSpan));
+            }
+            if (boxes.size() > MAX_MISSING_ZONES) {
+                continue;
+            }
+
+            List<Zone> zones = new ArrayList<>(boxes.size());
+            double area = 0;
+            for (double[] box : boxes.values()) {
+                double centerLat = (box[0] + box[1]) / 2;
+                double centerLon = (box[2] + box[3]) / 2;
+                double reach = 0;
+                for (double lat : new double[]{box[0], box[1]}) {
+                    for (double lon : new double[]{box[2], box[3]}) {
+                        reach = Math.max(reach, GeoMath.distanceMeters(centerLat, centerLon, lat, lon));
+                    }
+                }
+                zones.add(new Zone(centerLat, centerLon, reach));
+                area += reach * reach;
+            }
+            return area * 2 < query.radius() * query.radius() ? zones : List.of(whole);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${airquality.spatial.eviction-interval:1h}",
+               fixedDelayString = "${airquality.spatial.eviction-interval:1h}")
+    public void evictExpired() {
+        evictTouchedBefore(System.currentTimeMillis() - cellTtlMillis);
+    }
+
+    /**
+     * Retire les cellules ni couvertes ni alimentées depuis {@code cutoffMillis}, avec leurs stations ;
+     * renvoie le nombre de cellules retirées.
+     */
+    int evictTouchedBefore(long cutoffMillis) {
+        int evicted = 0;
+        for (Long key : cells.keySet()) {
+            boolean[] removed = {false};
+            cells.computeIfPresent(key, (k, cell) -> {
+                if (cell.touchedAt >= cutoffMillis) {
+                    return cell;
+                }
+                // Une station déplacée depuis appartient à une autre cellule : elle reste
+                for (Integer id : cell.stationIds) {
+                    stations.computeIfPresent(id, (i, location) ->
+                            cellKey(location.latitude(), location.longitude()) == k ? null : location);
+                }
+                removed[0] = true;
+                return null;
+            });
+            if (removed[0]) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Classe des stations par distance croissante au point donné.
+     */
+    public static List<OpenAqLocation> nearestFirst(List<OpenAqLocation> locations,
+                                                    double latitude, double longitude, double radius, int limit) {
+        return locations.stream()
+                .filter(location -> GeoMath.distanceMeters(latitude, longitude,
+                        location.latitude(), location.longitude()) <= radius)
+                .sorted(Comparator.comparingDouble(location -> GeoMath.distanceMeters(latitude, longitude,
+                        location.latitude(), location.longitude())))
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * Parcourt les cellules de la boîte englobante du disque ; s'arrête dès que le visiteur renvoie false.
+     * Renvoie false sans rien parcourir si la boîte dépasse {@code MAX_SCANNED_CELLS} cellules : ni réponse
+     * locale ni couverture mémorisée pour un tel disque.
+     */
+    private boolean forEachCell(double latitude, double longitude, double radius, CellVisitor visitor) {
+        double latSpan = radius / 111_320.0;
+        double lonSpan = radius / (111_320.0 * Math.max(0.01, Math.cos(Math.toRadians(latitude))));
+        long minRow = (long) Math.floor((latitude - latSpan) / cellDegrees);
+        long maxRow = (long) Math.floor((latitude + latSpan) / cellDegrees);
+        long minColumn = (long) Math.floor((longitude - lonSpan) / cellDegrees);
+        long maxColumn = (long) Math.floor((longitude + lonSpan) / cellDegrees);
+        if (!(radius >= 0) || (maxRow - minRow + 1) * (maxColumn - minColumn + 1) > MAX_SCANNED_CELLS) {
+            return false;
+        }
+
+        for (long row = minRow; row <= maxRow; row++) {
+            for (long column = minColumn; column <= maxColumn; column++) {
+                if (!visitor.visit(row, column)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean intersects(Disc disc, double minLat, double minLon) {
+        // Point de la cellule le plus proche du centre du disque
+        double nearestLat = Math.max(minLat, Math.min(disc.latitude(), minLat + cellDegrees));
+        double nearestLon = Math.max(minLon, Math.min(disc.longitude(), minLon + cellDegrees));
+        return GeoMath.distanceMeters(disc.latitude(), disc.longitude(), nearestLat, nearestLon) <= disc.radius();
+    }
+
+    private boolean containsCell(Disc disc, double minLat, double minLon) {
+        double maxLat = minLat + cellDegrees;
+        double maxLon = minLon + cellDegrees;
+        return disc.contains(minLat, minLon) && disc.contains(minLat, maxLon)
+                && disc.contains(maxLat, minLon) && disc.contains(maxLat, maxLon);
+    }
+
+    private long cellKey(double latitude, double longitude) {
+        return key((long) Math.floor(latitude / cellDegrees), (long) Math.floor(longitude / cellDegrees));
+    }
+
+    private static long key(long row, long column) {
+        return (row << 32) ^ (column & 0xffffffffL);
+    }
+
+    /**
+     * Zone circulaire à demander à OpenAQ.
+     */
+    public record Zone(double latitude, double longitude, double radius) {
+    }
+
+    /**
+     * Résultat de {@link #lookup} : stations indexées des cellules fraîches et zones manquantes (vide si aucune).
+     */
+    public record Lookup(double latitude, double longitude, double radius,
+                         List<OpenAqLocation> indexed, List<Zone> missing) {
+
+        /**
+         * Stations indexées complétées par celles renvoyées par OpenAQ pour les zones manquantes, sans doublon
+         * (la version d'OpenAQ l'emporte), de la plus proche à la plus éloignée.
+         */
+        public List<OpenAqLocation> merge(List<OpenAqLocation> fetched, int limit) {
+            Map<Integer, OpenAqLocation> unique = new LinkedHashMap<>();
+            for (OpenAqLocation location : indexed) {
+                unique.put(location.id(), location);
+            }
+            for (OpenAqLocation location : fetched) {
+                unique.put(location.id(), location);
+            }
+            return nearestFirst(new ArrayList<>(unique.values()), latitude, longitude, radius, limit);
+        }
+    }
+
+    @FunctionalInterface
+    private interface CellVisitor {
+        boolean visit(long row, long column);
+    }
+
+    private record Disc(double latitude, double longitude, double radius, long coveredAt) {
+        boolean contains(double lat, double lon) {
+            return GeoMath.distanceMeters(latitude, longitude, lat, lon) <= radius;
+        }
+
+        boolean contains(Disc other) {
+            return GeoMath.distanceMeters(latitude, longitude, other.latitude, other.longitude)
+                    + other.radius <= radius + 1.0;
+        }
+    }
+
+    private static final class Cell {
+        final Set<Integer> stationIds = ConcurrentHashMap.newKeySet();
+        volatile long fullyCoveredAt;
+        // Dernière couverture ou station reçue, pour l'éviction
+        volatile long touchedAt;
+        private final Deque<Disc> partialDiscs = new ArrayDeque<>(MAX_PARTIAL_DISCS);
+
+        synchronized void addPartial(Disc disc) {
+            if (partialDiscs.size() == MAX_PARTIAL_DISCS) {
+                partialDiscs.removeFirst();
+            }
+            partialDiscs.addLast(disc);
+        }
+
+        boolean isCovered(Disc query, long now, long ttlMillis) {
+            if (now - fullyCoveredAt <= ttlMillis) {
+                return true;
+            }
+            synchronized (this) {
+                for (Disc disc : partialDiscs) {
+                    if (now - disc.coveredAt() <= ttlMillis && disc.contains(query)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.formation.airquality.history;
+
+import com.formation.airquality.geo.GeoMath;
+import com.formation.airquality.model.HistoryPoint;
+import com.formation.airquality.model.HistorySummary;
+import com.formation.airquality.model.ParameterHistory;
+import com.formation.airquality.openaq.LatestMeasurement;
+import com.formation.airquality.openaq.OpenAqLocation;
+import com.formation.airquality.openaq.SensorParameter;
+import com.formation.airquality.openaq.StationReadings;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Historique mémoire des mesures vues par le service, par station et paramètre.
+ *
+ * <p>Chaque série est un {@link SeriesBuffer} de {@code capacity} points (168 = 7 jours de données horaires)
+ * et le nombre de séries est plafonné par {@code max-series} : l'empreinte mémoire maximale est connue
+ * à l'avance (séries x capacité x 8 octets, ~40 Mo avec les valeurs par défaut). Au-delà du plafond,
+ * les nouvelles séries sont ignorées.
+ *
+ * <p>Une station qui n'a plus été interrogée depuis {@code idle-eviction} (7 jours, l'horizon d'une série
+ * horaire pleine) est retirée avec ses séries, ce qui libère leur place sous le plafond.
+ */
+@Component
+public class MeasurementHistory {
+
+    // Nombre maximum de pas de temps dans une série rééchantillonnée
+    private static final int MAX_BUCKETS = 1000;
+
+    private final int capacity;
+    private final int maxSeries;
+    private final Map<Integer, Station> stations = new ConcurrentHashMap<>();
+    private final AtomicInteger seriesCount = new AtomicInteger();
+    private final long idleEvictionMillis;
+    private final Counter droppedCounter;
+    private final Counter evictedCounter;
+
+    public MeasurementHistory(MeterRegistry meterRegistry,
+                              @Value("${airquality.history.capacity:168}") int capacity,
+                              @Value("${airquality.history.max-series:30000}") int maxSeries,
+                              @Value("${airquality.history.idle-eviction:7d}") Duration idleEviction) {
+        this.capacity = Math.max(1, capacity);
+        this.maxSeries = Math.max(0, maxSeries);
+        this.idleEvictionMillis = idleEviction.toMillis();
+
+        Gauge.builder("airquality.history.series", seriesCount, AtomicInteger::get)
+                .description("Séries station / paramètre conservées dans l'historique")
+                .register(meterRegistry);
+        Gauge.builder("airquality.history.memory", seriesCount, count -> (double) count.get() * this.capacity * 8)
+                .description("Mémoire réservée par les tableaux de l'historique")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("airquality.history.dropped")
+                .description("Nouvelles séries ignorées, plafond max-series atteint")
+                .register(meterRegistry);
+        this.evictedCounter = Counter.builder("airquality.history.evicted")
+                .description("Stations retirées de l'historique après idle-eviction sans interrogation")
+                .register(meterRegistry);
+        Gauge.builder("airquality.history.stations", stations, Map::size)
+                .description("Stations présentes dans l'historique")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Enregistre les dernières mesures d'une station ; les mesures déjà connues sont ignorées.
+     */
+    public void record(StationReadings readings) {
+        OpenAqLocation location = readings.location();
+        long now = System.currentTimeMillis();
+        // Sous le verrou de la clé : une éviction concurrente ne peut pas retirer la station pendant l'ajout
+        stations.compute(location.id(), (id, existing) -> {
+            Station station = existing != null ? existing : new Station(location.latitude(), location.longitude());
+            station.lastRecordedMillis = now;
+            for (LatestMeasurement measurement : readings.latest()) {
+                SensorParameter parameter = location.sensors().get(measurement.sensorId());
+                int minute = epochMinute(measurement.datetimeUtc());
+                if (parameter == null || minute < 0) {
+                    continue;
+                }
+                SeriesBuffer series = station.series(parameter);
+                if (series != null) {
+                    series.append(minute, (float) measurement.value());
+                }
+            }
+            return station;
+        });
+    }
+
+    @Scheduled(initialDelayString = "${airquality.history.eviction-interval:1h}",
+               fixedDelayString = "${airquality.history.eviction-interval:1h}")
+    public void evictIdle() {
+        evictRecordedBefore(System.currentTimeMillis() - idleEvictionMillis);
+    }
+
+    /**
+     * Retire les stations dont le dernier enregistrement est antérieur à {@code cutoffMillis} ; renvoie leur nombre.
+     */
+    int evictRecordedBefore(long cutoffMillis) {
+        int evicted = 0;
+        for (Integer id : stations.keySet()) {
+            boolean[] removed = {false};
+            stations.computeIfPresent(id, (key, station) -> {
+                if (station.lastRecordedMillis >= cutoffMillis) {
+                    return station;
+                }
+                seriesCount.addAndGet(-station.series.size());
+                removed[0] = true;
+                return null;
+            });
+            if (removed[0]) {
+                evicted++;
+            }
+        }
+        evictedCounter.increment(evicted);
+        return evicted;
+    }
+
+    /**
+     * Statistiques et séries rééchantillonnées (pas {@code step}) des stations situées à moins de
+     * {@code radius} mètres du point, sur la fenêtre {@code window} se terminant maintenant.
+     */
+    public HistorySummary summarize(String city, double latitude, double longitude, double radius,
+                                    Duration window, Duration step) {
+        int toMinute = (int) (Instant.now().getEpochSecond() / 60);
+        int windowMinutes = (int) Math.max(1, Math.min(window.toMinutes(), Integer.MAX_VALUE / 2));
+        int stepMinutes = (int) Math.max(1, Math.min(step.toMinutes(), windowMinutes));
+        stepMinutes = Math.max(stepMinutes, (windowMinutes + MAX_BUCKETS - 1) / MAX_BUCKETS);
+        int buckets = (windowMinutes + stepMinutes - 1) / stepMinutes;
+        // Fenêtre de windowMinutes minutes terminée par la minute courante incluse : une mesure "maintenant"
+        // tombe dans le dernier pas
+        int fromMinute = toMinute - windowMinutes + 1;
+
+        Map<String, Aggregate> byParameter = new TreeMap<>();
+        int stationCount = 0;
+        for (Station station : stations.values()) {
+            if (GeoMath.distanceMeters(latitude, longitude, station.latitude, station.longitude) > radius) {
+                continue;
+            }
+            boolean hasSamples = false;
+            for (Map.Entry<String, SeriesBuffer> entry : station.series.entrySet()) {
+                Aggregate aggregate = byParameter.computeIfAbsent(entry.getKey(),
+                        parameter -> new Aggregate(station.units.get(parameter), buckets));
+                int before = aggregate.samples;
+                int stepSize = stepMinutes;
+                entry.getValue().forEachSince(fromMinute,
+                        (minute, value) -> aggregate.add((minute - fromMinute) / stepSize, value));
+                if (aggregate.samples > before) {
+                    aggregate.stations++;
+                    hasSamples = true;
+                }
+            }
+            if (hasSamples) {
+                stationCount++;
+            }
+        }
+
+        List<ParameterHistory> parameters = new ArrayList<>(byParameter.size());
+        for (Map.Entry<String, Aggregate> entry : byParameter.entrySet()) {
+            if (entry.getValue().samples > 0) {
+                parameters.add(entry.getValue().toParameterHistory(entry.getKey(), fromMinute, stepMinutes));
+            }
+        }
+        return new HistorySummary(city, minuteToString(fromMinute), minuteToString(toMinute),
+                stepMinutes * 60L, stationCount, parameters);
+    }
+
+    /**
+     * Minute depuis l'epoch d'un horodatage ISO-8601 UTC, ou -1 s'il est absent ou invalide.
+     */
+    private static int epochMinute(String datetimeUtc) {
+        if (datetimeUtc == null) {
+            return -1;
+        }
+        try {
+            return (int) (Instant.parse(datetimeUtc).getEpochSecond() / 60);
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    private static String minuteToString(int epochMinute) {
+        return Instant.ofEpochSecond(epochMinute * 60L).toString();
+    }
+
+    private final class Station {
+        private final double latitude;
+        private final double longitude;
+        private final Map<String, SeriesBuffer> series = new ConcurrentHashMap<>();
+        private final Map<String, String> units = new ConcurrentHashMap<>();
+        private volatile long lastRecordedMillis;
+
+        private Station(double latitude, double longitude) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+
+        /**
+         * Série du paramètre, créée si le plafond le permet ; null sinon.
+         */
+        private SeriesBuffer series(SensorParameter parameter) {
+            SeriesBuffer existing = series.get(parameter.name());
+            if (existing != null) {
+                return existing;
+            }
+            return series.computeIfAbsent(parameter.name(), name -> {
+                if (seriesCount.incrementAndGet() > maxSeries) {
+                    seriesCount.decrementAndGet();
+                    droppedCounter.increment();
+                    return null;
+                }
+                if (parameter.units() != null) {
+                    units.put(name, parameter.units());
+                }
+                return new SeriesBuffer(capacity);
+            });
+        }
+    }
+
+    /**
+     * Accumulateur d'un paramètre : toutes les valeurs (pour les centiles) et les agrégats par pas de temps.
+     */
+    private static final class Aggregate {
+        private final String unit;
+        private final int[] bucketCounts;
+        private final double[] bucketSums;
+        private final float[] bucketMins;
+        private final float[] bucketMaxs;
+        private float[] values = new float[64];
+        private int samples;
+        private int stations;
+
+        private Aggregate(String unit, int buckets) {
+            this.unit = unit;
+            this.bucketCounts = new int[buckets];
+            this.bucketSums = new double[buckets];
+            this.bucketMins = new float[buckets];
+            this.bucketMaxs = new float[buckets];
+        }
+
+        private void add(int bucket, float value) {
+            if (bucket < 0 || bucket >= bucketCounts.length) {
+                // Horodatage postérieur à maintenant (horloge d'une station en avance)
+                return;
+            }
+            if (samples == values.length) {
+                values = Arrays.copyOf(values, samples * 2);
+            }
+            values[samples++] = value;
+
+            if (bucketCounts[bucket] == 0) {
+                bucketMins[bucket] = value;
+                bucketMaxs[bucket] = value;
+            } else {
+                bucketMins[bucket] = Math.min(bucketMins[bucket], value);
+                bucketMaxs[bucket] = Math.max(bucketMaxs[bucket], value);
+            }
+            bucketCounts[bucket]++;
+            bucketSums[bucket] += value;
+        }
+
+        private ParameterHistory toParameterHistory(String parameter, int fromMinute, int stepMinutes) {
+            float[] sorted = Arrays.copyOf(values, samples);
+            Arrays.sort(sorted);
+            double sum = 0;
+            for (float value : sorted) {
+                sum += value;
+            }
+
+            List<HistoryPoint> series = new ArrayList<>();
+            for (int i = 0; i < bucketCounts.length; i++) {
+                if (bucketCounts[i] > 0) {
+                    series.add(new HistoryPoint(minuteToString(fromMinute + i * stepMinutes), bucketCounts[i],
+                            bucketMins[i], bucketMaxs[i], bucketSums[i] / bucketCounts[i]));
+                }
+            }
+            return new ParameterHistory(parameter, unit, stations, samples, sorted[0], sorted[samples - 1],
+                    sum / samples, percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.95),
+                    series);
+        }
+
+        // Rang le plus proche
+        private static double percentile(float[] sorted, double percentile) {
+            int rank = (int) Math.ceil(percentile * sorted.length);
+            return sorted[Math.max(0, rank - 1)];
+        }
+    }
+}
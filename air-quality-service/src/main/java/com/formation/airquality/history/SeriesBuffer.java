@@ -0,0 +1,53 @@
+package com.formation.airquality.history;
+
+/**
+ * Anneau de taille fixe des valeurs d'un couple station / paramètre : deux tableaux primitifs
+ * (minutes depuis l'epoch, valeur), soit 8 octets par point, les plus anciens étant écrasés.
+ */
+final class SeriesBuffer {
+
+    @FunctionalInterface
+    interface PointConsumer {
+        void accept(int epochMinute, float value);
+    }
+
+    private final int[] minutes;
+    private final float[] values;
+    private int next;
+    private int size;
+
+    SeriesBuffer(int capacity) {
+        this.minutes = new int[capacity];
+        this.values = new float[capacity];
+    }
+
+    /**
+     * Ajoute un point s'il est plus récent que le dernier : une même mesure horaire lue plusieurs fois
+     * par les requêtes n'est stockée qu'une fois.
+     */
+    synchronized boolean append(int epochMinute, float value) {
+        if (size > 0 && epochMinute <= minutes[(next - 1 + minutes.length) % minutes.length]) {
+            return false;
+        }
+        minutes[next] = epochMinute;
+        values[next] = value;
+        next = (next + 1) % minutes.length;
+        if (size < minutes.length) {
+            size++;
+        }
+        return true;
+    }
+
+    /**
+     * Parcourt, du plus ancien au plus récent, les points à partir de {@code fromMinute} inclus.
+     */
+    synchronized void forEachSince(int fromMinute, PointConsumer consumer) {
+        int start = (next - size + minutes.length) % minutes.length;
+        for (int i = 0; i < size; i++) {
+            int index = (start + i) % minutes.length;
+            if (minutes[index] >= fromMinute) {
+                consumer.accept(minutes[index], values[index]);
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.formation.airquality.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durée de chaque étape d'une requête (latence simulée, /locations, /latest, décodage JSON, assemblage des
+ * mesures avec calcul de l'AQI), et taille des réponses.
+ *
+ * <p>Les histogrammes et seuils SLO sont configurés dans application.yml
+ * ({@code management.metrics.distribution.*}). Le tag {@code city} est limité aux villes connues plus
+ * "other" : c'est à l'appelant de le normaliser avant de l'utiliser.
+ */
+@Component
+public class StageMetrics {
+
+    public enum Stage { SIMULATED_LATENCY, LOCATIONS, LATEST, PARSE, ASSEMBLY }
+
+    public static final String OTHER_CITY = "other";
+    public static final String NO_CITY = "none";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Stage, Timer> succeeded = new EnumMap<>(Stage.class);
+    private final Map<Stage, Timer> failed = new EnumMap<>(Stage.class);
+    private final Map<Stage, Timer> cancelled = new EnumMap<>(Stage.class);
+
+    public StageMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        for (Stage stage : Stage.values()) {
+            succeeded.put(stage, stageTimer(stage, "success"));
+            failed.put(stage, stageTimer(stage, "error"));
+            cancelled.put(stage, stageTimer(stage, "cancelled"));
+        }
+    }
+
+    public void record(Stage stage, long nanos) {
+        succeeded.get(stage).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Mesure l'étape de la souscription à sa terminaison ; une annulation (échéance, take()) est
+     * enregistrée à part pour ne pas fausser la distribution des étapes abouties.
+     */
+    public <T> Mono<T> timed(Stage stage, Mono<T> call) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call.doFinally(signal -> timer(stage, signal).record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    /**
+     * Durée d'une requête /city, par ville.
+     */
+    public void recordCityRequest(String cityTag, long nanos) {
+        Timer.builder("airquality.city.duration")
+                .description("Durée des requêtes /city par ville (villes connues, autres regroupées)")
+                .tag("city", cityTag)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Nombre de mesures renvoyées par une requête /city ou /coordinates.
+     */
+    public void recordMeasurements(String query, String cityTag, int measurements) {
+        DistributionSummary.builder("airquality.response.measurements")
+                .description("Mesures renvoyées par requête")
+                .baseUnit("measurements")
+                .tag("query", query)
+                .tag("city", cityTag)
+                .register(meterRegistry)
+                .record(measurements);
+    }
+
+    private Timer timer(Stage stage, SignalType signal) {
+        return switch (signal) {
+            case ON_ERROR -> failed.get(stage);
+            case CANCEL -> cancelled.get(stage);
+            default -> succeeded.get(stage);
+        };
+    }
+
+    private Timer stageTimer(Stage stage, String outcome) {
+        return Timer.builder("airquality.stage.duration")
+                .description("Durée des étapes d'une requête")
+                .tag("stage", stage.name().toLowerCase(Locale.ROOT))
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
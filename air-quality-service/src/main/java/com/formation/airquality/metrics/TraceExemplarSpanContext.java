@@ -0,0 +1,36 @@
+package com.formation.airquality.metrics;
+
+import io.opentelemetry.api.trace.Span;
+import io.prometheus.metrics.tracer.common.SpanContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fournit au registre Prometheus la trace courante de l'agent OpenTelemetry (Dockerfile) : les buckets
+ * des histogrammes portent alors un exemplaire trace_id / span_id, qui relie un point de latence dans
+ * Grafana à la trace correspondante dans Tempo. Sans agent, aucune trace n'est active et rien n'est ajouté.
+ */
+@Component
+public class TraceExemplarSpanContext implements SpanContext {
+
+    @Override
+    public String getCurrentTraceId() {
+        io.opentelemetry.api.trace.SpanContext context = Span.current().getSpanContext();
+        return context.isValid() ? context.getTraceId() : null;
+    }
+
+    @Override
+    public String getCurrentSpanId() {
+        io.opentelemetry.api.trace.SpanContext context = Span.current().getSpanContext();
+        return context.isValid() ? context.getSpanId() : null;
+    }
+
+    @Override
+    public boolean isCurrentSpanSampled() {
+        return Span.current().getSpanContext().isSampled();
+    }
+
+    @Override
+    public void markCurrentSpanAsExemplar() {
+        // L'agent échantillonne déjà les traces exportées : rien à forcer
+    }
+}
@@ -1,5 +1,6 @@
 package com.formation.airquality.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -18,4 +19,9 @@ public class AirQualityData {
     private String lastUpdated;
     private int aqi;
     private String qualityLevel;
+    // Renseignés seulement pour une donnée de repli servie pendant une indisponibilité d'OpenAQ
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean stale;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long ageSeconds;
 }
@@ -0,0 +1,33 @@
+package com.formation.airquality.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchRequest {
+    private List<CityQuery> cities = new ArrayList<>();
+    private List<PointQuery> points = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CityQuery {
+        private String city;
+        private String country = "FR";
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PointQuery {
+        private double latitude;
+        private double longitude;
+        private int radius = 25000;
+    }
+}
@@ -0,0 +1,21 @@
+package com.formation.airquality.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Résultat d'une entrée de /batch, identifiée par sa clé ("city:Paris:FR" ou "point:48.8566:2.3522:25000").
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchResult {
+    private String key;
+    private List<AirQualityData> data;
+    private String error;
+}
@@ -0,0 +1,20 @@
+package com.formation.airquality.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Événement du flux /stream pour une ville : "snapshot" (toutes les mesures connues, à l'abonnement)
+ * ou "update" (seulement les mesures dont la valeur, l'AQI ou le niveau de qualité a changé).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CityUpdate {
+    private String type;
+    private String city;
+    private List<AirQualityData> data;
+}
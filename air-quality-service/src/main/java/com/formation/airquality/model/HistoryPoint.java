@@ -0,0 +1,19 @@
+package com.formation.airquality.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Point d'une série rééchantillonnée : début du pas de temps et valeurs des mesures qu'il regroupe.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistoryPoint {
+    private String timestamp;
+    private int samples;
+    private double min;
+    private double max;
+    private double mean;
+}
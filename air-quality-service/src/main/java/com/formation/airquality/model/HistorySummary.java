@@ -0,0 +1,22 @@
+package com.formation.airquality.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Historique agrégé d'une ville sur une fenêtre (/history) : statistiques et série rééchantillonnée par paramètre.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistorySummary {
+    private String city;
+    private String from;
+    private String to;
+    private long stepSeconds;
+    private int stations;
+    private List<ParameterHistory> parameters;
+}
@@ -0,0 +1,27 @@
+package com.formation.airquality.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Statistiques d'un paramètre sur toutes les stations d'une ville, et série moyenne par pas de temps.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ParameterHistory {
+    private String parameter;
+    private String unit;
+    private int stations;
+    private int samples;
+    private double min;
+    private double max;
+    private double mean;
+    private double p50;
+    private double p90;
+    private double p95;
+    private List<HistoryPoint> series;
+}
@@ -0,0 +1,7 @@
+package com.formation.airquality.openaq;
+
+/**
+ * Dernière valeur d'un capteur renvoyée par /locations/{id}/latest.
+ */
+public record LatestMeasurement(int sensorId, double value, String datetimeUtc) {
+}
@@ -0,0 +1,123 @@
+package com.formation.airquality.openaq;
+
+import com.formation.airquality.metrics.StageMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Client HTTP de l'API OpenAQ v3. Les corps de réponse sont décodés au fil de leur réception par
+ * {@link OpenAqStreamingDecoder}, sans être agrégés ni passer par un arbre JsonNode ; un corps qui dépasse
+ * {@code MAX_BODY_BYTES} est annulé en cours de réception.
+ * Chaque appel attend un jeton de {@link UpstreamRateLimiter}, puis passe avec son éventuel doublon
+ * ({@link UpstreamHedging}) par {@link UpstreamCircuitBreaker}.
+ */
+@Component
+public class OpenAqClient {
+
+    // Taille maximale d'un corps de réponse accepté
+    private static final int MAX_BODY_BYTES = 4 * 1024 * 1024;
+
+    private final WebClient webClient;
+    private final UpstreamHedging hedging;
+    private final UpstreamCircuitBreaker circuitBreaker;
+    private final UpstreamRateLimiter rateLimiter;
+    private final StageMetrics stageMetrics;
+
+    public OpenAqClient(WebClient.Builder webClientBuilder,
+                        ReactorClientHttpConnector openAqClientConnector,
+                        UpstreamHedging hedging,
+                        UpstreamCircuitBreaker circuitBreaker,
+                        UpstreamRateLimiter rateLimiter,
+                        StageMetrics stageMetrics,
+                        @Value("${openaq.api.base-url:https://api.openaq.org/v3}") String baseUrl,
+                        @Value("${openaq.api.key:}") String apiKey) {
+        this.webClient = webClientBuilder
+                .clientConnector(openAqClientConnector)
+                .baseUrl(baseUrl)
+                .defaultHeader("X-API-Key", apiKey)
+                .filter(rateLimiter.responseObserver())
+                .build();
+        this.hedging = hedging;
+        this.circuitBreaker = circuitBreaker;
+        this.rateLimiter = rateLimiter;
+        this.stageMetrics = stageMetrics;
+    }
+
+    /**
+     * Stations situées dans un rayon (mètres) autour d'un point : GET /locations.
+     */
+    public Mono<List<OpenAqLocation>> findLocations(double latitude, double longitude, int radius, int limit) {
+        return rateLimiter.call(circuitBreaker.call(hedging.call("locations", () -> webClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/locations")
+                        .queryParam("coordinates", latitude + "," + longitude)
+                        .queryParam("radius", String.valueOf(radius))
+                        .queryParam("limit", String.valueOf(limit))
+                        .build())
+                .retrieve()
+                .bodyToFlux(DataBuffer.class)
+                .as(body -> decode(body, OpenAqStreamingDecoder::locationsFeeder)))));
+    }
+
+    /**
+     * Dernières mesures d'une station : GET /locations/{id}/latest, limitées à {@code maxResults}.
+     * Le décodage s'arrête au plafond ; le reste du corps est lu sans être analysé pour garder la connexion
+     * réutilisable.
+     */
+    public Mono<List<LatestMeasurement>> fetchLatest(int locationId, int maxResults) {
+        return rateLimiter.call(circuitBreaker.call(hedging.call("latest", () -> webClient.get()
+                // Gabarit d'URI : le tag uri de http.client.requests reste borné quel que soit le nombre de stations
+                .uri("/locations/{id}/latest", locationId)
+                .retrieve()
+                .bodyToFlux(DataBuffer.class)
+                .as(body -> decode(body, () -> OpenAqStreamingDecoder.latestFeeder(maxResults))))));
+    }
+
+    /**
+     * Passe chaque morceau du corps au décodeur dès sa réception, puis le libère ; un décodeur par abonnement.
+     */
+    private <T> Mono<List<T>> decode(Flux<DataBuffer> body, Supplier<OpenAqStreamingDecoder.ResultsFeeder<T>> feeders) {
+        return Mono.defer(() -> {
+            OpenAqStreamingDecoder.ResultsFeeder<T> feeder = feeders.get();
+            long[] received = {0};
+            return body
+                    .doOnNext(buffer -> {
+                        try {
+                            int length = buffer.readableByteCount();
+                            received[0] += length;
+                            if (received[0] > MAX_BODY_BYTES) {
+                                throw new DataBufferLimitException(
+                                        "OpenAQ response exceeds " + MAX_BODY_BYTES + " bytes");
+                            }
+                            if (!feeder.isDone()) {
+                                byte[] bytes = new byte[length];
+                                buffer.read(bytes);
+                                feeder.feed(bytes, 0, length);
+                            }
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        } finally {
+                            DataBufferUtils.release(buffer);
+                        }
+                    })
+                    .then(Mono.fromCallable(feeder::finish))
+                    .doOnTerminate(() -> {
+                        if (feeder.parseNanos() > 0) {
+                            stageMetrics.record(StageMetrics.Stage.PARSE, feeder.parseNanos());
+                        }
+                    });
+        });
+    }
+}
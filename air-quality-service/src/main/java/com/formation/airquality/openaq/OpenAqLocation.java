@@ -0,0 +1,15 @@
+package com.formation.airquality.openaq;
+
+import java.util.Map;
+
+/**
+ * Station OpenAQ telle que décrite par /locations : identité, position et mapping sensorId -> paramètre.
+ * {@code name} et {@code countryName} peuvent être null si absents de la réponse.
+ */
+public record OpenAqLocation(int id,
+                             String name,
+                             String countryName,
+                             double latitude,
+                             double longitude,
+                             Map<Integer, SensorParameter> sensors) {
+}
@@ -0,0 +1,359 @@
+package com.formation.airquality.openaq;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Décodeur en streaming des réponses OpenAQ v3 /locations et /locations/{id}/latest.
+ * Lit les tokens un par un et remplit directement les records internes, sans construire d'arbre JsonNode :
+ * les sous-arbres inutiles (bounds, instruments, owner, provider...) sont sautés sans être matérialisés.
+ * Un champ connu d'un type inattendu est sauté lui aussi et garde sa valeur par défaut (0, null).
+ *
+ * <p>{@link ResultsFeeder} décode un corps reçu par morceaux avec le parser non bloquant de Jackson : chaque
+ * élément de "results" est décodé dès qu'il est complet, sans attendre la fin du corps ni le garder en mémoire.
+ */
+public final class OpenAqStreamingDecoder {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private OpenAqStreamingDecoder() {
+    }
+
+    /**
+     * Décodeur incrémental des stations d'un corps /locations.
+     */
+    static ResultsFeeder<OpenAqLocation> locationsFeeder() {
+        return new ResultsFeeder<>(OpenAqStreamingDecoder::readLocation, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Décodeur incrémental d'au plus {@code maxResults} mesures d'un corps /locations/{id}/latest.
+     */
+    static ResultsFeeder<LatestMeasurement> latestFeeder(int maxResults) {
+        return new ResultsFeeder<>(OpenAqStreamingDecoder::readMeasurement, maxResults);
+    }
+
+    private static OpenAqLocation readLocation(JsonParser parser) throws IOException {
+        int id = 0;
+        String name = null;
+        String countryName = null;
+        double latitude = 0.0;
+        double longitude = 0.0;
+        Map<Integer, SensorParameter> sensors = new HashMap<>();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "id" -> id = intOrZero(parser, value);
+                case "name" -> name = textOrNull(parser, value);
+                case "coordinates" -> {
+                    if (value == JsonToken.START_OBJECT) {
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String coordinate = parser.currentName();
+                            JsonToken coordinateValue = parser.nextToken();
+                            if ("latitude".equals(coordinate)) {
+                                latitude = doubleOrZero(parser, coordinateValue);
+                            } else if ("longitude".equals(coordinate)) {
+                                longitude = doubleOrZero(parser, coordinateValue);
+                            } else {
+                                parser.skipChildren();
+                            }
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                case "country" -> {
+                    if (value == JsonToken.START_OBJECT) {
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String countryField = parser.currentName();
+                            JsonToken countryValue = parser.nextToken();
+                            if ("name".equals(countryField)) {
+                                countryName = textOrNull(parser, countryValue);
+                            } else {
+                                parser.skipChildren();
+                            }
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                case "sensors" -> {
+                    if (value == JsonToken.START_ARRAY) {
+                        JsonToken element;
+                        while ((element = parser.nextToken()) != JsonToken.END_ARRAY) {
+                            if (element == JsonToken.START_OBJECT) {
+                                readSensor(parser, sensors);
+                            } else {
+                                parser.skipChildren();
+                            }
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+
+        return new OpenAqLocation(id, name, countryName, latitude, longitude, Map.copyOf(sensors));
+    }
+
+    private static void readSensor(JsonParser parser, Map<Integer, SensorParameter> sensors) throws IOException {
+        int sensorId = 0;
+        SensorParameter parameter = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("id".equals(field)) {
+                sensorId = intOrZero(parser, value);
+            } else if ("parameter".equals(field) && value == JsonToken.START_OBJECT) {
+                parameter = readParameter(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        if (sensorId > 0 && parameter != null) {
+            sensors.put(sensorId, parameter);
+        }
+    }
+
+    private static SensorParameter readParameter(JsonParser parser) throws IOException {
+        String id = null;
+        String name = null;
+        String displayName = null;
+        String units = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "id" -> id = value.isScalarValue() && value != JsonToken.VALUE_NULL ?
+                        String.valueOf(parser.getValueAsInt()) : skipped(parser);
+                case "name" -> name = textOrNull(parser, value);
+                case "displayName" -> displayName = textOrNull(parser, value);
+                case "units" -> units = textOrNull(parser, value);
+                default -> parser.skipChildren();
+            }
+        }
+
+        // Nom du paramètre : "name", puis "displayName", puis "id" en dernier recours
+        String paramName = name != null ? name : displayName != null ? displayName : id != null ? id : "unknown";
+        return new SensorParameter(paramName, units != null ? units : "");
+    }
+
+    private static LatestMeasurement readMeasurement(JsonParser parser) throws IOException {
+        int sensorId = 0;
+        double value = 0.0;
+        String datetimeUtc = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "sensorsId" -> sensorId = intOrZero(parser, token);
+                case "value" -> value = doubleOrZero(parser, token);
+                case "datetime" -> {
+                    if (token == JsonToken.START_OBJECT) {
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String datetimeField = parser.currentName();
+                            JsonToken datetimeValue = parser.nextToken();
+                            if ("utc".equals(datetimeField)) {
+                                datetimeUtc = textOrNull(parser, datetimeValue);
+                            } else {
+                                parser.skipChildren();
+                            }
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+
+        return new LatestMeasurement(sensorId, value, datetimeUtc);
+    }
+
+    /**
+     * Valeur entière d'un champ scalaire ; 0 pour null, texte non numérique, objet ou tableau (sauté).
+     */
+    private static int intOrZero(JsonParser parser, JsonToken token) throws IOException {
+        if (token.isStructStart()) {
+            parser.skipChildren();
+            return 0;
+        }
+        return parser.getValueAsInt();
+    }
+
+    private static double doubleOrZero(JsonParser parser, JsonToken token) throws IOException {
+        if (token.isStructStart()) {
+            parser.skipChildren();
+            return 0.0;
+        }
+        return parser.getValueAsDouble();
+    }
+
+    private static String skipped(JsonParser parser) throws IOException {
+        parser.skipChildren();
+        return null;
+    }
+
+    private static String textOrNull(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token.isStructStart()) {
+            parser.skipChildren();
+            return null;
+        }
+        return parser.getValueAsString();
+    }
+
+    @FunctionalInterface
+    private interface ElementReader<T> {
+        /**
+         * Lit un élément de "results", le parser étant positionné sur son START_OBJECT.
+         */
+        T read(JsonParser parser) throws IOException;
+    }
+
+    /**
+     * Décodage incrémental du tableau "results" d'un corps reçu par morceaux. Les tokens d'un élément sont copiés
+     * dans un {@link TokenBuffer} jusqu'à sa fin, puis relus par le même décodeur que le corps complet ; les autres
+     * champs de l'objet racine sont sautés. Après le dernier élément utile (fin de "results" ou
+     * {@code maxResults} atteint), le reste du corps n'est plus analysé.
+     */
+    static final class ResultsFeeder<T> {
+        private final ElementReader<T> reader;
+        private final int maxResults;
+        private final JsonParser parser;
+        private final List<T> results = new ArrayList<>();
+        private int depth;
+        private boolean inResults;
+        private boolean done;
+        private String rootField;
+        private TokenBuffer element;
+        private long parseNanos;
+
+        private ResultsFeeder(ElementReader<T> reader, int maxResults) {
+            this.reader = reader;
+            this.maxResults = maxResults;
+            try {
+                this.parser = JSON_FACTORY.createNonBlockingByteArrayParser();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.done = maxResults <= 0;
+        }
+
+        /**
+         * Analyse un morceau du corps ; les éléments complets sont décodés immédiatement.
+         */
+        void feed(byte[] bytes, int offset, int length) throws IOException {
+            if (done) {
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                ((ByteArrayFeeder) parser.getNonBlockingInputFeeder()).feedInput(bytes, offset, offset + length);
+                drain();
+            } finally {
+                parseNanos += System.nanoTime() - start;
+            }
+        }
+
+        /**
+         * Fin du corps : les éléments décodés, ou une erreur si le JSON est tronqué avant la fin de "results".
+         */
+        List<T> finish() throws IOException {
+            if (!done) {
+                long start = System.nanoTime();
+                try {
+                    ((ByteArrayFeeder) parser.getNonBlockingInputFeeder()).endOfInput();
+                    drain();
+                } finally {
+                    parseNanos += System.nanoTime() - start;
+                }
+            }
+            parser.close();
+            return results;
+        }
+
+        /**
+         * Vrai quand la suite du corps ne peut plus rien apporter.
+         */
+        boolean isDone() {
+            return done;
+        }
+
+        /**
+         * Temps passé à analyser et décoder le corps, hors attente du réseau.
+         */
+        long parseNanos() {
+            return parseNanos;
+        }
+
+        private void drain() throws IOException {
+            JsonToken token;
+            while (!done && (token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                onToken(token);
+            }
+        }
+
+        private void onToken(JsonToken token) throws IOException {
+            if (element != null) {
+                element.copyCurrentEvent(parser);
+            }
+            if (token.isStructStart()) {
+                if (depth == 0 && token != JsonToken.START_OBJECT) {
+                    // Racine autre qu'un objet : pas de "results"
+                    done = true;
+                    return;
+                }
+                if (depth == 1 && "results".equals(rootField) && token == JsonToken.START_ARRAY) {
+                    inResults = true;
+                } else if (depth == 2 && inResults && token == JsonToken.START_OBJECT) {
+                    element = new TokenBuffer(parser, null);
+                    element.copyCurrentEvent(parser);
+                }
+                depth++;
+            } else if (token.isStructEnd()) {
+                depth--;
+                if (depth == 2 && element != null) {
+                    decodeElement();
+                } else if (depth == 1 && inResults) {
+                    done = true;
+                }
+            } else if (token == JsonToken.FIELD_NAME && depth == 1) {
+                rootField = parser.currentName();
+            } else if (depth == 0) {
+                done = true;
+            }
+        }
+
+        private void decodeElement() throws IOException {
+            try (JsonParser elementParser = element.asParser()) {
+                elementParser.nextToken();
+                results.add(reader.read(elementParser));
+            }
+            element = null;
+            if (results.size() >= maxResults) {
+                done = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.formation.airquality.openaq;
+
+/**
+ * Paramètre mesuré par un capteur OpenAQ (nom déjà résolu : name, puis displayName, puis id).
+ */
+public record SensorParameter(String name, String units) {
+}
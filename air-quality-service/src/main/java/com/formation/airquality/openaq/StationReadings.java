@@ -0,0 +1,9 @@
+package com.formation.airquality.openaq;
+
+import java.util.List;
+
+/**
+ * Entrée du cache partagé par station : description de la location et ses dernières mesures.
+ */
+public record StationReadings(OpenAqLocation location, List<LatestMeasurement> latest) {
+}
@@ -0,0 +1,236 @@
+package com.formation.airquality.openaq;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Disjoncteur et bulkhead autour des appels OpenAQ.
+ *
+ * <p>Le disjoncteur observe les derniers appels (fenêtre glissante en nombre d'appels) : au-delà du taux d'échec
+ * configuré, il s'ouvre et les appels échouent immédiatement avec {@link UpstreamUnavailableException}, au lieu
+ * d'attendre chacun leur timeout. Après {@code open-duration}, quelques appels d'essai décident de la refermeture.
+ * Un appel trop lent compte comme un échec, y compris s'il est annulé par le timeout ou l'échéance de la requête.
+ *
+ * <p>Le bulkhead borne le nombre d'appels OpenAQ simultanés ; au-delà, l'appel est refusé sans attente.
+ */
+@Component
+public class UpstreamCircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final boolean enabled;
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final int halfOpenCalls;
+    private final Semaphore bulkhead;
+    private final int maxConcurrentCalls;
+
+    private final Counter rejectedOpen;
+    private final Counter rejectedBulkhead;
+
+    // État protégé par le moniteur de l'instance ; generation change à chaque transition
+    // pour ignorer le résultat des appels démarrés dans un état précédent
+    private final boolean[] window;
+    private int windowIndex;
+    private int windowCalls;
+    private int windowFailures;
+    private State state = State.CLOSED;
+    private long generation;
+    private long openedAtNanos;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+
+    public UpstreamCircuitBreaker(MeterRegistry meterRegistry,
+                                  @Value("${airquality.circuit-breaker.enabled:true}") boolean enabled,
+                                  @Value("${airquality.circuit-breaker.failure-rate-threshold:50}") double failureRateThreshold,
+                                  @Value("${airquality.circuit-breaker.sliding-window:20}") int slidingWindow,
+                                  @Value("${airquality.circuit-breaker.minimum-calls:10}") int minimumCalls,
+                                  @Value("${airquality.circuit-breaker.slow-call-threshold:2s}") Duration slowCallThreshold,
+                                  @Value("${airquality.circuit-breaker.open-duration:30s}") Duration openDuration,
+                                  @Value("${airquality.circuit-breaker.half-open-calls:3}") int halfOpenCalls,
+                                  @Value("${airquality.bulkhead.max-concurrent-calls:32}") int maxConcurrentCalls) {
+        this.enabled = enabled;
+        this.failureRateThreshold = failureRateThreshold;
+        this.window = new boolean[Math.max(1, slidingWindow)];
+        this.minimumCalls = Math.min(window.length, Math.max(1, minimumCalls));
+        this.slowCallNanos = slowCallThreshold.toNanos();
+        this.openNanos = openDuration.toNanos();
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+        this.maxConcurrentCalls = Math.max(1, maxConcurrentCalls);
+        this.bulkhead = new Semaphore(this.maxConcurrentCalls);
+
+        for (State value : State.values()) {
+            Gauge.builder("airquality.circuit.state", this, breaker -> breaker.state() == value ? 1 : 0)
+                    .description("État du disjoncteur OpenAQ (1 pour l'état courant)")
+                    .tag("state", value.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry);
+        }
+        this.rejectedOpen = rejectedCounter("circuit_open", meterRegistry);
+        this.rejectedBulkhead = rejectedCounter("bulkhead_full", meterRegistry);
+        Gauge.builder("airquality.bulkhead.active", bulkhead, permits -> this.maxConcurrentCalls - permits.availablePermits())
+                .description("Appels OpenAQ en cours sous le bulkhead")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Exécute l'appel s'il est autorisé par le disjoncteur et le bulkhead, et enregistre son résultat.
+     */
+    public <T> Mono<T> call(Mono<T> call) {
+        if (!enabled) {
+            return call;
+        }
+        return Mono.defer(() -> {
+            if (!bulkhead.tryAcquire()) {
+                rejectedBulkhead.increment();
+                return Mono.error(new UpstreamUnavailableException("OpenAQ bulkhead full"));
+            }
+            long permission = tryAcquirePermission();
+            if (permission < 0) {
+                bulkhead.release();
+                rejectedOpen.increment();
+                return Mono.error(new UpstreamUnavailableException("OpenAQ circuit breaker open"));
+            }
+
+            long start = System.nanoTime();
+            AtomicBoolean recorded = new AtomicBoolean();
+            return call
+                    .doOnSuccess(value -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            onOutcome(permission, System.nanoTime() - start >= slowCallNanos);
+                        }
+                    })
+                    .doOnError(error -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            if (isFailure(error)) {
+                                onOutcome(permission, true);
+                            } else {
+                                onIgnored(permission);
+                            }
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        // Annulé par un timeout ou l'échéance de la requête après le seuil de lenteur : échec ;
+                        // annulé plus tôt (take(), doublon perdant) : sans signification
+                        if (recorded.compareAndSet(false, true)) {
+                            if (System.nanoTime() - start >= slowCallNanos) {
+                                onOutcome(permission, true);
+                            } else {
+                                onIgnored(permission);
+                            }
+                        }
+                    })
+                    .doFinally(signal -> bulkhead.release());
+        });
+    }
+
+    synchronized State state() {
+        if (state == State.OPEN && System.nanoTime() - openedAtNanos >= openNanos) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * Génération de l'état qui a autorisé l'appel, ou -1 si l'appel est refusé.
+     */
+    private synchronized long tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAtNanos < openNanos) {
+                return -1;
+            }
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits == 0) {
+                return -1;
+            }
+            halfOpenPermits--;
+        }
+        return generation;
+    }
+
+    private synchronized void onOutcome(long permission, boolean failure) {
+        if (permission != generation) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            if (failure) {
+                transition(State.OPEN);
+            } else if (++halfOpenSuccesses >= halfOpenCalls) {
+                transition(State.CLOSED);
+            }
+            return;
+        }
+
+        if (windowCalls == window.length) {
+            if (window[windowIndex]) {
+                windowFailures--;
+            }
+        } else {
+            windowCalls++;
+        }
+        window[windowIndex] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+
+        if (windowCalls >= minimumCalls && windowFailures * 100.0 / windowCalls >= failureRateThreshold) {
+            transition(State.OPEN);
+        }
+    }
+
+    private synchronized void onIgnored(long permission) {
+        // Un appel d'essai sans résultat exploitable rend sa place
+        if (permission == generation && state == State.HALF_OPEN) {
+            halfOpenPermits++;
+        }
+    }
+
+    private void transition(State next) {
+        state = next;
+        generation++;
+        switch (next) {
+            case OPEN -> openedAtNanos = System.nanoTime();
+            case HALF_OPEN -> {
+                halfOpenPermits = halfOpenCalls;
+                halfOpenSuccesses = 0;
+            }
+            case CLOSED -> {
+                windowIndex = 0;
+                windowCalls = 0;
+                windowFailures = 0;
+            }
+        }
+    }
+
+    /**
+     * Les réponses 4xx (hors 429) signalent une requête invalide, pas un OpenAQ dégradé.
+     */
+    private static boolean isFailure(Throwable error) {
+        if (error instanceof WebClientResponseException response) {
+            int status = response.getStatusCode().value();
+            return status >= 500 || status == 429;
+        }
+        return true;
+    }
+
+    private static Counter rejectedCounter(String reason, MeterRegistry meterRegistry) {
+        return Counter.builder("airquality.circuit.rejected")
+                .description("Appels OpenAQ refusés sans être émis (circuit ouvert ou bulkhead saturé)")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,217 @@
+package com.formation.airquality.openaq;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Requêtes dupliquées ("hedging") vers OpenAQ : un appel encore sans réponse au-delà du centile observé
+ * (p95 par défaut) pour son endpoint est doublé par un second appel identique, et la première réponse gagne ;
+ * l'autre est annulée.
+ *
+ * <p>Les doublons consomment un budget alimenté par chaque appel ({@code budget-percent} doublons pour 100 appels),
+ * pour qu'un ralentissement général d'OpenAQ ne double pas la charge envoyée. Un doublon prend aussi un jeton
+ * de quota à {@link UpstreamRateLimiter}, sans attendre, et seulement au-delà de la réserve des requêtes utilisateur.
+ */
+@Component
+public class UpstreamHedging {
+
+    // Fréquence de relecture du centile dans l'histogramme, et budget en millièmes de doublon
+    private static final long THRESHOLD_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long MAX_BUDGET = 10_000;
+    private static final long HEDGE_COST = 1_000;
+
+    private final MeterRegistry meterRegistry;
+    private final UpstreamRateLimiter rateLimiter;
+    private final boolean enabled;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final long minSamples;
+    private final long budgetPerCall;
+    private final AtomicLong budget = new AtomicLong(MAX_BUDGET);
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    public UpstreamHedging(MeterRegistry meterRegistry,
+                           UpstreamRateLimiter rateLimiter,
+                           @Value("${airquality.hedging.enabled:false}") boolean enabled,
+                           @Value("${airquality.hedging.percentile:0.95}") double percentile,
+                           @Value("${airquality.hedging.min-delay:20ms}") Duration minDelay,
+                           @Value("${airquality.hedging.min-samples:50}") long minSamples,
+                           @Value("${airquality.hedging.budget-percent:10}") double budgetPercent) {
+        this.meterRegistry = meterRegistry;
+        this.rateLimiter = rateLimiter;
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minDelayNanos = minDelay.toNanos();
+        this.minSamples = minSamples;
+        this.budgetPerCall = Math.round(budgetPercent * 10);
+    }
+
+    /**
+     * Exécute l'appel, doublé s'il dépasse le centile observé. {@code call} doit produire un appel indépendant
+     * à chaque invocation.
+     */
+    public <T> Mono<T> call(String endpoint, Supplier<Mono<T>> call) {
+        Endpoint stats = endpoints.computeIfAbsent(endpoint, this::register);
+        return Mono.defer(() -> {
+            refill();
+            long delayNanos = enabled ? stats.hedgeDelayNanos() : -1;
+            if (delayNanos < 0) {
+                return stats.timed(call.get());
+            }
+
+            // Échec de l'appel principal : propagé tout de suite si le doublon n'est pas encore parti, ou si l'erreur
+            // ne se corrige pas en réessayant (4xx) ; sinon le doublon déjà émis garde sa chance
+            AtomicReference<Throwable> primaryError = new AtomicReference<>();
+            AtomicBoolean hedgeSent = new AtomicBoolean();
+            Sinks.One<Boolean> abandon = Sinks.one();
+            Mono<T> primary = stats.timed(call.get()).doOnError(error -> {
+                primaryError.set(error);
+                if (!hedgeSent.get() || !isRetryable(error)) {
+                    abandon.tryEmitValue(true);
+                }
+            });
+            Mono<T> hedge = Mono.delay(Duration.ofNanos(delayNanos))
+                    .flatMap(tick -> {
+                        if (!tryAcquireBudget() || !rateLimiter.tryAcquireExtra()) {
+                            stats.throttled.increment();
+                            return Mono.<T>empty();
+                        }
+                        hedgeSent.set(true);
+                        stats.sent.increment();
+                        return stats.timed(call.get()).doOnNext(value -> stats.won.increment());
+                    })
+                    .takeUntilOther(abandon.asMono());
+
+            return Mono.firstWithValue(primary, hedge)
+                    .onErrorMap(e -> primaryError.get() != null ? primaryError.get() : e);
+        });
+    }
+
+    /**
+     * Un doublon peut réussir là où l'appel principal a échoué (5xx, 429, connexion) ; pas pour une requête
+     * refusée par OpenAQ (4xx).
+     */
+    private static boolean isRetryable(Throwable error) {
+        if (error instanceof WebClientResponseException response) {
+            int status = response.getStatusCode().value();
+            return status >= 500 || status == 429;
+        }
+        return true;
+    }
+
+    private Endpoint register(String endpoint) {
+        Timer latency = Timer.builder("airquality.upstream.latency")
+                .description("Latence des appels OpenAQ par endpoint, y compris les doublons")
+                .tag("endpoint", endpoint)
+                .publishPercentiles(percentile)
+                .register(meterRegistry);
+        return new Endpoint(latency, percentileIndex(latency),
+                hedgeCounter(endpoint, "sent"), hedgeCounter(endpoint, "won"), hedgeCounter(endpoint, "throttled"));
+    }
+
+    /**
+     * Position du centile configuré parmi ceux publiés par le timer, lue une fois à l'enregistrement ; -1 s'il
+     * n'en publie aucun. Le plus proche est retenu : un filtre de configuration a pu en ajouter d'autres.
+     */
+    private int percentileIndex(Timer latency) {
+        ValueAtPercentile[] values = latency.takeSnapshot().percentileValues();
+        int index = -1;
+        for (int i = 0; i < values.length; i++) {
+            if (index < 0 || Math.abs(values[i].percentile() - percentile)
+                    < Math.abs(values[index].percentile() - percentile)) {
+                index = i;
+            }
+        }
+        return index;
+    }
+
+    private Counter hedgeCounter(String endpoint, String outcome) {
+        return Counter.builder("airquality.hedging.requests")
+                .description("Appels OpenAQ dupliqués (sent), doublons arrivés en premier (won) ou refusés faute de budget (throttled)")
+                .tag("endpoint", endpoint)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private void refill() {
+        budget.accumulateAndGet(budgetPerCall, (current, add) -> Math.min(MAX_BUDGET, current + add));
+    }
+
+    private boolean tryAcquireBudget() {
+        long current;
+        do {
+            current = budget.get();
+            if (current < HEDGE_COST) {
+                return false;
+            }
+        } while (!budget.compareAndSet(current, current - HEDGE_COST));
+        return true;
+    }
+
+    private final class Endpoint {
+        private final Timer latency;
+        private final int percentileIndex;
+        private final Counter sent;
+        private final Counter won;
+        private final Counter throttled;
+        private volatile long thresholdNanos = -1;
+        private volatile long thresholdReadAt = System.nanoTime() - THRESHOLD_REFRESH_NANOS;
+
+        private Endpoint(Timer latency, int percentileIndex, Counter sent, Counter won, Counter throttled) {
+            this.latency = latency;
+            this.percentileIndex = percentileIndex;
+            this.sent = sent;
+            this.won = won;
+            this.throttled = throttled;
+        }
+
+        /**
+         * Délai avant doublon, ou -1 tant que l'histogramme n'a pas assez d'échantillons.
+         */
+        long hedgeDelayNanos() {
+            long now = System.nanoTime();
+            if (now - thresholdReadAt >= THRESHOLD_REFRESH_NANOS) {
+                thresholdReadAt = now;
+                thresholdNanos = readThreshold();
+            }
+            return thresholdNanos < 0 ? -1 : Math.max(minDelayNanos, thresholdNanos);
+        }
+
+        private long readThreshold() {
+            var snapshot = latency.takeSnapshot();
+            ValueAtPercentile[] values = snapshot.percentileValues();
+            if (snapshot.count() < minSamples || percentileIndex < 0 || percentileIndex >= values.length) {
+                return -1;
+            }
+            return (long) values[percentileIndex].value(TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Mesure les appels terminés et ceux annulés (perdants d'un doublon, échéance dépassée) : ces derniers
+         * sont des bornes basses, mais les ignorer ferait baisser le centile et multiplierait les doublons.
+         */
+        <T> Mono<T> timed(Mono<T> call) {
+            return Mono.defer(() -> {
+                long start = System.nanoTime();
+                return call.doOnSuccess(value -> latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                        .doOnCancel(() -> latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+            });
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package com.formation.airquality.openaq;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Régulateur de débit côté client pour le quota OpenAQ, partagé par toutes les requêtes de l'instance.
+ *
+ * <ul>
+ *   <li>seau de jetons ({@code requests-per-minute}, rafale {@code burst}) recalé sur les en-têtes
+ *       {@code x-ratelimit-remaining} / {@code x-ratelimit-reset} renvoyés par OpenAQ, qui reflètent la
+ *       consommation de toutes les instances partageant la clé ;</li>
+ *   <li>limite de concurrence AIMD : +1 par fenêtre d'appels réussis, divisée sur 429 ou 5xx ;
+ *       un 429 suspend aussi les appels jusqu'à {@code Retry-After} ;</li>
+ *   <li>file d'attente à deux priorités : les requêtes utilisateur passent avant le préchargement, qui laisse
+ *       en plus une réserve de jetons ({@code background-reserve}) aux requêtes utilisateur.</li>
+ * </ul>
+ *
+ * <p>Une requête /city à froid coûte jusqu'à 21 jetons (1 /locations + 20 /latest) : la rafale par défaut (50)
+ * en absorbe deux simultanées avec de la marge, le reste du quota se reconstitue à {@code requests-per-minute}.
+ *
+ * <p>La priorité est lue dans le contexte Reactor ({@link #background()}) ; par défaut un appel est interactif.
+ * L'attente est bornée par les timeouts et l'échéance de l'appelant ; une file pleine refuse l'appel avec
+ * {@link UpstreamUnavailableException}.
+ */
+@Component
+public class UpstreamRateLimiter {
+
+    public enum Priority { INTERACTIVE, BACKGROUND }
+
+    private static final String PRIORITY_KEY = UpstreamRateLimiter.class.getName() + ".priority";
+    // Une seule réduction de la limite par intervalle : les 429 d'une même rafale ne la font pas s'effondrer
+    private static final long DECREASE_COOLDOWN_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long DEFAULT_RETRY_AFTER_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final boolean enabled;
+    private final double capacity;
+    private final double tokensPerNano;
+    private final double reserveTokens;
+    private final double minConcurrency;
+    private final double maxConcurrency;
+    private final double decreaseFactor;
+    private final int maxQueued;
+
+    private final Timer interactiveWait;
+    private final Timer backgroundWait;
+    private final Counter rejected;
+    private final Counter backoff429;
+    private final Counter backoff5xx;
+
+    // État protégé par le moniteur de l'instance
+    private final Deque<Waiter> interactive = new ArrayDeque<>();
+    private final Deque<Waiter> background = new ArrayDeque<>();
+    private double tokens;
+    private long refilledAtNanos = System.nanoTime();
+    private double concurrencyLimit;
+    private int inFlight;
+    private long pausedUntilNanos = refilledAtNanos;
+    private long decreasedAtNanos = refilledAtNanos - DECREASE_COOLDOWN_NANOS;
+    private long wakeupAtNanos = Long.MAX_VALUE;
+
+    public UpstreamRateLimiter(MeterRegistry meterRegistry,
+                               @Value("${openaq.rate-limit.enabled:true}") boolean enabled,
+                               @Value("${openaq.rate-limit.requests-per-minute:60}") double requestsPerMinute,
+                               @Value("${openaq.rate-limit.burst:50}") int burst,
+                               @Value("${openaq.rate-limit.background-reserve:0.25}") double backgroundReserve,
+                               @Value("${openaq.rate-limit.min-concurrency:1}") int minConcurrency,
+                               @Value("${openaq.rate-limit.max-concurrency:16}") int maxConcurrency,
+                               @Value("${openaq.rate-limit.decrease-factor:0.5}") double decreaseFactor,
+                               @Value("${openaq.rate-limit.max-queued:200}") int maxQueued) {
+        this.enabled = enabled;
+        this.capacity = Math.max(1, burst);
+        this.tokensPerNano = requestsPerMinute / TimeUnit.MINUTES.toNanos(1);
+        this.reserveTokens = capacity * Math.min(1.0, Math.max(0.0, backgroundReserve));
+        this.minConcurrency = Math.max(1, minConcurrency);
+        this.maxConcurrency = Math.max(this.minConcurrency, maxConcurrency);
+        this.decreaseFactor = Math.min(1.0, Math.max(0.1, decreaseFactor));
+        this.maxQueued = Math.max(0, maxQueued);
+        this.tokens = capacity;
+        this.concurrencyLimit = this.maxConcurrency;
+
+        Gauge.builder("airquality.ratelimit.tokens", this, UpstreamRateLimiter::availableTokens)
+                .description("Jetons disponibles pour les appels OpenAQ")
+                .register(meterRegistry);
+        Gauge.builder("airquality.ratelimit.concurrency.limit", this, UpstreamRateLimiter::currentLimit)
+                .description("Limite de concurrence AIMD des appels OpenAQ")
+                .register(meterRegistry);
+        for (Priority priority : Priority.values()) {
+            Gauge.builder("airquality.ratelimit.queued", this, limiter -> limiter.queued(priority))
+                    .description("Appels OpenAQ en attente d'un jeton ou d'une place")
+                    .tag("priority", tag(priority))
+                    .register(meterRegistry);
+        }
+        this.interactiveWait = waitTimer(Priority.INTERACTIVE, meterRegistry);
+        this.backgroundWait = waitTimer(Priority.BACKGROUND, meterRegistry);
+        this.rejected = Counter.builder("airquality.ratelimit.rejected")
+                .description("Appels OpenAQ refusés, file d'attente du régulateur pleine")
+                .register(meterRegistry);
+        this.backoff429 = backoffCounter("429", meterRegistry);
+        this.backoff5xx = backoffCounter("5xx", meterRegistry);
+    }
+
+    /**
+     * Marque les appels OpenAQ émis dans ce flux comme préchargement (priorité basse).
+     */
+    public static Context background() {
+        return Context.of(PRIORITY_KEY, Priority.BACKGROUND);
+    }
+
+    /**
+     * Attend un jeton et une place de concurrence, puis exécute l'appel.
+     */
+    public <T> Mono<T> call(Mono<T> call) {
+        if (!enabled) {
+            return call;
+        }
+        return Mono.deferContextual(context -> {
+            Priority priority = context.getOrDefault(PRIORITY_KEY, Priority.INTERACTIVE);
+            long queuedAt = System.nanoTime();
+            return Mono.<Waiter>create(sink -> enqueue(new Waiter(priority, sink)))
+                    .flatMap(waiter -> {
+                        if (!waiter.started.compareAndSet(false, true)) {
+                            // Annulé entre l'attribution et la reprise : la place a déjà été rendue par cancel()
+                            return Mono.<T>empty();
+                        }
+                        (priority == Priority.BACKGROUND ? backgroundWait : interactiveWait)
+                                .record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                        return call
+                                // Refusé par le disjoncteur sans être émis : le jeton est rendu
+                                .doOnError(UpstreamUnavailableException.class, e -> refund())
+                                .doFinally(signal -> release());
+                    });
+        });
+    }
+
+    /**
+     * Jeton pour un appel supplémentaire sans attente (doublon d'un appel lent), pris seulement
+     * au-delà de la réserve laissée aux requêtes utilisateur.
+     */
+    public boolean tryAcquireExtra() {
+        if (!enabled) {
+            return true;
+        }
+        synchronized (this) {
+            long now = System.nanoTime();
+            refill(now);
+            if (now < pausedUntilNanos || tokens < 1 + reserveTokens) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+    }
+
+    /**
+     * Filtre WebClient qui lit les en-têtes de quota et le statut de chaque réponse OpenAQ, doublons compris.
+     */
+    public ExchangeFilterFunction responseObserver() {
+        return (request, next) -> next.exchange(request)
+                .doOnNext(response -> onResponse(response.statusCode(), response.headers().asHttpHeaders()));
+    }
+
+    private void enqueue(Waiter waiter) {
+        boolean full;
+        synchronized (this) {
+            full = interactive.size() + background.size() >= maxQueued;
+            if (!full) {
+                (waiter.priority == Priority.BACKGROUND ? background : interactive).addLast(waiter);
+                waiter.sink.onCancel(() -> cancel(waiter));
+            }
+        }
+        if (full) {
+            rejected.increment();
+            waiter.sink.error(new UpstreamUnavailableException("OpenAQ rate limiter queue full"));
+            return;
+        }
+        drain();
+    }
+
+    /**
+     * Abonné annulé (timeout, échéance) : retiré de la file s'il attend encore. S'il a déjà reçu sa place
+     * mais que l'appel n'a pas démarré, le succès est perdu et doFinally(release) ne s'exécutera jamais :
+     * la place et le jeton sont rendus ici.
+     */
+    private void cancel(Waiter waiter) {
+        synchronized (this) {
+            if (interactive.remove(waiter) || background.remove(waiter) || !waiter.granted
+                    || !waiter.started.compareAndSet(false, true)) {
+                return;
+            }
+            inFlight--;
+            tokens = Math.min(capacity, tokens + 1);
+        }
+        drain();
+    }
+
+    private void release() {
+        synchronized (this) {
+            inFlight--;
+        }
+        drain();
+    }
+
+    private synchronized void refund() {
+        tokens = Math.min(capacity, tokens + 1);
+    }
+
+    private void onResponse(HttpStatusCode status, HttpHeaders headers) {
+        synchronized (this) {
+            long now = System.nanoTime();
+            refill(now);
+
+            // Quota restant côté OpenAQ, consommé aussi par les autres instances
+            Long remaining = headerLong(headers, "x-ratelimit-remaining");
+            Long reset = headerLong(headers, "x-ratelimit-reset");
+            if (remaining != null) {
+                tokens = Math.min(tokens, remaining);
+                if (remaining <= 0 && reset != null) {
+                    pausedUntilNanos = Math.max(pausedUntilNanos, now + TimeUnit.SECONDS.toNanos(reset));
+                }
+            }
+
+            if (status.value() == 429) {
+                Long retryAfter = headerLong(headers, HttpHeaders.RETRY_AFTER);
+                long pauseNanos = retryAfter != null ? TimeUnit.SECONDS.toNanos(retryAfter) :
+                        reset != null ? TimeUnit.SECONDS.toNanos(reset) : DEFAULT_RETRY_AFTER_NANOS;
+                pausedUntilNanos = Math.max(pausedUntilNanos, now + pauseNanos);
+                tokens = 0;
+                decrease(now, backoff429);
+            } else if (status.is5xxServerError()) {
+                decrease(now, backoff5xx);
+            } else if (status.is2xxSuccessful()) {
+                // Augmentation additive : +1 après environ "limite" réponses réussies
+                concurrencyLimit = Math.min(maxConcurrency, concurrencyLimit + 1.0 / concurrencyLimit);
+            }
+        }
+        drain();
+    }
+
+    private void decrease(long now, Counter cause) {
+        if (now - decreasedAtNanos >= DECREASE_COOLDOWN_NANOS) {
+            decreasedAtNanos = now;
+            concurrencyLimit = Math.max(minConcurrency, concurrencyLimit * decreaseFactor);
+            cause.increment();
+        }
+    }
+
+    /**
+     * Accorde les places possibles dans l'ordre des priorités ; les appelants sont relancés hors du moniteur.
+     */
+    private void drain() {
+        List<Waiter> granted = new ArrayList<>();
+        synchronized (this) {
+            long now = System.nanoTime();
+            refill(now);
+            long retryAtNanos = Long.MAX_VALUE;
+
+            while (inFlight < (int) concurrencyLimit) {
+                Deque<Waiter> queue = !interactive.isEmpty() ? interactive : background;
+                Waiter next = queue.peekFirst();
+                if (next == null) {
+                    break;
+                }
+                if (now < pausedUntilNanos) {
+                    retryAtNanos = pausedUntilNanos;
+                    break;
+                }
+                double needed = next.priority == Priority.BACKGROUND ? 1 + reserveTokens : 1;
+                if (tokens < needed) {
+                    retryAtNanos = now + (long) Math.ceil((needed - tokens) / tokensPerNano);
+                    break;
+                }
+                queue.pollFirst();
+                tokens--;
+                inFlight++;
+                next.granted = true;
+                granted.add(next);
+            }
+
+            // Réveil quand le jeton manquant sera disponible ou la pause terminée
+            if (retryAtNanos < wakeupAtNanos) {
+                wakeupAtNanos = retryAtNanos;
+                Schedulers.parallel().schedule(this::wakeup, Math.max(0, retryAtNanos - now), TimeUnit.NANOSECONDS);
+            }
+        }
+        for (Waiter waiter : granted) {
+            waiter.sink.success(waiter);
+        }
+    }
+
+    private void wakeup() {
+        synchronized (this) {
+            wakeupAtNanos = Long.MAX_VALUE;
+        }
+        drain();
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(capacity, tokens + (now - refilledAtNanos) * tokensPerNano);
+        refilledAtNanos = now;
+    }
+
+    private synchronized double availableTokens() {
+        refill(System.nanoTime());
+        return tokens;
+    }
+
+    // Places de concurrence occupées (vérification des tests)
+    synchronized int inFlight() {
+        return inFlight;
+    }
+
+    private synchronized double currentLimit() {
+        return concurrencyLimit;
+    }
+
+    private synchronized int queued(Priority priority) {
+        return (priority == Priority.BACKGROUND ? background : interactive).size();
+    }
+
+    private static Long headerLong(HttpHeaders headers, String name) {
+        String value = headers.getFirst(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String tag(Priority priority) {
+        return priority.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static Timer waitTimer(Priority priority, MeterRegistry meterRegistry) {
+        return Timer.builder("airquality.ratelimit.wait")
+                .description("Attente d'un jeton ou d'une place avant un appel OpenAQ")
+                .tag("priority", tag(priority))
+                .register(meterRegistry);
+    }
+
+    private static Counter backoffCounter(String cause, MeterRegistry meterRegistry) {
+        return Counter.builder("airquality.ratelimit.backoff")
+                .description("Réductions multiplicatives de la limite de concurrence (429 ou 5xx)")
+                .tag("cause", cause)
+                .register(meterRegistry);
+    }
+
+    private static final class Waiter {
+        private final Priority priority;
+        private final MonoSink<Waiter> sink;
+        // Place attribuée par drain() (sous le moniteur)
+        private boolean granted;
+        // Place prise en charge, soit par l'appel qui démarre, soit par cancel() qui la rend
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        private Waiter(Priority priority, MonoSink<Waiter> sink) {
+            this.priority = priority;
+            this.sink = sink;
+        }
+    }
+}
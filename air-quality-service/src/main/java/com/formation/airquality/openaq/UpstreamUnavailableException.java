@@ -0,0 +1,17 @@
+package com.formation.airquality.openaq;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * OpenAQ indisponible : appel refusé sans être émis, circuit ouvert ou bulkhead saturé
+ * (voir {@link UpstreamCircuitBreaker}), ou aucune station n'a répondu à une requête.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class UpstreamUnavailableException extends RuntimeException {
+
+    public UpstreamUnavailableException(String message) {
+        // Levée à chaque appel tant que le circuit est ouvert : pas de pile d'appels à capturer
+        super(message, null, false, false);
+    }
+}
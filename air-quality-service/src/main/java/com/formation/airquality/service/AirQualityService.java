@@ -1,31 +1,87 @@
 package com.formation.airquality.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.formation.airquality.cache.CoalescingCache;
+import com.formation.airquality.geo.GeoMath;
+import com.formation.airquality.geo.StationSpatialIndex;
+import com.formation.airquality.history.MeasurementHistory;
+import com.formation.airquality.metrics.StageMetrics;
 import com.formation.airquality.model.AirQualityData;
+import com.formation.airquality.model.BatchRequest;
+import com.formation.airquality.model.BatchResult;
+import com.formation.airquality.model.HistorySummary;
+import com.formation.airquality.openaq.LatestMeasurement;
+import com.formation.airquality.openaq.OpenAqClient;
+import com.formation.airquality.openaq.OpenAqLocation;
+import com.formation.airquality.openaq.SensorParameter;
+import com.formation.airquality.openaq.StationReadings;
+import com.formation.airquality.openaq.UpstreamRateLimiter;
+import com.formation.airquality.openaq.UpstreamUnavailableException;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
 
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 public class AirQualityService {
     private static final Logger logger = LoggerFactory.getLogger(AirQualityService.class);
-    private final WebClient webClient;
+    private final OpenAqClient openAqClient;
+    private final StageMetrics stageMetrics;
     private final Counter apiCallCounter;
     private final Counter apiErrorCounter;
     private final Timer apiLatencyTimer;
+    private final DistributionSummary fanOutSummary;
+    private final CoalescingCache<String, List<AirQualityData>> cityResponseCache;
+    private final CoalescingCache<Integer, StationReadings> locationCache;
+    private final CitySnapshot citySnapshot;
+    private final WarmStartSnapshot warmStartSnapshot;
     private final Random random = new Random();
-
-    private final String apiKey;
+    private final AtomicInteger inFlightRequests = new AtomicInteger();
+
+    private final int fanOutConcurrency;
+    private final int batchConcurrency;
+    private final int maxTiles;
+    private final int maxRadius;
+    private final DistributionSummary tileSummary;
+    private final StationSpatialIndex spatialIndex;
+    private final MeasurementHistory measurementHistory;
+    private final boolean spatialIndexEnabled;
+    private final double snapDegrees;
+    private final int spatialLocationsLimit;
+    private final Counter spatialLocalCounter;
+    private final Counter spatialUpstreamCounter;
+    private final Counter spatialPartialCounter;
+    private final Timer tileMergeTimer;
+    private final Duration requestDeadline;
+    private final double locationsShare;
+    private final Counter deadlineDroppedLocations;
+    private final Counter deadlineDroppedStations;
+    private final Duration staleMaxAge;
+    private final Counter staleCityCounter;
+    private final Counter staleStationCounter;
+
+    // Nombre maximum de mesures renvoyées par requête
+    private static final int MAX_MEASUREMENTS = 10;
+    // Rayon maximum accepté par OpenAQ (mètres) et nombre de stations demandées par recherche
+    private static final int MAX_OPENAQ_RADIUS = 25000;
+    private static final int LOCATIONS_LIMIT = 20;
+    // Timeouts propres à chaque appel amont, en plus de l'échéance de la requête
+    private static final Duration LOCATIONS_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration LATEST_TIMEOUT = Duration.ofSeconds(5);
 
     // Coordonnées des villes françaises pour la recherche (latitude, longitude)
     private static final java.util.Map<String, double[]> CITY_COORDINATES = new java.util.HashMap<>();
@@ -72,15 +128,42 @@ public class AirQualityService {
         CITY_COORDINATES.put("Avignon", new double[]{43.9493, 4.8055});
     }
 
-    public AirQualityService(WebClient.Builder webClientBuilder,
+    public AirQualityService(OpenAqClient openAqClient,
                             MeterRegistry meterRegistry,
-                            @org.springframework.beans.factory.annotation.Value("${openaq.api.key:}") String apiKey) {
-        this.apiKey = apiKey;
-        this.webClient = webClientBuilder
-                .baseUrl("https://api.openaq.org/v3")
-                .defaultHeader("X-API-Key", apiKey)
-                .build();
-
+                            StageMetrics stageMetrics,
+                            CoalescingCache<String, List<AirQualityData>> cityResponseCache,
+                            CoalescingCache<Integer, StationReadings> locationCache,
+                            CitySnapshot citySnapshot,
+                            WarmStartSnapshot warmStartSnapshot,
+                            StationSpatialIndex spatialIndex,
+                            MeasurementHistory measurementHistory,
+                            @org.springframework.beans.factory.annotation.Value("${airquality.spatial.enabled:true}") boolean spatialIndexEnabled,
+                            @org.springframework.beans.factory.annotation.Value("${airquality.spatial.snap-degrees:0.01}") double snapDegrees,
+                            @org.springframework.beans.factory.annotation.Value("${airquality.spatial.locations-limit:100}") int spatialLocationsLimit,
+                            @org.springframework.beans.factory.annotation.Value("${openaq.fanout.concurrency:8}") int fanOutConcurrency,
+                            @org.springframework.beans.factory.annotation.Value("${airquality.batch.concurrency:8}") int batchConcurrency,
+                            @org.springframework.beans.factory.annotation.Value("${openaq.tiling.max-tiles:7}") int maxTiles,
+                            @org.springframework.beans.factory.annotation.Value("${airquality.deadline.request:5s}") Duration requestDeadline,
+                            @org.springframework.beans.factory.annotation.Value("${airquality.deadline.locations-share:0.5}") double locationsShare,
+                            @org.springframework.beans.factory.annotation.Value("${airquality.fallback.stale-max-age:6h}") Duration staleMaxAge) {
+        this.openAqClient = openAqClient;
+        this.stageMetrics = stageMetrics;
+        this.fanOutConcurrency = Math.max(1, fanOutConcurrency);
+        this.batchConcurrency = Math.max(1, batchConcurrency);
+        this.maxTiles = Math.max(1, maxTiles);
+        this.maxRadius = GeoMath.maxCoveredRadius(MAX_OPENAQ_RADIUS, this.maxTiles);
+        this.cityResponseCache = cityResponseCache;
+        this.locationCache = locationCache;
+        this.citySnapshot = citySnapshot;
+        this.warmStartSnapshot = warmStartSnapshot;
+        this.spatialIndex = spatialIndex;
+        this.measurementHistory = measurementHistory;
+        this.spatialIndexEnabled = spatialIndexEnabled;
+        this.snapDegrees = snapDegrees;
+        this.spatialLocationsLimit = Math.max(LOCATIONS_LIMIT, spatialLocationsLimit);
+        this.requestDeadline = requestDeadline;
+        this.locationsShare = Math.min(1.0, Math.max(0.0, locationsShare));
+        this.staleMaxAge = staleMaxAge;
         // Métriques personnalisées
         this.apiCallCounter = Counter.builder("airquality.api.calls")
                 .description("Nombre d'appels à l'API OpenAQ")
@@ -96,396 +179,601 @@ public class AirQualityService {
                 .description("Latence des appels API OpenAQ")
                 .tag("service", "air-quality")
                 .register(meterRegistry);
-    }
 
-    public List<AirQualityData> getLatestMeasurements(String city, String country) {
-        logger.info("Fetching air quality data for city: {}, country: {}", city, country);
-        apiCallCounter.increment();
-
-        return apiLatencyTimer.record(() -> {
-            try {
-                // Simulation de latence variable pour la formation
-                simulateLatency();
+        this.fanOutSummary = DistributionSummary.builder("airquality.api.fanout")
+                .description("Nombre d'appels /locations/{id}/latest émis par requête")
+                .baseUnit("calls")
+                .tag("service", "air-quality")
+                .register(meterRegistry);
 
-                // Récupérer les coordonnées de la ville
-                double[] coords = CITY_COORDINATES.getOrDefault(city, CITY_COORDINATES.get("Paris"));
-                double latitude = coords[0];
-                double longitude = coords[1];
-
-                // Appel à l'API OpenAQ v3 avec les coordonnées de la ville (rayon max 25km)
-                JsonNode response = webClient.get()
-                        .uri(uriBuilder -> uriBuilder
-                                .path("/locations")
-                                .queryParam("coordinates", latitude + "," + longitude)
-                                .queryParam("radius", "25000")
-                                .queryParam("limit", "20")
-                                .build())
-                        .retrieve()
-                        .bodyToMono(JsonNode.class)
-                        .timeout(Duration.ofSeconds(10))
-                        .block();
-
-                if (response != null && response.has("results")) {
-                    JsonNode results = response.get("results");
-                    List<AirQualityData> data = parseV3Results(results, city, country);
+        this.tileSummary = DistributionSummary.builder("airquality.tiling.tiles")
+                .description("Nombre de sous-requêtes de 25 km pour une recherche à grand rayon")
+                .baseUnit("tiles")
+                .tag("service", "air-quality")
+                .register(meterRegistry);
 
-                    if (data.isEmpty()) {
-                        logger.warn("No air quality data found for city: {}", city);
-                    }
+        this.tileMergeTimer = Timer.builder("airquality.tiling.merge")
+                .description("Durée de fusion et de tri des stations issues des sous-requêtes")
+                .tag("service", "air-quality")
+                .register(meterRegistry);
 
-                    return data;
-                }
+        this.spatialLocalCounter = Counter.builder("airquality.spatial.queries")
+                .description("Recherches par coordonnées résolues par l'index spatial ou par OpenAQ")
+                .tag("service", "air-quality")
+                .tag("source", "local")
+                .register(meterRegistry);
 
-                logger.warn("Empty response from OpenAQ API");
-                return new ArrayList<>();
-            } catch (Exception e) {
-                logger.error("Error fetching air quality data", e);
-                apiErrorCounter.increment();
-                throw new RuntimeException("Error fetching air quality data: " + e.getMessage());
-            }
-        });
-    }
+        this.spatialUpstreamCounter = Counter.builder("airquality.spatial.queries")
+                .description("Recherches par coordonnées résolues par l'index spatial ou par OpenAQ")
+                .tag("service", "air-quality")
+                .tag("source", "upstream")
+                .register(meterRegistry);
 
-    public List<AirQualityData> getLatestByCoordinates(double latitude, double longitude, int radius) {
-        logger.info("Fetching air quality data for coordinates: {}, {}, radius: {}", latitude, longitude, radius);
-        apiCallCounter.increment();
+        this.spatialPartialCounter = Counter.builder("airquality.spatial.queries")
+                .description("Recherches par coordonnées résolues par l'index spatial ou par OpenAQ")
+                .tag("service", "air-quality")
+                .tag("source", "partial")
+                .register(meterRegistry);
 
-        return apiLatencyTimer.record(() -> {
-            try {
-                simulateLatency();
+        this.deadlineDroppedLocations = Counter.builder("airquality.deadline.dropped")
+                .description("Appels OpenAQ abandonnés à l'échéance de la requête (recherches /locations ou stations /latest)")
+                .tag("service", "air-quality")
+                .tag("stage", "locations")
+                .register(meterRegistry);
 
-                // L'API OpenAQ limite le rayon à 25000 mètres maximum
-                int actualRadius = Math.min(radius, 25000);
-
-                // Appel à l'API OpenAQ v3 avec coordonnées et rayon
-                JsonNode response = webClient.get()
-                        .uri(uriBuilder -> uriBuilder
-                                .path("/locations")
-                                .queryParam("coordinates", latitude + "," + longitude)
-                                .queryParam("radius", String.valueOf(actualRadius))
-                                .queryParam("limit", "20")
-                                .build())
-                        .retrieve()
-                        .bodyToMono(JsonNode.class)
-                        .timeout(Duration.ofSeconds(10))
-                        .block();
-
-                if (response != null && response.has("results")) {
-                    JsonNode results = response.get("results");
-                    List<AirQualityData> data = parseV3Results(results, "Unknown", "FR");
+        this.deadlineDroppedStations = Counter.builder("airquality.deadline.dropped")
+                .description("Appels OpenAQ abandonnés à l'échéance de la requête (recherches /locations ou stations /latest)")
+                .tag("service", "air-quality")
+                .tag("stage", "latest")
+                .register(meterRegistry);
 
-                    if (data.isEmpty()) {
-                        logger.warn("No air quality data found for coordinates: {}, {}", latitude, longitude);
-                    }
+        this.staleCityCounter = Counter.builder("airquality.fallback.stale")
+                .description("Données de repli servies pendant une indisponibilité d'OpenAQ (réponse de ville ou station)")
+                .tag("service", "air-quality")
+                .tag("scope", "city")
+                .register(meterRegistry);
 
-                    return data;
-                }
+        this.staleStationCounter = Counter.builder("airquality.fallback.stale")
+                .description("Données de repli servies pendant une indisponibilité d'OpenAQ (réponse de ville ou station)")
+                .tag("service", "air-quality")
+                .tag("scope", "station")
+                .register(meterRegistry);
 
-                logger.warn("Empty response from OpenAQ API");
-                return new ArrayList<>();
-            } catch (Exception e) {
-                logger.error("Error fetching air quality data by coordinates", e);
-                apiErrorCounter.increment();
-                throw new RuntimeException("Error fetching air quality data: " + e.getMessage());
-            }
-        });
+        Gauge.builder("airquality.requests.inflight", inFlightRequests, AtomicInteger::get)
+                .description("Requêtes /city et /coordinates en cours de traitement")
+                .tag("service", "air-quality")
+                .register(meterRegistry);
     }
 
-    private List<AirQualityData> parseLocationsWithLatest(JsonNode locations, String cityName, String countryCode) {
-        List<AirQualityData> data = new ArrayList<>();
-        java.util.Set<String> seenParameters = new java.util.HashSet<>();
+    public List<AirQualityData> getLatestMeasurements(String city, String country) {
+        inFlightRequests.incrementAndGet();
+        String cityTag = cityTag(city);
+        long start = System.nanoTime();
+        try {
+            List<AirQualityData> data = latestMeasurements(city, country);
+            stageMetrics.recordMeasurements("city", cityTag, data.size());
+            return data;
+        } finally {
+            stageMetrics.recordCityRequest(cityTag, System.nanoTime() - start);
+            inFlightRequests.decrementAndGet();
+        }
+    }
 
-        for (JsonNode location : locations) {
-            try {
-                // Informations de la location
-                String locationName = location.has("name") ? location.get("name").asText() : cityName;
-                JsonNode coordinates = location.get("coordinates");
-                double latitude = coordinates != null && coordinates.has("latitude") ? coordinates.get("latitude").asDouble() : 0.0;
-                double longitude = coordinates != null && coordinates.has("longitude") ? coordinates.get("longitude").asDouble() : 0.0;
-
-                JsonNode country = location.get("country");
-                String countryName = country != null && country.has("name") ? country.get("name").asText() : countryCode;
-
-                // Récupérer les paramètres mesurés sur cette location
-                JsonNode parameters = location.get("parameters");
-                if (parameters != null && parameters.isArray()) {
-                    for (JsonNode param : parameters) {
-                        String paramId = param.has("id") ? String.valueOf(param.get("id").asInt()) : null;
-                        String paramName = param.has("name") ? param.get("name").asText() : null;
-                        String paramDisplayName = param.has("displayName") ? param.get("displayName").asText() : null;
-
-                        // Choisir le meilleur nom disponible
-                        String finalParamName = (paramDisplayName != null && !paramDisplayName.isEmpty()) ? paramDisplayName :
-                                                (paramName != null && !paramName.isEmpty()) ? paramName : paramId;
-
-                        if (finalParamName == null || seenParameters.contains(finalParamName)) continue;
-                        seenParameters.add(finalParamName);
-
-                        AirQualityData aqData = new AirQualityData();
-                        aqData.setCity(locationName);
-                        aqData.setCountry(countryName);
-                        aqData.setLatitude(latitude);
-                        aqData.setLongitude(longitude);
-                        aqData.setParameter(finalParamName);
-
-                        // Récupérer la dernière valeur mesurée
-                        double lastValue = param.has("lastValue") ? param.get("lastValue").asDouble() : 0.0;
-                        aqData.setValue(lastValue);
-
-                        // Unité
-                        String unit = param.has("units") ? param.get("units").asText() : "";
-                        aqData.setUnit(unit);
-
-                        // Date de dernière mise à jour
-                        if (param.has("lastUpdated")) {
-                            aqData.setLastUpdated(param.get("lastUpdated").asText());
-                        }
+    private List<AirQualityData> latestMeasurements(String city, String country) {
+        String resolvedCity = resolveCity(city);
+        String key = cityCacheKey(resolvedCity, country);
 
-                        // Calcul AQI
-                        aqData.setAqi(calculateAQI(finalParamName, lastValue));
-                        aqData.setQualityLevel(getQualityLevel(aqData.getAqi()));
+        // Villes préchargées en arrière-plan : réponse directe depuis la mémoire
+        List<AirQualityData> snapshot = citySnapshot.get(key);
+        if (snapshot != null) {
+            return snapshot;
+        }
+        List<AirQualityData> restored = warmStartCity(key, resolvedCity, country);
+        if (restored != null) {
+            return restored;
+        }
 
-                        data.add(aqData);
+        // Sinon (ville inconnue, préchargement désactivé ou instantané trop ancien) : appel à la demande,
+        // les requêtes concurrentes pour la même ville partagent un seul appel amont
+        try {
+            return cityResponseCache.get(key, () -> fetchLatestMeasurements(resolvedCity, country, Context.empty()));
+        } catch (UpstreamUnavailableException e) {
+            return staleCity(key, e);
+        }
+    }
 
-                        // Limiter à 10 paramètres
-                        if (data.size() >= 10) return data;
-                    }
-                }
-            } catch (Exception e) {
-                logger.warn("Error parsing location: {}", e.getMessage());
+    /**
+     * Variante non bloquante de {@link #getLatestMeasurements} (mode d'exécution "reactive").
+     */
+    public Mono<List<AirQualityData>> getLatestMeasurementsReactive(String city, String country) {
+        return trackInFlight(Mono.defer(() -> {
+            String resolvedCity = resolveCity(city);
+            String key = cityCacheKey(resolvedCity, country);
+            String cityTag = cityTag(resolvedCity);
+            long start = System.nanoTime();
+
+            List<AirQualityData> snapshot = citySnapshot.get(key);
+            if (snapshot == null) {
+                snapshot = warmStartCity(key, resolvedCity, country);
             }
-        }
+            Mono<List<AirQualityData>> data = snapshot != null ? Mono.just(snapshot) :
+                    cityResponseCache.getAsync(key, () -> fetchLatestMeasurementsReactive(resolvedCity, country))
+                            .onErrorResume(UpstreamUnavailableException.class, e -> Mono.fromCallable(() -> staleCity(key, e)));
+            return data
+                    .doOnNext(measurements -> stageMetrics.recordMeasurements("city", cityTag, measurements.size()))
+                    .doFinally(signal -> stageMetrics.recordCityRequest(cityTag, System.nanoTime() - start));
+        }));
+    }
 
+    /**
+     * Appel amont utilisé par le préchargement, en priorité basse auprès du régulateur de débit ;
+     * alimente aussi le cache des villes. Une réponse vide pour une ville connue est un échec (OpenAQ
+     * dégradé) : elle n'est pas mise en cache et l'instantané garde la valeur précédente.
+     */
+    List<AirQualityData> fetchForSnapshot(String city, String country) {
+        List<AirQualityData> data = fetchLatestMeasurements(city, country, UpstreamRateLimiter.background());
+        if (data.isEmpty()) {
+            throw new IllegalStateException("No air quality data for " + city + ", keeping the previous value");
+        }
+        cityResponseCache.put(cityCacheKey(city, country), data);
         return data;
     }
 
-    private List<AirQualityData> parseMeasurements(JsonNode measurements, String cityName, String countryCode, double targetLat, double targetLng) {
-        List<AirQualityData> data = new ArrayList<>();
-        java.util.Set<String> seenParameters = new java.util.HashSet<>();
-
-        for (JsonNode measurement : measurements) {
-            try {
-                // Extraire les informations de la mesure
-                JsonNode parameter = measurement.get("parameter");
-                if (parameter == null) continue;
+    /**
+     * Repli quand OpenAQ est indisponible (circuit ouvert, bulkhead saturé) : dernière réponse connue pour
+     * la ville, même expirée, marquée avec son âge. Sans donnée assez récente, l'appel échoue immédiatement.
+     */
+    private List<AirQualityData> staleCity(String key, UpstreamUnavailableException e) {
+        CoalescingCache.Aged<List<AirQualityData>> stale = cityResponseCache.getStale(key);
+        if (stale == null || stale.age().compareTo(staleMaxAge) > 0) {
+            throw e;
+        }
+        staleCityCounter.increment();
+        logger.warn("{}: serving stale data for {} ({}s old)", e.getMessage(), key, stale.age().toSeconds());
+        return MeasurementAssembler.markStale(stale.value(), stale.age());
+    }
 
-                String paramId = parameter.has("id") ? String.valueOf(parameter.get("id").asInt()) : null;
-                String paramName = parameter.has("name") ? parameter.get("name").asText() : null;
+    /**
+     * Après un redémarrage à chaud : réponse restaurée du disque et expirée, servie marquée stale avec son âge.
+     * Un rafraîchissement en arrière-plan (priorité basse, fusionné par le cache) la remplace ; null si la ville
+     * n'est pas dans ce cas.
+     */
+    private List<AirQualityData> warmStartCity(String key, String city, String country) {
+        CoalescingCache.Aged<List<AirQualityData>> restored = warmStartSnapshot.restoredCity(key);
+        if (restored == null) {
+            return null;
+        }
+        cityResponseCache.getAsync(key, () -> fetchLatestMeasurementsReactive(city, country))
+                .contextWrite(UpstreamRateLimiter.background())
+                .subscribe(data -> warmStartSnapshot.refreshed(key),
+                        e -> logger.warn("Warm start refresh failed for {}: {}", key, e.getMessage()));
+        return MeasurementAssembler.markStale(restored.value(), restored.age());
+    }
 
-                // Utiliser le nom si disponible, sinon l'ID
-                String finalParamName = (paramName != null && !paramName.isEmpty()) ? paramName : paramId;
-                if (finalParamName == null || finalParamName.equals("null")) continue;
+    /**
+     * Historique agrégé des stations d'une ville connue (même rayon que /city), ou null si la ville est inconnue.
+     * Ne couvre que les stations déjà interrogées par le service depuis son démarrage.
+     */
+    public HistorySummary getHistory(String city, Duration window, Duration step) {
+        String resolvedCity = resolveCity(city);
+        double[] coords = CITY_COORDINATES.get(resolvedCity);
+        if (coords == null) {
+            return null;
+        }
+        return measurementHistory.summarize(resolvedCity, coords[0], coords[1], MAX_OPENAQ_RADIUS, window, step);
+    }
 
-                // Éviter les doublons de paramètres
-                if (seenParameters.contains(finalParamName)) continue;
-                seenParameters.add(finalParamName);
+    /**
+     * Valeur du tag city des métriques : ville connue, sinon "other" (cardinalité bornée).
+     */
+    private static String cityTag(String city) {
+        String resolved = resolveCity(city);
+        return CITY_COORDINATES.containsKey(resolved) ? resolved : StageMetrics.OTHER_CITY;
+    }
 
-                AirQualityData aqData = new AirQualityData();
+    public static java.util.Set<String> knownCities() {
+        return java.util.Collections.unmodifiableSet(CITY_COORDINATES.keySet());
+    }
 
-                // Informations de localisation
-                JsonNode coordinates = measurement.get("coordinates");
-                if (coordinates != null) {
-                    aqData.setLatitude(coordinates.has("latitude") ? coordinates.get("latitude").asDouble() : targetLat);
-                    aqData.setLongitude(coordinates.has("longitude") ? coordinates.get("longitude").asDouble() : targetLng);
-                }
+    private List<AirQualityData> fetchLatestMeasurements(String city, String country, Context context) {
+        logger.info("Fetching air quality data for city: {}, country: {}", city, country);
+        apiCallCounter.increment();
 
-                JsonNode location = measurement.get("location");
-                if (location != null && location.has("name")) {
-                    aqData.setCity(location.get("name").asText());
-                } else {
-                    aqData.setCity(cityName);
-                }
+        return apiLatencyTimer.record(() -> {
+            try {
+                // Simulation de latence variable pour la formation
+                simulateLatency();
 
-                JsonNode country = measurement.get("country");
-                if (country != null && country.has("name")) {
-                    aqData.setCountry(country.get("name").asText());
-                } else {
-                    aqData.setCountry(countryCode);
-                }
+                // L'échéance ne court qu'à partir des appels amont : la latence simulée ne les pénalise pas
+                RequestDeadline deadline = RequestDeadline.after(requestDeadline);
+                return queryCity(city, country, deadline).contextWrite(context).block();
+            } catch (Exception e) {
+                logger.error("Error fetching air quality data", e);
+                apiErrorCounter.increment();
+                throw upstreamFailure(e);
+            }
+        });
+    }
 
-                // Paramètre et valeur
-                aqData.setParameter(finalParamName);
-                aqData.setValue(measurement.has("value") ? measurement.get("value").asDouble() : 0.0);
+    private Mono<List<AirQualityData>> fetchLatestMeasurementsReactive(String city, String country) {
+        return Mono.defer(() -> {
+            logger.info("Fetching air quality data for city: {}, country: {}", city, country);
+            return instrumented(simulatedDelay().then(Mono.defer(() ->
+                    queryCity(city, country, RequestDeadline.after(requestDeadline)))), "Error fetching air quality data");
+        });
+    }
 
-                // Unité
-                String unit = parameter.has("units") ? parameter.get("units").asText() : "";
-                aqData.setUnit(unit);
+    private Mono<List<AirQualityData>> queryCity(String city, String country, RequestDeadline deadline) {
+        // Récupérer les coordonnées de la ville
+        double[] coords = CITY_COORDINATES.getOrDefault(city, CITY_COORDINATES.get("Paris"));
 
-                // Date
-                JsonNode period = measurement.get("period");
-                if (period != null && period.has("datetimeTo")) {
-                    JsonNode datetimeTo = period.get("datetimeTo");
-                    if (datetimeTo.has("utc")) {
-                        aqData.setLastUpdated(datetimeTo.get("utc").asText());
+        // Appel à l'API OpenAQ v3 avec les coordonnées de la ville (rayon max 25km)
+        return queryLocations(coords[0], coords[1], MAX_OPENAQ_RADIUS, city, country, deadline)
+                .doOnNext(data -> {
+                    if (data.isEmpty()) {
+                        logger.warn("No air quality data found for city: {}", city);
                     }
-                }
+                });
+    }
 
-                // Calcul AQI
-                double value = aqData.getValue();
-                aqData.setAqi(calculateAQI(finalParamName, value));
-                aqData.setQualityLevel(getQualityLevel(aqData.getAqi()));
+    /**
+     * Plus grand rayon accepté par les requêtes par coordonnées : celui que {@code openaq.tiling.max-tiles}
+     * sous-requêtes couvrent entièrement. Un rayon plus grand serait tronqué sans le signaler.
+     */
+    public int maxRadius() {
+        return maxRadius;
+    }
 
-                data.add(aqData);
+    public List<AirQualityData> getLatestByCoordinates(double latitude, double longitude, int radius) {
+        logger.info("Fetching air quality data for coordinates: {}, {}, radius: {}", latitude, longitude, radius);
+        apiCallCounter.increment();
+        inFlightRequests.incrementAndGet();
 
-                // Limiter à 10 paramètres différents
-                if (data.size() >= 10) break;
+        try {
+            return apiLatencyTimer.record(() -> {
+                try {
+                    simulateLatency();
 
-            } catch (Exception e) {
-                logger.warn("Error parsing measurement: {}", e.getMessage());
-            }
+                    RequestDeadline deadline = RequestDeadline.after(requestDeadline);
+                    List<AirQualityData> data = queryCoordinates(latitude, longitude, radius, deadline).block();
+                    stageMetrics.recordMeasurements("coordinates", StageMetrics.NO_CITY, data.size());
+                    return data;
+                } catch (Exception e) {
+                    logger.error("Error fetching air quality data by coordinates", e);
+                    apiErrorCounter.increment();
+                    throw upstreamFailure(e);
+                }
+            });
+        } finally {
+            inFlightRequests.decrementAndGet();
         }
-
-        return data;
     }
 
-    private List<AirQualityData> parseV3Results(JsonNode results, String cityName, String countryCode) {
-        List<AirQualityData> data = new ArrayList<>();
+    /**
+     * Variante non bloquante de {@link #getLatestByCoordinates} (mode d'exécution "reactive").
+     */
+    public Mono<List<AirQualityData>> getLatestByCoordinatesReactive(double latitude, double longitude, int radius) {
+        return trackInFlight(Mono.defer(() -> {
+            logger.info("Fetching air quality data for coordinates: {}, {}, radius: {}", latitude, longitude, radius);
+            return instrumented(simulatedDelay().then(Mono.defer(() ->
+                            queryCoordinates(latitude, longitude, radius, RequestDeadline.after(requestDeadline)))),
+                    "Error fetching air quality data by coordinates")
+                    .doOnNext(data -> stageMetrics.recordMeasurements("coordinates", StageMetrics.NO_CITY, data.size()));
+        }));
+    }
 
-        for (JsonNode location : results) {
-            // Extraire les informations de localisation
-            String locationName = location.has("name") ? location.get("name").asText() : cityName;
-            JsonNode coordinates = location.get("coordinates");
-            JsonNode country = location.get("country");
+    private Mono<List<AirQualityData>> queryCoordinates(double latitude, double longitude, int radius,
+                                                        RequestDeadline deadline) {
+        return Mono.defer(() -> {
+            // Coordonnées arrondies : des positions voisines (géolocalisation navigateur) partagent la même recherche
+            double snappedLat = snap(latitude);
+            double snappedLon = snap(longitude);
+
+            // Zone déjà couverte par des recherches fraîches : réponse depuis l'index spatial, sans appel /locations ;
+            // partiellement couverte : seules les zones restantes sont demandées à OpenAQ
+            StationSpatialIndex.Lookup lookup = spatialIndexEnabled ?
+                    spatialIndex.lookup(snappedLat, snappedLon, radius) : null;
+            List<StationSpatialIndex.Zone> missing = lookup != null ? lookup.missing() : null;
+
+            // La recherche des stations dispose d'une part du temps restant, les /latest du reste
+            RequestDeadline locationsDeadline = deadline.stage(locationsShare);
+            Mono<List<OpenAqLocation>> locations;
+            if (missing != null && missing.isEmpty()) {
+                spatialLocalCounter.increment();
+                locations = Mono.just(lookup.merge(List.of(), LOCATIONS_LIMIT));
+            } else if (missing != null && missing.stream().allMatch(zone ->
+                    zone.radius() < radius && zone.radius() <= MAX_OPENAQ_RADIUS)) {
+                spatialPartialCounter.increment();
+                locations = Flux.fromIterable(missing)
+                        .flatMap(zone -> findLocations(zone.latitude(), zone.longitude(), (int) Math.ceil(zone.radius()),
+                                spatialLocationsLimit, locationsDeadline), fanOutConcurrency)
+                        .collectList()
+                        .map(found -> lookup.merge(found.stream().flatMap(List::stream).toList(), LOCATIONS_LIMIT));
+            } else if (radius <= MAX_OPENAQ_RADIUS) {
+                spatialUpstreamCounter.increment();
+                locations = findLocations(snappedLat, snappedLon, radius, spatialLocationsLimit, locationsDeadline)
+                        .map(found -> StationSpatialIndex.nearestFirst(found, snappedLat, snappedLon, radius, LOCATIONS_LIMIT));
+            } else {
+                // L'API OpenAQ limite le rayon à 25000 mètres : au-delà, la recherche est découpée en sous-disques
+                spatialUpstreamCounter.increment();
+                locations = findLocationsTiled(snappedLat, snappedLon, radius, locationsDeadline);
+            }
 
-            String countryName = country != null && country.has("name") ?
-                country.get("name").asText() : countryCode;
+            return locations
+                    .flatMap(found -> parseV3Results(found, "Unknown", "FR", deadline))
+                    .doOnNext(data -> {
+                        if (data.isEmpty()) {
+                            logger.warn("No air quality data found for coordinates: {}, {}", latitude, longitude);
+                        }
+                    });
+        });
+    }
 
-            double latitude = coordinates != null && coordinates.has("latitude") ?
-                coordinates.get("latitude").asDouble() : 0.0;
-            double longitude = coordinates != null && coordinates.has("longitude") ?
-                coordinates.get("longitude").asDouble() : 0.0;
+    private double snap(double coordinate) {
+        return snapDegrees > 0 ? Math.round(coordinate / snapDegrees) * snapDegrees : coordinate;
+    }
 
-            // Construire un mapping sensorId -> paramètre depuis le tableau sensors
-            java.util.Map<Integer, JsonNode> sensorParameterMap = new java.util.HashMap<>();
-            if (location.has("sensors") && location.get("sensors").isArray()) {
-                for (JsonNode sensor : location.get("sensors")) {
-                    int sensorId = sensor.has("id") ? sensor.get("id").asInt() : 0;
-                    if (sensorId > 0 && sensor.has("parameter")) {
-                        sensorParameterMap.put(sensorId, sensor.get("parameter"));
+    /**
+     * Appel /locations borné par l'échéance de l'étape ; le résultat alimente l'index spatial.
+     */
+    private Mono<List<OpenAqLocation>> findLocations(double latitude, double longitude, int radius, int limit,
+                                                     RequestDeadline deadline) {
+        return deadline.bound(stageMetrics.timed(StageMetrics.Stage.LOCATIONS,
+                        openAqClient.findLocations(latitude, longitude, radius, limit)), LOCATIONS_TIMEOUT)
+                .doOnError(e -> {
+                    if (deadline.expired()) {
+                        deadlineDroppedLocations.increment();
                     }
-                }
-            }
+                })
+                .doOnNext(locations -> spatialIndex.recordQuery(latitude, longitude, radius, locations, limit));
+    }
 
-            // Récupérer les données latest de cette location
-            int locationId = location.has("id") ? location.get("id").asInt() : 0;
-            if (locationId > 0) {
-                try {
-                    JsonNode latestData = webClient.get()
-                            .uri("/locations/" + locationId + "/latest")
-                            .retrieve()
-                            .bodyToMono(JsonNode.class)
-                            .timeout(Duration.ofSeconds(5))
-                            .block();
-
-                    if (latestData != null && latestData.has("results")) {
-                        for (JsonNode measurement : latestData.get("results")) {
-                            AirQualityData aqData = new AirQualityData();
-                            aqData.setCity(locationName);
-                            aqData.setCountry(countryName);
-                            aqData.setLatitude(latitude);
-                            aqData.setLongitude(longitude);
-
-                            // Récupérer le sensor ID depuis le measurement
-                            int sensorId = measurement.has("sensorsId") ? measurement.get("sensorsId").asInt() : 0;
-
-                            // Chercher le paramètre correspondant dans le mapping
-                            String paramName = "unknown";
-                            String unit = "";
-
-                            if (sensorId > 0 && sensorParameterMap.containsKey(sensorId)) {
-                                JsonNode parameter = sensorParameterMap.get(sensorId);
-
-                                // Essayer d'abord le champ "name"
-                                if (parameter.has("name") && !parameter.get("name").isNull()) {
-                                    paramName = parameter.get("name").asText();
-                                }
-                                // Essayer le champ "displayName" si disponible
-                                else if (parameter.has("displayName") && !parameter.get("displayName").isNull()) {
-                                    paramName = parameter.get("displayName").asText();
-                                }
-                                // Essayer le champ "id" en dernier recours
-                                else if (parameter.has("id") && !parameter.get("id").isNull()) {
-                                    paramName = String.valueOf(parameter.get("id").asInt());
-                                }
-
-                                // Récupérer l'unité
-                                if (parameter.has("units") && !parameter.get("units").isNull()) {
-                                    unit = parameter.get("units").asText();
-                                }
-                            }
-
-                            aqData.setParameter(paramName);
-                            aqData.setValue(measurement.has("value") ? measurement.get("value").asDouble() : 0.0);
-                            aqData.setUnit(unit);
-
-                            JsonNode datetime = measurement.get("datetime");
-                            if (datetime != null && datetime.has("utc")) {
-                                aqData.setLastUpdated(datetime.get("utc").asText());
-                            }
-
-                            // Calcul de l'AQI - paramName ne peut jamais être null ici
-                            double value = aqData.getValue();
-                            aqData.setAqi(calculateAQI(paramName, value));
-                            aqData.setQualityLevel(getQualityLevel(aqData.getAqi()));
-
-                            data.add(aqData);
-
-                            // Limiter à 10 mesures max
-                            if (data.size() >= 10) {
-                                return data;
-                            }
-                        }
+    /**
+     * Recherche à grand rayon : sous-requêtes de 25 km exécutées en parallèle, fusionnées sans doublon
+     * et classées par distance au point demandé. Échoue seulement si toutes les sous-requêtes échouent.
+     *
+     * <p>Le découpage sert la couverture, pas le volume : seules les {@code LOCATIONS_LIMIT} stations les plus
+     * proches sont gardées, comme pour un petit rayon. Il trouve des stations là où le disque central de 25 km
+     * en compte moins que la limite (zones rurales) ; ailleurs, les sous-requêtes extérieures ne changent rien.
+     */
+    private Mono<List<OpenAqLocation>> findLocationsTiled(double latitude, double longitude, int radius,
+                                                          RequestDeadline deadline) {
+        List<double[]> tiles = GeoMath.coveringTiles(latitude, longitude, radius, MAX_OPENAQ_RADIUS, maxTiles);
+        tileSummary.record(tiles.size());
+
+        AtomicReference<Throwable> lastError = new AtomicReference<>();
+        return Flux.fromIterable(tiles)
+                .flatMap(tile -> findLocations(tile[0], tile[1], MAX_OPENAQ_RADIUS, spatialLocationsLimit, deadline)
+                        .onErrorResume(e -> {
+                            logger.warn("Tile query failed at {}, {}: {}", tile[0], tile[1], e.getMessage());
+                            lastError.set(e);
+                            return Mono.empty();
+                        }), fanOutConcurrency)
+                .collectList()
+                .flatMap(results -> {
+                    if (results.isEmpty() && lastError.get() != null) {
+                        return Mono.error(lastError.get());
                     }
-                } catch (Exception e) {
-                    logger.warn("Error fetching latest data for location {}: {}", locationId, e.getMessage());
-                }
+                    return Mono.just(tileMergeTimer.record(() -> mergeTiles(results, latitude, longitude, radius)));
+                });
+    }
+
+    private static List<OpenAqLocation> mergeTiles(List<List<OpenAqLocation>> results,
+                                                   double latitude, double longitude, int radius) {
+        java.util.Map<Integer, OpenAqLocation> unique = new java.util.HashMap<>();
+        for (List<OpenAqLocation> tile : results) {
+            for (OpenAqLocation location : tile) {
+                unique.putIfAbsent(location.id(), location);
             }
         }
 
-        return data;
+        return StationSpatialIndex.nearestFirst(new ArrayList<>(unique.values()), latitude, longitude, radius,
+                LOCATIONS_LIMIT);
     }
 
-    private int calculateAQI(String parameter, double value) {
-        // Calcul simplifié de l'AQI pour la démonstration
-        if (parameter == null) {
-            return (int) Math.min(value * 2, 500);
+    private Mono<List<AirQualityData>> queryLocations(double latitude, double longitude, int radius,
+                                                      String cityName, String countryCode, RequestDeadline deadline) {
+        // Appel à l'API OpenAQ v3 avec coordonnées et rayon ; l'échéance de l'étape est calculée au démarrage
+        return Mono.defer(() -> findLocations(latitude, longitude, radius, LOCATIONS_LIMIT, deadline.stage(locationsShare)))
+                .flatMap(locations -> parseV3Results(locations, cityName, countryCode, deadline));
+    }
+
+    /**
+     * Traite un lot de villes et de points : les entrées sont résolues avec un parallélisme borné
+     * et émises dès qu'elles sont prêtes, chacune avec sa propre échéance comptée à partir de son démarrage.
+     * Les stations communes à plusieurs entrées ne sont récupérées qu'une fois grâce au cache partagé
+     * par station (les chargements concurrents sont fusionnés), et les villes en double partagent
+     * le même chargement via le cache des villes.
+     */
+    public Flux<BatchResult> getBatch(BatchRequest request) {
+        Flux<Mono<BatchResult>> cities = Flux.fromIterable(request.getCities())
+                .map(query -> {
+                    String country = query.getCountry() != null ? query.getCountry() : "FR";
+                    String resolvedCity = resolveCity(query.getCity());
+                    String key = cityCacheKey(resolvedCity, country);
+                    List<AirQualityData> snapshot = citySnapshot.get(key);
+                    Mono<List<AirQualityData>> data = snapshot != null ? Mono.just(snapshot) :
+                            cityResponseCache.getAsync(key, () -> instrumented(
+                                    Mono.defer(() -> queryCity(resolvedCity, country, RequestDeadline.after(requestDeadline))),
+                                    "Error fetching air quality data"))
+                                    .onErrorResume(UpstreamUnavailableException.class,
+                                            e -> Mono.fromCallable(() -> staleCity(key, e)));
+                    return toBatchResult("city:" + resolvedCity + ":" + country, data);
+                });
+
+        Flux<Mono<BatchResult>> points = Flux.fromIterable(request.getPoints())
+                .map(query -> toBatchResult(
+                        "point:" + query.getLatitude() + ":" + query.getLongitude() + ":" + query.getRadius(),
+                        instrumented(Mono.defer(() -> queryCoordinates(query.getLatitude(), query.getLongitude(),
+                                        query.getRadius(), RequestDeadline.after(requestDeadline))),
+                                "Error fetching air quality data by coordinates")));
+
+        // Une seule latence simulée pour tout le lot
+        return simulatedDelay()
+                .thenMany(Flux.concat(cities, points).flatMap(result -> result, batchConcurrency))
+                .doOnSubscribe(subscription -> inFlightRequests.incrementAndGet())
+                .doFinally(signal -> inFlightRequests.decrementAndGet());
+    }
+
+    private static Mono<BatchResult> toBatchResult(String key, Mono<List<AirQualityData>> data) {
+        return data
+                .map(measurements -> new BatchResult(key, measurements, null))
+                .onErrorResume(e -> Mono.just(new BatchResult(key, null, e.getMessage())));
+    }
+
+    private <T> Mono<T> trackInFlight(Mono<T> request) {
+        return request
+                .doOnSubscribe(subscription -> inFlightRequests.incrementAndGet())
+                .doFinally(signal -> inFlightRequests.decrementAndGet());
+    }
+
+    /**
+     * Mêmes métriques et même gestion d'erreur que le chemin bloquant, pour un appel réactif.
+     */
+    private <T> Mono<T> instrumented(Mono<T> call, String errorMessage) {
+        return Mono.defer(() -> {
+            apiCallCounter.increment();
+            Timer.Sample sample = Timer.start();
+            return call
+                    .onErrorMap(e -> {
+                        logger.error(errorMessage, e);
+                        apiErrorCounter.increment();
+                        return upstreamFailure(e);
+                    })
+                    .doFinally(signal -> sample.stop(apiLatencyTimer));
+        });
+    }
+
+    /**
+     * Erreur générique, sauf pour un refus du disjoncteur qui reste identifiable (repli, réponse 503).
+     */
+    private static RuntimeException upstreamFailure(Throwable e) {
+        if (e instanceof UpstreamUnavailableException unavailable) {
+            return unavailable;
         }
+        return new RuntimeException("Error fetching air quality data: " + e.getMessage());
+    }
 
-        switch (parameter.toLowerCase()) {
-            case "pm25":
-                if (value <= 12) return 50;
-                if (value <= 35.4) return 100;
-                if (value <= 55.4) return 150;
-                if (value <= 150.4) return 200;
-                if (value <= 250.4) return 300;
-                return 500;
-            case "pm10":
-                if (value <= 54) return 50;
-                if (value <= 154) return 100;
-                if (value <= 254) return 150;
-                if (value <= 354) return 200;
-                if (value <= 424) return 300;
-                return 500;
-            default:
-                return (int) Math.min(value * 2, 500);
+    /**
+     * Retrouve le nom canonique d'une ville connue sans tenir compte de la casse ("paris" -> "Paris").
+     */
+    public static String resolveCity(String city) {
+        String trimmed = city.trim();
+        if (CITY_COORDINATES.containsKey(trimmed)) {
+            return trimmed;
         }
+        for (String known : CITY_COORDINATES.keySet()) {
+            if (known.equalsIgnoreCase(trimmed)) {
+                return known;
+            }
+        }
+        return trimmed;
+    }
+
+    /**
+     * Clé d'une ville résolue par {@link #resolveCity} dans les caches par ville.
+     */
+    public static String cityCacheKey(String city, String country) {
+        return city.toLowerCase(Locale.ROOT) + "|" + country.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private Mono<List<AirQualityData>> parseV3Results(List<OpenAqLocation> locations, String cityName, String countryCode,
+                                                      RequestDeadline deadline) {
+        // Fan-out non bloquant vers /locations/{id}/latest : flatMapSequential conserve l'ordre
+        // des locations (les "10 premières mesures" restent déterministes) et take() annule
+        // les appels encore en vol dès que le plafond est atteint.
+        // Les stations déjà connues sont servies par le cache partagé entre villes et coordonnées ;
+        // celles encore attendues à l'échéance sont omises plutôt que de faire échouer la réponse.
+        // Si OpenAQ refuse tous les appels sans qu'aucune donnée de repli n'existe, la requête échoue ; de même
+        // si aucune station n'a répondu (échecs, échéance) : une liste vide ne doit pas être mise en cache.
+        return Mono.defer(() -> {
+            AtomicInteger fanOutCalls = new AtomicInteger();
+            AtomicInteger failedStations = new AtomicInteger();
+            AtomicReference<UpstreamUnavailableException> rejected = new AtomicReference<>();
+            return Flux.fromIterable(locations)
+                    .filter(location -> location.id() > 0)
+                    .flatMapSequential(location -> getStationData(location, fanOutCalls, deadline, cityName, countryCode,
+                            rejected, failedStations), fanOutConcurrency)
+                    .flatMapIterable(data -> data)
+                    .take(MAX_MEASUREMENTS)
+                    .collectList()
+                    .<List<AirQualityData>>map(List::copyOf)
+                    .flatMap(data -> {
+                        if (data.isEmpty() && rejected.get() != null) {
+                            return Mono.<List<AirQualityData>>error(rejected.get());
+                        }
+                        if (data.isEmpty() && failedStations.get() > 0) {
+                            return Mono.<List<AirQualityData>>error(new UpstreamUnavailableException(
+                                    "No OpenAQ station answered (" + failedStations.get() + " failed)"));
+                        }
+                        return Mono.just(data);
+                    })
+                    .doOnSuccess(data -> fanOutSummary.record(fanOutCalls.get()));
+        });
+    }
+
+    private Mono<List<AirQualityData>> getStationData(OpenAqLocation location, AtomicInteger fanOutCalls,
+                                                      RequestDeadline deadline, String cityName, String countryCode,
+                                                      AtomicReference<UpstreamUnavailableException> rejected,
+                                                      AtomicInteger failedStations) {
+        // L'échéance s'applique à l'attente de cette requête : le chargement partagé se poursuit pour le cache
+        return deadline.bound(locationCache.getAsync(location.id(), () -> fetchStationReadings(location, fanOutCalls)),
+                        LATEST_TIMEOUT)
+                .map(readings -> {
+                    long start = System.nanoTime();
+                    List<AirQualityData> data = MeasurementAssembler.toAirQualityData(readings, cityName, countryCode);
+                    stageMetrics.record(StageMetrics.Stage.ASSEMBLY, System.nanoTime() - start);
+                    return data;
+                })
+                .onErrorResume(e -> {
+                    if (e instanceof UpstreamUnavailableException unavailable) {
+                        // Appel refusé par le disjoncteur : dernières mesures connues de la station, si assez récentes
+                        rejected.set(unavailable);
+                        CoalescingCache.Aged<StationReadings> stale = locationCache.getStale(location.id());
+                        if (stale == null || stale.age().compareTo(staleMaxAge) > 0) {
+                            return Mono.empty();
+                        }
+                        staleStationCounter.increment();
+                        return Mono.just(MeasurementAssembler.markStale(
+                                MeasurementAssembler.toAirQualityData(stale.value(), cityName, countryCode), stale.age()));
+                    }
+                    failedStations.incrementAndGet();
+                    if (deadline.expired()) {
+                        deadlineDroppedStations.increment();
+                        logger.debug("Dropping location {} still pending at the request deadline", location.id());
+                    } else {
+                        logger.warn("Error fetching latest data for location {}: {}", location.id(), e.getMessage());
+                    }
+                    return Mono.empty();
+                });
     }
 
-    private String getQualityLevel(int aqi) {
-        if (aqi <= 50) return "Bon";
-        if (aqi <= 100) return "Moyen";
-        if (aqi <= 150) return "Dégradé";
-        if (aqi <= 200) return "Mauvais";
-        if (aqi <= 300) return "Très mauvais";
-        return "Extrême";
+    private Mono<StationReadings> fetchStationReadings(OpenAqLocation location, AtomicInteger fanOutCalls) {
+        return Mono.defer(() -> {
+            fanOutCalls.incrementAndGet();
+            // Une station ne fournit jamais plus de mesures que le plafond d'une réponse
+            return stageMetrics.timed(StageMetrics.Stage.LATEST, openAqClient.fetchLatest(location.id(), MAX_MEASUREMENTS))
+                    .timeout(LATEST_TIMEOUT)
+                    .map(latest -> new StationReadings(location, List.copyOf(latest)))
+                    .doOnNext(measurementHistory::record);
+        });
     }
 
     private void simulateLatency() {
         // Simulation de latence variable (100-1500ms) pour rendre l'observabilité intéressante
+        long start = System.nanoTime();
         try {
             Thread.sleep(100 + random.nextInt(1400));
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
+        } finally {
+            stageMetrics.record(StageMetrics.Stage.SIMULATED_LATENCY, System.nanoTime() - start);
         }
     }
+
+    private Mono<Long> simulatedDelay() {
+        // Même latence simulée que simulateLatency(), sans bloquer de thread
+        return stageMetrics.timed(StageMetrics.Stage.SIMULATED_LATENCY,
+                Mono.defer(() -> Mono.delay(Duration.ofMillis(100 + random.nextInt(1400)))));
+    }
 }
@@ -0,0 +1,45 @@
+package com.formation.airquality.service;
+
+/**
+ * Calcul simplifié de l'indice de qualité de l'air (AQI) et du niveau associé.
+ */
+public final class AqiCalculator {
+
+    private AqiCalculator() {
+    }
+
+    public static int calculateAQI(String parameter, double value) {
+        // Calcul simplifié de l'AQI pour la démonstration
+        if (parameter == null) {
+            return (int) Math.min(value * 2, 500);
+        }
+
+        switch (parameter.toLowerCase()) {
+            case "pm25":
+                if (value <= 12) return 50;
+                if (value <= 35.4) return 100;
+                if (value <= 55.4) return 150;
+                if (value <= 150.4) return 200;
+                if (value <= 250.4) return 300;
+                return 500;
+            case "pm10":
+                if (value <= 54) return 50;
+                if (value <= 154) return 100;
+                if (value <= 254) return 150;
+                if (value <= 354) return 200;
+                if (value <= 424) return 300;
+                return 500;
+            default:
+                return (int) Math.min(value * 2, 500);
+        }
+    }
+
+    public static String getQualityLevel(int aqi) {
+        if (aqi <= 50) return "Bon";
+        if (aqi <= 100) return "Moyen";
+        if (aqi <= 150) return "Dégradé";
+        if (aqi <= 200) return "Mauvais";
+        if (aqi <= 300) return "Très mauvais";
+        return "Extrême";
+    }
+}
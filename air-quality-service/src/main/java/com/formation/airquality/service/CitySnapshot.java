@@ -0,0 +1,73 @@
+package com.formation.airquality.service;
+
+import com.formation.airquality.model.AirQualityData;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Instantané immuable des données par ville, reconstruit en arrière-plan par {@link CitySnapshotRefresher}
+ * et remplacé atomiquement. Vide tant que le préchargement est désactivé.
+ */
+@Component
+public class CitySnapshot {
+
+    private final AtomicReference<State> state = new AtomicReference<>(new State(Map.of(), 0L, 0L));
+    private final long maxAgeMillis;
+
+    public CitySnapshot(MeterRegistry meterRegistry,
+                        @Value("${airquality.prefetch.max-age:1h}") Duration maxAge) {
+        this.maxAgeMillis = maxAge.toMillis();
+
+        TimeGauge.builder("airquality.snapshot.age", this, TimeUnit.MILLISECONDS, CitySnapshot::ageMillis)
+                .description("Âge de l'instantané des villes préchargées")
+                .register(meterRegistry);
+
+        TimeGauge.builder("airquality.snapshot.refresh.duration", state, TimeUnit.MILLISECONDS,
+                        s -> s.get().refreshDurationMillis())
+                .description("Durée du dernier rafraîchissement de l'instantané")
+                .register(meterRegistry);
+
+        Gauge.builder("airquality.snapshot.cities", state, s -> s.get().entries().size())
+                .description("Nombre de villes présentes dans l'instantané")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Données préchargées pour cette clé, ou null si absentes ou trop anciennes.
+     */
+    public List<AirQualityData> get(String key) {
+        Entry entry = state.get().entries().get(key);
+        if (entry == null || System.currentTimeMillis() - entry.fetchedAtMillis() > maxAgeMillis) {
+            return null;
+        }
+        return entry.data();
+    }
+
+    Map<String, Entry> entries() {
+        return state.get().entries();
+    }
+
+    void swap(Map<String, Entry> entries, long refreshDurationMillis) {
+        state.set(new State(Map.copyOf(entries), System.currentTimeMillis(), refreshDurationMillis));
+    }
+
+    private double ageMillis() {
+        long refreshedAt = state.get().refreshedAtMillis();
+        return refreshedAt == 0L ? 0.0 : System.currentTimeMillis() - refreshedAt;
+    }
+
+    record Entry(List<AirQualityData> data, long fetchedAtMillis) {
+    }
+
+    private record State(Map<String, Entry> entries, long refreshedAtMillis, long refreshDurationMillis) {
+    }
+}
@@ -0,0 +1,90 @@
+package com.formation.airquality.service;
+
+import com.formation.airquality.model.AirQualityData;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Parcourt périodiquement toutes les villes de CITY_COORDINATES et reconstruit {@link CitySnapshot}.
+ * Le parallélisme est borné et chaque ville attend un délai aléatoire (jitter) pour lisser la charge sur OpenAQ.
+ */
+@Component
+@ConditionalOnProperty(name = "airquality.prefetch.enabled", havingValue = "true")
+public class CitySnapshotRefresher {
+    private static final Logger logger = LoggerFactory.getLogger(CitySnapshotRefresher.class);
+    private static final String COUNTRY = "FR";
+
+    private final AirQualityService airQualityService;
+    private final CitySnapshot citySnapshot;
+    private final Timer refreshTimer;
+    private final int parallelism;
+    private final long jitterMillis;
+
+    public CitySnapshotRefresher(AirQualityService airQualityService,
+                                 CitySnapshot citySnapshot,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${airquality.prefetch.parallelism:4}") int parallelism,
+                                 @Value("${airquality.prefetch.jitter:2s}") Duration jitter) {
+        this.airQualityService = airQualityService;
+        this.citySnapshot = citySnapshot;
+        this.parallelism = Math.max(1, parallelism);
+        this.jitterMillis = Math.max(0, jitter.toMillis());
+
+        this.refreshTimer = Timer.builder("airquality.snapshot.refresh")
+                .description("Durée des rafraîchissements de l'instantané des villes")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${airquality.prefetch.initial-delay:5s}",
+               fixedDelayString = "${airquality.prefetch.interval:30m}")
+    public void refresh() {
+        long start = System.nanoTime();
+
+        // On repart de l'instantané courant : une ville en erreur conserve sa dernière valeur
+        Map<String, CitySnapshot.Entry> entries = new HashMap<>(citySnapshot.entries());
+        Map<String, CitySnapshot.Entry> refreshed = Flux.fromIterable(AirQualityService.knownCities())
+                .flatMap(this::refreshCity, parallelism)
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .block();
+        if (refreshed != null) {
+            entries.putAll(refreshed);
+        }
+
+        long durationNanos = System.nanoTime() - start;
+        refreshTimer.record(Duration.ofNanos(durationNanos));
+        citySnapshot.swap(entries, Duration.ofNanos(durationNanos).toMillis());
+        logger.info("City snapshot refreshed: {}/{} cities in {} ms",
+                refreshed != null ? refreshed.size() : 0, AirQualityService.knownCities().size(),
+                Duration.ofNanos(durationNanos).toMillis());
+    }
+
+    private Mono<Map.Entry<String, CitySnapshot.Entry>> refreshCity(String city) {
+        long jitter = jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis) : 0;
+        return Mono.delay(Duration.ofMillis(jitter))
+                .publishOn(Schedulers.boundedElastic())
+                .map(tick -> {
+                    List<AirQualityData> data = airQualityService.fetchForSnapshot(city, COUNTRY);
+                    return Map.entry(AirQualityService.cityCacheKey(city, COUNTRY),
+                            new CitySnapshot.Entry(data, System.currentTimeMillis()));
+                })
+                .onErrorResume(e -> {
+                    logger.warn("Snapshot refresh failed for city {}: {}", city, e.getMessage());
+                    return Mono.empty();
+                });
+    }
+}
@@ -0,0 +1,247 @@
+package com.formation.airquality.service;
+
+import com.formation.airquality.model.AirQualityData;
+import com.formation.airquality.model.CityUpdate;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Diffusion des changements de qualité de l'air par ville aux abonnés du flux /stream.
+ *
+ * <p>Chaque ville suivie a un seul rafraîchissement périodique, partagé par tous ses abonnés, démarré au premier
+ * abonnement et arrêté au dernier désabonnement ; il passe par le même chemin que /city (instantané, cache des
+ * villes). Seules les mesures dont la valeur, l'AQI ou le niveau de qualité change sont diffusées.
+ *
+ * <p>Un abonné lent ne ralentit pas les autres et ne perd aucun changement : tant qu'il n'a pas lu l'événement
+ * précédent, les suivants sont fusionnés en un seul par ville, qui garde la dernière valeur de chaque mesure
+ * (un "snapshot" reste un "snapshot"). Sa mémoire est bornée par le nombre de mesures des villes suivies.
+ */
+@Component
+public class CityUpdateBroadcaster {
+    private static final Logger logger = LoggerFactory.getLogger(CityUpdateBroadcaster.class);
+    private static final String COUNTRY = "FR";
+
+    private final AirQualityService airQualityService;
+    private final Duration refreshInterval;
+    private final Map<String, CityFeed> feeds = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final Timer broadcastLatency;
+    private final Counter conflatedCounter;
+
+    public CityUpdateBroadcaster(AirQualityService airQualityService,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${airquality.stream.refresh-interval:1m}") Duration refreshInterval) {
+        this.airQualityService = airQualityService;
+        this.refreshInterval = refreshInterval;
+
+        Gauge.builder("airquality.stream.subscribers", subscribers, AtomicInteger::get)
+                .description("Abonnements ville en cours sur le flux /stream")
+                .register(meterRegistry);
+        Gauge.builder("airquality.stream.cities", feeds, Map::size)
+                .description("Villes rafraîchies pour au moins un abonné")
+                .register(meterRegistry);
+        this.broadcastLatency = Timer.builder("airquality.stream.broadcast.latency")
+                .description("Délai entre la détection d'un changement et sa remise à un abonné")
+                .register(meterRegistry);
+        this.conflatedCounter = Counter.builder("airquality.stream.conflated")
+                .description("Événements fusionnés dans un événement pas encore remis à un abonné lent")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Nom canonique d'une ville suivable, ou null si elle n'est pas connue.
+     */
+    public String knownCity(String city) {
+        String resolved = AirQualityService.resolveCity(city);
+        return AirQualityService.knownCities().contains(resolved) ? resolved : null;
+    }
+
+    /**
+     * Dernier état connu de chaque ville ("snapshot"), puis ses changements ("update").
+     */
+    public Flux<CityUpdate> subscribe(Collection<String> cities) {
+        // Un seul événement en attente par ville dans flatMap : le reste est fusionné par PendingUpdate
+        return Flux.fromIterable(cities).flatMap(this::follow, Math.max(1, cities.size()), 1);
+    }
+
+    private Flux<CityUpdate> follow(String city) {
+        return Flux.using(() -> acquire(city), this::conflated, this::release);
+    }
+
+    /**
+     * Flux de la ville vu par un abonné : tant qu'il n'a pas demandé l'événement suivant, les changements reçus
+     * s'accumulent dans un seul événement en attente, la dernière valeur de chaque mesure l'emportant.
+     */
+    private Flux<CityUpdate> conflated(CityFeed feed) {
+        return Flux.create(sink -> {
+            PendingUpdate pending = new PendingUpdate(feed.city);
+            Disposable source = feed.updates().subscribe(broadcast -> {
+                pending.add(broadcast);
+                pending.drain(sink);
+            }, sink::error, sink::complete);
+            sink.onRequest(requested -> pending.drain(sink));
+            sink.onDispose(source);
+        });
+    }
+
+    /**
+     * Flux partagé de la ville, créé au premier abonné.
+     */
+    private CityFeed acquire(String city) {
+        subscribers.incrementAndGet();
+        return feeds.compute(city, (key, existing) -> {
+            CityFeed feed = existing != null ? existing : new CityFeed(key);
+            feed.subscribers++;
+            return feed;
+        });
+    }
+
+    /**
+     * Retire le flux de la ville avec son dernier abonné ; un abonné suivant repart d'un nouveau rafraîchissement.
+     */
+    private void release(CityFeed feed) {
+        subscribers.decrementAndGet();
+        feeds.computeIfPresent(feed.city, (key, existing) ->
+                existing == feed && --existing.subscribers == 0 ? null : existing);
+    }
+
+    /**
+     * Mesures nouvelles ou modifiées (valeur, AQI ou niveau) par rapport à l'état précédent.
+     */
+    static List<AirQualityData> changedEntries(List<AirQualityData> previous, List<AirQualityData> current) {
+        if (previous == null) {
+            return current;
+        }
+        Map<String, AirQualityData> before = new HashMap<>();
+        for (AirQualityData data : previous) {
+            before.put(entryKey(data), data);
+        }
+        List<AirQualityData> changed = new ArrayList<>();
+        for (AirQualityData data : current) {
+            AirQualityData old = before.get(entryKey(data));
+            if (old == null || old.getValue() != data.getValue() || old.getAqi() != data.getAqi()
+                    || !Objects.equals(old.getQualityLevel(), data.getQualityLevel())) {
+                changed.add(data);
+            }
+        }
+        return changed;
+    }
+
+    private static String entryKey(AirQualityData data) {
+        return data.getCity() + "|" + data.getParameter() + "|" + data.getLatitude() + "|" + data.getLongitude();
+    }
+
+    private record Broadcast(CityUpdate update, long detectedAtNanos) {
+    }
+
+    private final class CityFeed {
+        private final String city;
+        private final AtomicReference<List<AirQualityData>> current = new AtomicReference<>();
+        private final Flux<Broadcast> changes;
+        // Modifié sous le verrou de feeds.compute
+        private int subscribers;
+
+        private CityFeed(String city) {
+            this.city = city;
+            // share() : une seule boucle de rafraîchissement, active tant qu'il reste un abonné
+            this.changes = Flux.interval(Duration.ZERO, refreshInterval)
+                    .onBackpressureDrop()
+                    .concatMap(tick -> airQualityService.getLatestMeasurementsReactive(city, COUNTRY)
+                            .onErrorResume(e -> {
+                                logger.warn("Stream refresh failed for {}: {}", city, e.getMessage());
+                                return Mono.empty();
+                            }), 1)
+                    .mapNotNull(this::diff)
+                    .share();
+        }
+
+        private Flux<Broadcast> updates() {
+            return Flux.defer(() -> {
+                List<AirQualityData> known = current.get();
+                Flux<Broadcast> initial = known == null ? Flux.empty() :
+                        Flux.just(new Broadcast(new CityUpdate("snapshot", city, known), System.nanoTime()));
+                return initial.concatWith(changes);
+            });
+        }
+
+        private Broadcast diff(List<AirQualityData> data) {
+            List<AirQualityData> previous = current.getAndSet(data);
+            List<AirQualityData> changed = changedEntries(previous, data);
+            if (changed.isEmpty()) {
+                return null;
+            }
+            return new Broadcast(new CityUpdate(previous == null ? "snapshot" : "update", city, changed),
+                    System.nanoTime());
+        }
+    }
+
+    /**
+     * Changements d'une ville pas encore remis à un abonné, fusionnés par mesure.
+     */
+    private final class PendingUpdate {
+        private final String city;
+        private final Map<String, AirQualityData> entries = new LinkedHashMap<>();
+        private boolean present;
+        private boolean snapshot;
+        private long detectedAtNanos;
+
+        private PendingUpdate(String city) {
+            this.city = city;
+        }
+
+        private synchronized void add(Broadcast broadcast) {
+            CityUpdate update = broadcast.update();
+            boolean isSnapshot = "snapshot".equals(update.getType());
+            if (present) {
+                conflatedCounter.increment();
+            } else {
+                // Latence mesurée depuis le plus ancien changement en attente
+                detectedAtNanos = broadcast.detectedAtNanos();
+            }
+            if (isSnapshot) {
+                // Un snapshot remplace tout l'état connu
+                entries.clear();
+            }
+            for (AirQualityData data : update.getData()) {
+                entries.put(entryKey(data), data);
+            }
+            snapshot |= isSnapshot;
+            present = true;
+        }
+
+        private synchronized void drain(FluxSink<CityUpdate> sink) {
+            if (!present || sink.requestedFromDownstream() == 0 || sink.isCancelled()) {
+                return;
+            }
+            CityUpdate update = new CityUpdate(snapshot ? "snapshot" : "update", city, new ArrayList<>(entries.values()));
+            entries.clear();
+            present = false;
+            snapshot = false;
+            broadcastLatency.record(System.nanoTime() - detectedAtNanos, TimeUnit.NANOSECONDS);
+            sink.next(update);
+        }
+    }
+}
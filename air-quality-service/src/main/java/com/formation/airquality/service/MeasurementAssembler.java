@@ -0,0 +1,83 @@
+package com.formation.airquality.service;
+
+import com.formation.airquality.model.AirQualityData;
+import com.formation.airquality.openaq.LatestMeasurement;
+import com.formation.airquality.openaq.OpenAqLocation;
+import com.formation.airquality.openaq.SensorParameter;
+import com.formation.airquality.openaq.StationReadings;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Construction des {@link AirQualityData} renvoyés par l'API à partir des mesures d'une station.
+ */
+public final class MeasurementAssembler {
+
+    private MeasurementAssembler() {
+    }
+
+    /**
+     * Assemble les mesures des stations dans l'ordre, en s'arrêtant à {@code maxMeasurements}.
+     */
+    public static List<AirQualityData> assemble(List<StationReadings> stations, String cityName, String countryCode,
+                                                int maxMeasurements) {
+        List<AirQualityData> data = new ArrayList<>(maxMeasurements);
+        for (StationReadings readings : stations) {
+            for (AirQualityData aqData : toAirQualityData(readings, cityName, countryCode)) {
+                data.add(aqData);
+                if (data.size() >= maxMeasurements) {
+                    return data;
+                }
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Copies des mesures marquées comme données de repli, avec l'âge de la source
+     * (l'âge déjà porté par une mesure est conservé s'il est plus grand).
+     */
+    public static List<AirQualityData> markStale(List<AirQualityData> data, Duration age) {
+        List<AirQualityData> stale = new ArrayList<>(data.size());
+        for (AirQualityData source : data) {
+            long ageSeconds = Math.max(age.toSeconds(), source.getAgeSeconds() != null ? source.getAgeSeconds() : 0L);
+            stale.add(new AirQualityData(source.getCity(), source.getCountry(), source.getLatitude(),
+                    source.getLongitude(), source.getParameter(), source.getValue(), source.getUnit(),
+                    source.getLastUpdated(), source.getAqi(), source.getQualityLevel(), true, ageSeconds));
+        }
+        return stale;
+    }
+
+    public static List<AirQualityData> toAirQualityData(StationReadings readings, String cityName, String countryCode) {
+        OpenAqLocation location = readings.location();
+        String locationName = location.name() != null ? location.name() : cityName;
+        String countryName = location.countryName() != null ? location.countryName() : countryCode;
+
+        List<AirQualityData> data = new ArrayList<>(readings.latest().size());
+        for (LatestMeasurement measurement : readings.latest()) {
+            AirQualityData aqData = new AirQualityData();
+            aqData.setCity(locationName);
+            aqData.setCountry(countryName);
+            aqData.setLatitude(location.latitude());
+            aqData.setLongitude(location.longitude());
+
+            // Chercher le paramètre correspondant au capteur dans le mapping de la location
+            SensorParameter parameter = location.sensors().get(measurement.sensorId());
+            String paramName = parameter != null ? parameter.name() : "unknown";
+
+            aqData.setParameter(paramName);
+            aqData.setValue(measurement.value());
+            aqData.setUnit(parameter != null ? parameter.units() : "");
+            aqData.setLastUpdated(measurement.datetimeUtc());
+
+            // Calcul de l'AQI - paramName ne peut jamais être null ici
+            aqData.setAqi(AqiCalculator.calculateAQI(paramName, measurement.value()));
+            aqData.setQualityLevel(AqiCalculator.getQualityLevel(aqData.getAqi()));
+
+            data.add(aqData);
+        }
+        return data;
+    }
+}
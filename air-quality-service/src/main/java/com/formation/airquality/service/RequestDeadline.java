@@ -0,0 +1,52 @@
+package com.formation.airquality.service;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Échéance d'une requête, partagée entre ses étapes (/locations, /latest) ; elle démarre après la latence
+ * simulée. Chaque appel amont reçoit le temps restant comme timeout, plafonné par son timeout propre.
+ */
+final class RequestDeadline {
+
+    private final long deadlineNanos;
+
+    private RequestDeadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    static RequestDeadline after(Duration budget) {
+        return new RequestDeadline(System.nanoTime() + budget.toNanos());
+    }
+
+    Duration remaining() {
+        return Duration.ofNanos(Math.max(0, deadlineNanos - System.nanoTime()));
+    }
+
+    boolean expired() {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Sous-échéance d'une étape : une part du temps restant à partir de maintenant.
+     */
+    RequestDeadline stage(double share) {
+        long now = System.nanoTime();
+        return new RequestDeadline(now + (long) (Math.max(0, deadlineNanos - now) * share));
+    }
+
+    /**
+     * Borne l'appel au temps restant (évalué à la souscription) et à {@code cap}.
+     */
+    <T> Mono<T> bound(Mono<T> call, Duration cap) {
+        return Mono.defer(() -> {
+            Duration remaining = remaining();
+            if (remaining.isZero()) {
+                return Mono.error(new TimeoutException("Request deadline exceeded"));
+            }
+            return call.timeout(remaining.compareTo(cap) < 0 ? remaining : cap);
+        });
+    }
+}
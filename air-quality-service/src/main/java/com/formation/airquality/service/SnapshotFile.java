@@ -0,0 +1,304 @@
+package com.formation.airquality.service;
+
+import com.formation.airquality.model.AirQualityData;
+import com.formation.airquality.openaq.LatestMeasurement;
+import com.formation.airquality.openaq.OpenAqLocation;
+import com.formation.airquality.openaq.SensorParameter;
+import com.formation.airquality.openaq.StationReadings;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Format binaire de {@link WarmStartSnapshot}.
+ *
+ * <pre>
+ * en-tête (24 octets) : magic "AQSN" | version (short) | réservé (short) | écrit à, ms epoch (long)
+ *                       | taille de la charge utile (int) | CRC32 de la charge utile (int)
+ * charge utile        : table des chaînes (UTF-8, dédupliquées) | réponses par ville | stations
+ * </pre>
+ *
+ * Les chaînes sont référencées par leur indice dans la table (-1 pour null) : noms de villes, paramètres
+ * et unités, très répétés, ne sont stockés qu'une fois. Le fichier est écrit à côté puis renommé
+ * atomiquement ; à la lecture, un fichier tronqué, d'une autre version ou dont le CRC diffère est rejeté.
+ */
+final class SnapshotFile {
+
+    static final int MAGIC = 0x4151534E;
+    static final short VERSION = 1;
+    private static final int HEADER_BYTES = 24;
+    // Garde-fou contre un en-tête corrompu annonçant une taille absurde
+    private static final long MAX_BYTES = 256L * 1024 * 1024;
+
+    private SnapshotFile() {
+    }
+
+    record CityEntry(String key, long fetchedAtMillis, List<AirQualityData> data) {
+    }
+
+    record StationEntry(long fetchedAtMillis, StationReadings readings) {
+    }
+
+    record Content(long writtenAtMillis, List<CityEntry> cities, List<StationEntry> stations) {
+    }
+
+    /**
+     * Écrit le contenu dans un fichier temporaire du même répertoire, puis le renomme atomiquement :
+     * un lecteur voit l'ancien fichier ou le nouveau, jamais un fichier à moitié écrit. Renvoie sa taille.
+     */
+    static long write(Path path, Content content) throws IOException {
+        Strings strings = new Strings();
+        ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream(64 * 1024);
+        DataOutputStream body = new DataOutputStream(bodyBytes);
+
+        body.writeInt(content.cities().size());
+        for (CityEntry city : content.cities()) {
+            body.writeInt(strings.ref(city.key()));
+            body.writeLong(city.fetchedAtMillis());
+            body.writeInt(city.data().size());
+            for (AirQualityData data : city.data()) {
+                body.writeInt(strings.ref(data.getCity()));
+                body.writeInt(strings.ref(data.getCountry()));
+                body.writeDouble(data.getLatitude());
+                body.writeDouble(data.getLongitude());
+                body.writeInt(strings.ref(data.getParameter()));
+                body.writeDouble(data.getValue());
+                body.writeInt(strings.ref(data.getUnit()));
+                body.writeInt(strings.ref(data.getLastUpdated()));
+                body.writeInt(data.getAqi());
+                body.writeInt(strings.ref(data.getQualityLevel()));
+                // Mesure de station déjà servie en repli au moment de la mise en cache : -1 sinon
+                body.writeLong(Boolean.TRUE.equals(data.getStale()) && data.getAgeSeconds() != null
+                        ? data.getAgeSeconds() : -1L);
+            }
+        }
+
+        body.writeInt(content.stations().size());
+        for (StationEntry station : content.stations()) {
+            OpenAqLocation location = station.readings().location();
+            body.writeInt(location.id());
+            body.writeLong(station.fetchedAtMillis());
+            body.writeInt(strings.ref(location.name()));
+            body.writeInt(strings.ref(location.countryName()));
+            body.writeDouble(location.latitude());
+            body.writeDouble(location.longitude());
+            body.writeInt(location.sensors().size());
+            for (Map.Entry<Integer, SensorParameter> sensor : location.sensors().entrySet()) {
+                body.writeInt(sensor.getKey());
+                body.writeInt(strings.ref(sensor.getValue().name()));
+                body.writeInt(strings.ref(sensor.getValue().units()));
+            }
+            body.writeInt(station.readings().latest().size());
+            for (LatestMeasurement measurement : station.readings().latest()) {
+                body.writeInt(measurement.sensorId());
+                body.writeDouble(measurement.value());
+                body.writeInt(strings.ref(measurement.datetimeUtc()));
+            }
+        }
+        body.flush();
+
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(bodyBytes.size() + 16 * 1024);
+        DataOutputStream payload = new DataOutputStream(payloadBytes);
+        strings.writeTo(payload);
+        bodyBytes.writeTo(payload);
+        payload.flush();
+        byte[] bytes = payloadBytes.toByteArray();
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                .putInt(MAGIC)
+                .putShort(VERSION)
+                .putShort((short) 0)
+                .putLong(content.writtenAtMillis())
+                .putInt(bytes.length)
+                .putInt((int) crc.getValue())
+                .flip();
+
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer data = ByteBuffer.wrap(bytes);
+                while (header.hasRemaining() || data.hasRemaining()) {
+                    channel.write(new ByteBuffer[]{header, data});
+                }
+                channel.force(true);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return HEADER_BYTES + (long) bytes.length;
+    }
+
+    /**
+     * Lit le fichier par projection mémoire (pas de copie intermédiaire). Renvoie null s'il n'existe pas ;
+     * lève {@link IOException} s'il est illisible, tronqué, d'une autre version ou corrompu.
+     */
+    static Content read(Path path) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > MAX_BYTES) {
+                throw new IOException("unexpected snapshot size " + size);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("not a snapshot file");
+            }
+            short version = buffer.getShort();
+            if (version != VERSION) {
+                throw new IOException("unsupported snapshot version " + version);
+            }
+            buffer.getShort();
+            long writtenAtMillis = buffer.getLong();
+            int payloadLength = buffer.getInt();
+            int expectedCrc = buffer.getInt();
+            if (payloadLength != size - HEADER_BYTES) {
+                throw new IOException("truncated snapshot: " + (size - HEADER_BYTES) + "/" + payloadLength + " bytes");
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(HEADER_BYTES, payloadLength));
+            if ((int) crc.getValue() != expectedCrc) {
+                throw new IOException("snapshot checksum mismatch");
+            }
+
+            return decode(buffer, writtenAtMillis);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            // CRC valide mais contenu incohérent (fichier écrit par un autre programme)
+            throw new IOException("malformed snapshot: " + e, e);
+        }
+    }
+
+    private static Content decode(ByteBuffer buffer, long writtenAtMillis) {
+        String[] strings = new String[count(buffer, 4)];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] utf8 = new byte[count(buffer, 1)];
+            buffer.get(utf8);
+            strings[i] = new String(utf8, StandardCharsets.UTF_8);
+        }
+
+        List<CityEntry> cities = new ArrayList<>();
+        for (int i = count(buffer, 16); i > 0; i--) {
+            String key = string(buffer, strings);
+            long fetchedAtMillis = buffer.getLong();
+            int size = count(buffer, 60);
+            List<AirQualityData> data = new ArrayList<>(size);
+            for (int j = 0; j < size; j++) {
+                AirQualityData aqData = new AirQualityData();
+                aqData.setCity(string(buffer, strings));
+                aqData.setCountry(string(buffer, strings));
+                aqData.setLatitude(buffer.getDouble());
+                aqData.setLongitude(buffer.getDouble());
+                aqData.setParameter(string(buffer, strings));
+                aqData.setValue(buffer.getDouble());
+                aqData.setUnit(string(buffer, strings));
+                aqData.setLastUpdated(string(buffer, strings));
+                aqData.setAqi(buffer.getInt());
+                aqData.setQualityLevel(string(buffer, strings));
+                long ageSeconds = buffer.getLong();
+                if (ageSeconds >= 0) {
+                    aqData.setStale(true);
+                    aqData.setAgeSeconds(ageSeconds);
+                }
+                data.add(aqData);
+            }
+            cities.add(new CityEntry(key, fetchedAtMillis, data));
+        }
+
+        List<StationEntry> stations = new ArrayList<>();
+        for (int i = count(buffer, 44); i > 0; i--) {
+            int id = buffer.getInt();
+            long fetchedAtMillis = buffer.getLong();
+            String name = string(buffer, strings);
+            String countryName = string(buffer, strings);
+            double latitude = buffer.getDouble();
+            double longitude = buffer.getDouble();
+            int sensorCount = count(buffer, 12);
+            Map<Integer, SensorParameter> sensors = new LinkedHashMap<>();
+            for (int j = 0; j < sensorCount; j++) {
+                sensors.put(buffer.getInt(), new SensorParameter(string(buffer, strings), string(buffer, strings)));
+            }
+            int latestCount = count(buffer, 16);
+            List<LatestMeasurement> latest = new ArrayList<>(latestCount);
+            for (int j = 0; j < latestCount; j++) {
+                latest.add(new LatestMeasurement(buffer.getInt(), buffer.getDouble(), string(buffer, strings)));
+            }
+            stations.add(new StationEntry(fetchedAtMillis, new StationReadings(
+                    new OpenAqLocation(id, name, countryName, latitude, longitude, Map.copyOf(sensors)),
+                    List.copyOf(latest))));
+        }
+
+        if (buffer.hasRemaining()) {
+            throw new IllegalArgumentException(buffer.remaining() + " trailing bytes");
+        }
+        return new Content(writtenAtMillis, cities, stations);
+    }
+
+    /**
+     * Nombre d'éléments à suivre, borné par ce qu'il reste à lire ({@code minBytes} par élément) :
+     * une valeur aberrante ne peut pas provoquer d'allocation démesurée.
+     */
+    private static int count(ByteBuffer buffer, int minBytes) {
+        int count = buffer.getInt();
+        if (count < 0 || (long) count * minBytes > buffer.remaining()) {
+            throw new IllegalArgumentException("invalid count " + count);
+        }
+        return count;
+    }
+
+    private static String string(ByteBuffer buffer, String[] strings) {
+        int ref = buffer.getInt();
+        return ref == -1 ? null : strings[ref];
+    }
+
+    /**
+     * Table des chaînes en cours d'écriture : indice de première apparition.
+     */
+    private static final class Strings {
+        private final Map<String, Integer> refs = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        private int ref(String value) {
+            if (value == null) {
+                return -1;
+            }
+            return refs.computeIfAbsent(value, v -> {
+                values.add(v);
+                return values.size() - 1;
+            });
+        }
+
+        private void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(values.size());
+            for (String value : values) {
+                byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(utf8.length);
+                out.write(utf8);
+            }
+        }
+    }
+}
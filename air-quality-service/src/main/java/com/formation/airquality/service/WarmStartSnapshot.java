@@ -0,0 +1,230 @@
+package com.formation.airquality.service;
+
+import com.formation.airquality.cache.CoalescingCache;
+import com.formation.airquality.history.MeasurementHistory;
+import com.formation.airquality.model.AirQualityData;
+import com.formation.airquality.openaq.StationReadings;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Redémarrage à chaud : l'état des villes (cache /city et instantané préchargé) et des stations (cache des
+ * /latest) est écrit périodiquement et à l'arrêt dans un fichier binaire local ({@link SnapshotFile}),
+ * relu au démarrage avant l'ouverture du port.
+ *
+ * <p>Les entrées restaurées gardent leur âge d'origine : encore fraîches, elles sont servies normalement ;
+ * expirées mais plus récentes que {@code airquality.fallback.stale-max-age}, elles sont servies marquées
+ * stale pendant qu'un rafraîchissement en arrière-plan les remplace ({@link #restoredCity}).
+ * Un fichier absent, corrompu ou d'une autre version est ignoré : démarrage à froid.
+ */
+@Component
+public class WarmStartSnapshot implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(WarmStartSnapshot.class);
+
+    private final CoalescingCache<String, List<AirQualityData>> cityResponseCache;
+    private final CoalescingCache<Integer, StationReadings> locationCache;
+    private final CitySnapshot citySnapshot;
+    private final boolean enabled;
+    private final Path path;
+    private final Duration staleMaxAge;
+    private final Duration cityTtl;
+    // Villes restaurées expirées, pas encore rafraîchies depuis le démarrage
+    private final Set<String> pendingCities = ConcurrentHashMap.newKeySet();
+    private final AtomicLong fileBytes = new AtomicLong();
+    private final MeterRegistry meterRegistry;
+    private final Timer writeTimer;
+    private final Counter writeErrorCounter;
+    private final Counter servedCounter;
+    private volatile boolean running;
+
+    public WarmStartSnapshot(CoalescingCache<String, List<AirQualityData>> cityResponseCache,
+                             CoalescingCache<Integer, StationReadings> locationCache,
+                             CitySnapshot citySnapshot,
+                             MeasurementHistory measurementHistory,
+                             MeterRegistry meterRegistry,
+                             @Value("${airquality.warm-start.enabled:true}") boolean enabled,
+                             @Value("${airquality.warm-start.path:data/measurements.snapshot}") String path,
+                             @Value("${airquality.fallback.stale-max-age:6h}") Duration staleMaxAge,
+                             @Value("${airquality.cache.city.ttl:10m}") Duration cityTtl) {
+        this.cityResponseCache = cityResponseCache;
+        this.locationCache = locationCache;
+        this.citySnapshot = citySnapshot;
+        this.enabled = enabled;
+        this.path = Path.of(path);
+        this.staleMaxAge = staleMaxAge;
+        this.cityTtl = cityTtl;
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("airquality.warmstart.pending", pendingCities, Set::size)
+                .description("Villes restaurées du disque servies marquées stale, en attente de rafraîchissement")
+                .register(meterRegistry);
+        Gauge.builder("airquality.warmstart.file.size", fileBytes, AtomicLong::get)
+                .description("Taille du dernier fichier d'état écrit ou lu")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.writeTimer = Timer.builder("airquality.warmstart.write")
+                .description("Durée d'écriture du fichier d'état")
+                .register(meterRegistry);
+        this.writeErrorCounter = Counter.builder("airquality.warmstart.write.errors")
+                .description("Écritures du fichier d'état en échec")
+                .register(meterRegistry);
+        this.servedCounter = Counter.builder("airquality.warmstart.served")
+                .description("Réponses /city servies marquées stale depuis l'état restauré, avant rafraîchissement")
+                .register(meterRegistry);
+
+        // Chargement dans le constructeur : le service, qui dépend de ce bean, ne reçoit aucune requête avant
+        if (enabled) {
+            load(measurementHistory);
+        }
+    }
+
+    /**
+     * Réponse restaurée du disque pour cette ville si elle a expiré et n'a pas encore été rafraîchie depuis
+     * le démarrage, avec son âge ; null sinon (chemin normal du cache).
+     */
+    CoalescingCache.Aged<List<AirQualityData>> restoredCity(String key) {
+        if (pendingCities.isEmpty() || !pendingCities.contains(key)) {
+            return null;
+        }
+        CoalescingCache.Aged<List<AirQualityData>> cached = cityResponseCache.getStale(key);
+        if (cached == null || cached.age().compareTo(cityTtl) <= 0 || cached.age().compareTo(staleMaxAge) > 0) {
+            // Rafraîchie entre-temps par un autre chemin (préchargement, /batch), évincée ou trop ancienne
+            pendingCities.remove(key);
+            return null;
+        }
+        servedCounter.increment();
+        return cached;
+    }
+
+    void refreshed(String key) {
+        pendingCities.remove(key);
+    }
+
+    private void load(MeasurementHistory measurementHistory) {
+        long start = System.nanoTime();
+        SnapshotFile.Content content;
+        try {
+            content = SnapshotFile.read(path);
+        } catch (IOException e) {
+            logger.warn("Ignoring warm start file {}: {}", path, e.getMessage());
+            loadCounter("corrupt").increment();
+            return;
+        }
+        if (content == null) {
+            logger.info("No warm start file at {}, starting cold", path);
+            loadCounter("missing").increment();
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        int stations = 0;
+        for (SnapshotFile.StationEntry station : content.stations()) {
+            Duration age = Duration.ofMillis(Math.max(0, now - station.fetchedAtMillis()));
+            if (age.compareTo(staleMaxAge) <= 0) {
+                locationCache.restore(station.readings().location().id(), station.readings(), age);
+                measurementHistory.record(station.readings());
+                stations++;
+            }
+        }
+        int cities = 0;
+        for (SnapshotFile.CityEntry city : content.cities()) {
+            Duration age = Duration.ofMillis(Math.max(0, now - city.fetchedAtMillis()));
+            if (age.compareTo(staleMaxAge) <= 0) {
+                cityResponseCache.restore(city.key(), city.data(), age);
+                if (age.compareTo(cityTtl) > 0) {
+                    pendingCities.add(city.key());
+                }
+                cities++;
+            }
+        }
+
+        fileBytes.set(path.toFile().length());
+        loadCounter("restored").increment();
+        logger.info("Warm start from {} (written {}s ago): {} cities ({} to refresh), {} stations in {} ms",
+                path, (now - content.writtenAtMillis()) / 1000, cities, pendingCities.size(), stations,
+                Duration.ofNanos(System.nanoTime() - start).toMillis());
+    }
+
+    @Scheduled(initialDelayString = "${airquality.warm-start.write-interval:5m}",
+               fixedDelayString = "${airquality.warm-start.write-interval:5m}")
+    public void write() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+
+        // Ville : entrée la plus récente entre le cache /city et l'instantané préchargé
+        Map<String, SnapshotFile.CityEntry> cities = new HashMap<>();
+        cityResponseCache.snapshot().forEach((key, aged) ->
+                cities.put(key, new SnapshotFile.CityEntry(key, now - aged.age().toMillis(), aged.value())));
+        citySnapshot.entries().forEach((key, entry) -> cities.merge(key,
+                new SnapshotFile.CityEntry(key, entry.fetchedAtMillis(), entry.data()),
+                (cached, prefetched) -> prefetched.fetchedAtMillis() > cached.fetchedAtMillis() ? prefetched : cached));
+
+        List<SnapshotFile.StationEntry> stations = new ArrayList<>();
+        locationCache.snapshot().forEach((id, aged) ->
+                stations.add(new SnapshotFile.StationEntry(now - aged.age().toMillis(), aged.value())));
+
+        long start = System.nanoTime();
+        try {
+            long bytes = SnapshotFile.write(path,
+                    new SnapshotFile.Content(now, new ArrayList<>(cities.values()), stations));
+            fileBytes.set(bytes);
+            logger.debug("Warm start file written: {} cities, {} stations, {} bytes",
+                    cities.size(), stations.size(), bytes);
+        } catch (IOException | RuntimeException e) {
+            writeErrorCounter.increment();
+            logger.warn("Failed to write warm start file {}: {}", path, e.getMessage());
+        } finally {
+            writeTimer.record(Duration.ofNanos(System.nanoTime() - start));
+        }
+    }
+
+    private Counter loadCounter(String result) {
+        return Counter.builder("airquality.warmstart.load")
+                .description("Lectures du fichier d'état au démarrage (restored, missing, corrupt)")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    // Dernière écriture à l'arrêt, après l'arrêt du serveur web (phase plus basse que la sienne)
+    @Override
+    public void stop() {
+        running = false;
+        write();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+}
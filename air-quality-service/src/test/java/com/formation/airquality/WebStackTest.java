@@ -0,0 +1,49 @@
+package com.formation.airquality;
+
+import com.formation.airquality.controller.AirQualityController;
+import com.formation.airquality.openaq.OpenAqClient;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.reactive.DispatcherHandler;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.servlet.DispatcherServlet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Une seule pile web : Spring MVC sert les endpoints (y compris Mono et SSE), WebFlux n'apporte que
+ * WebClient et Reactor Netty côté client.
+ */
+@SpringBootTest(properties = {
+        "airquality.warm-start.enabled=false",
+        "airquality.prefetch.enabled=false"
+})
+class WebStackTest {
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Test
+    void classpathSelectsTheServletStack() {
+        assertThat(new SpringApplication(AirQualityApplication.class).getWebApplicationType())
+                .isEqualTo(WebApplicationType.SERVLET);
+    }
+
+    @Test
+    void endpointsAreServedByMvcAndOpenAqByWebClient() {
+        assertThat(context).isInstanceOf(WebApplicationContext.class);
+        assertThat(context.getBeanNamesForType(DispatcherServlet.class)).hasSize(1);
+        assertThat(context.getBeanNamesForType(AirQualityController.class)).hasSize(1);
+        assertThat(context.getBeanNamesForType(WebClient.Builder.class)).isNotEmpty();
+        assertThat(context.getBeanNamesForType(OpenAqClient.class)).hasSize(1);
+        // Aucun composant du serveur réactif
+        assertThat(context.getBeanNamesForType(DispatcherHandler.class)).isEmpty();
+        assertThat(context.getBeanNamesForType(HttpHandler.class)).isEmpty();
+    }
+}
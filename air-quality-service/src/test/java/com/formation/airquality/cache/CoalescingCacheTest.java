@@ -0,0 +1,172 @@
+package com.formation.airquality.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CoalescingCacheTest {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        CoalescingCache<String, String> cache = cache(Duration.ofMinutes(1), 10);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> cache.get("paris", () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                await(release);
+                return "value";
+            }));
+            assertThat(loading.await(1, TimeUnit.SECONDS)).isTrue();
+            Future<String> second = executor.submit(() -> cache.get("paris", () -> {
+                loads.incrementAndGet();
+                return "other";
+            }));
+            // Le second appelant s'inscrit sur le chargement en cours avant sa libération
+            while (counter("airquality.cache.coalesced") == 0) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            assertThat(first.get(1, TimeUnit.SECONDS)).isEqualTo("value");
+            assertThat(second.get(1, TimeUnit.SECONDS)).isEqualTo("value");
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(loads).hasValue(1);
+        assertThat(counter("airquality.cache.misses")).isEqualTo(1.0);
+    }
+
+    @Test
+    void concurrentAsyncMissesShareOneLoad() {
+        CoalescingCache<String, String> cache = cache(Duration.ofMinutes(1), 10);
+        AtomicInteger loads = new AtomicInteger();
+        Sinks.One<String> upstream = Sinks.one();
+
+        Mono<String> first = cache.getAsync("paris", () -> {
+            loads.incrementAndGet();
+            return upstream.asMono();
+        });
+        Mono<String> second = cache.getAsync("paris", () -> {
+            loads.incrementAndGet();
+            return Mono.just("other");
+        });
+
+        StepVerifier.create(Mono.zip(first, second))
+                .then(() -> upstream.tryEmitValue("value"))
+                .assertNext(both -> assertThat(both.getT1()).isEqualTo("value").isEqualTo(both.getT2()))
+                .verifyComplete();
+        assertThat(loads).hasValue(1);
+        assertThat(cache.getAsync("paris", () -> Mono.just("reloaded")).block()).isEqualTo("value");
+    }
+
+    @Test
+    void expiredEntryIsReloadedButStillAvailableAsStale() throws InterruptedException {
+        CoalescingCache<String, String> cache = cache(Duration.ofMillis(50), 10);
+        cache.get("paris", () -> "v1");
+        assertThat(cache.get("paris", () -> "v2")).isEqualTo("v1");
+
+        Thread.sleep(80);
+
+        assertThat(cache.getStale("paris").value()).isEqualTo("v1");
+        assertThat(cache.getStale("paris").age()).isGreaterThan(Duration.ofMillis(50));
+        assertThat(cache.get("paris", () -> "v2")).isEqualTo("v2");
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvictedFirst() {
+        CoalescingCache<String, String> cache = cache(Duration.ofMinutes(1), 2);
+        cache.put("paris", "p");
+        cache.put("lyon", "l");
+        // Lecture de paris : lyon devient la moins récemment utilisée
+        cache.get("paris", () -> "unexpected");
+
+        cache.put("nice", "n");
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.getStale("lyon")).isNull();
+        assertThat(cache.getStale("paris")).isNotNull();
+        assertThat(cache.getStale("nice")).isNotNull();
+        assertThat(counter("airquality.cache.evictions")).isEqualTo(1.0);
+    }
+
+    @Test
+    void failedLoadIsNotCachedAndTheNextCallRetries() {
+        CoalescingCache<String, String> cache = cache(Duration.ofMinutes(1), 10);
+
+        assertThatThrownBy(() -> cache.get("paris", () -> {
+            throw new IllegalStateException("upstream down");
+        })).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> cache.get("paris", () -> {
+            throw new AssertionError("not a RuntimeException");
+        })).isInstanceOf(AssertionError.class);
+
+        assertThat(cache.get("paris", () -> "value")).isEqualTo("value");
+    }
+
+    @Test
+    void asyncLoaderThrowingBeforeItsMonoDoesNotBlockLaterCalls() {
+        CoalescingCache<String, String> cache = cache(Duration.ofMinutes(1), 10);
+
+        StepVerifier.create(cache.getAsync("paris", () -> {
+                    throw new IllegalStateException("no mono");
+                }))
+                .expectError(IllegalStateException.class)
+                .verify(Duration.ofSeconds(1));
+        StepVerifier.create(cache.getAsync("paris", () -> Mono.error(new IllegalStateException("upstream down"))))
+                .expectError(IllegalStateException.class)
+                .verify(Duration.ofSeconds(1));
+
+        StepVerifier.create(cache.getAsync("paris", () -> Mono.just("value")))
+                .expectNext("value")
+                .expectComplete()
+                .verify(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void restoredEntryKeepsItsAgeAndNeverReplacesAFresherOne() {
+        CoalescingCache<String, String> cache = cache(Duration.ofMinutes(10), 10);
+        cache.restore("paris", "old", Duration.ofMinutes(20));
+        cache.put("lyon", "fresh");
+        cache.restore("lyon", "old", Duration.ofMinutes(1));
+
+        assertThat(cache.get("paris", () -> "reloaded")).isEqualTo("reloaded");
+        assertThat(cache.get("lyon", () -> "reloaded")).isEqualTo("fresh");
+    }
+
+    private CoalescingCache<String, String> cache(Duration ttl, int maxSize) {
+        return new CoalescingCache<>("test", ttl, maxSize, registry);
+    }
+
+    private double counter(String name) {
+        return registry.get(name).tag("cache", "test").counter().count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
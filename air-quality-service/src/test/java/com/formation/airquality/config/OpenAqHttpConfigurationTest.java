@@ -0,0 +1,33 @@
+package com.formation.airquality.config;
+
+import io.netty.channel.ChannelOption;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.socket.nio.NioChannelOption;
+import jdk.net.ExtendedSocketOptions;
+import org.junit.jupiter.api.Test;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OpenAqHttpConfigurationTest {
+
+    @Test
+    void keepAliveIdleUsesTheOptionOfTheActiveTransport() {
+        Map<ChannelOption<?>, Object> options = Map.copyOf(OpenAqHttpConfiguration
+                .keepAlive(HttpClient.create(), Duration.ofSeconds(60))
+                .configuration()
+                .options());
+
+        assertThat(options).containsEntry(ChannelOption.SO_KEEPALIVE, true);
+        if (LoopResources.DEFAULT_NATIVE && Epoll.isAvailable()) {
+            assertThat(options).containsEntry(EpollChannelOption.TCP_KEEPIDLE, 60);
+        } else {
+            assertThat(options).containsEntry(NioChannelOption.of(ExtendedSocketOptions.TCP_KEEPIDLE), 60);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.formation.airquality.controller;
+
+import com.formation.airquality.model.AirQualityData;
+import com.formation.airquality.model.BatchResult;
+import com.formation.airquality.service.AirQualityService;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class BatchAirQualityControllerTest {
+
+    private final AirQualityService airQualityService = mock(AirQualityService.class);
+    private final MockMvc mockMvc = MockMvcBuilders
+            .standaloneSetup(new BatchAirQualityController(airQualityService, 3))
+            .build();
+
+    @Test
+    void invalidBatchesAreRejectedBeforeAnyUpstreamWork() throws Exception {
+        when(airQualityService.maxRadius()).thenReturn(48_000);
+
+        batch("{}").andExpect(status().isBadRequest());
+        batch("{\"cities\": [{\"city\": \"Paris\"}, {\"city\": \"Lyon\"}, {\"city\": \"Nice\"}, {\"city\": \"Lille\"}]}")
+                .andExpect(status().isBadRequest());
+        batch("{\"cities\": [{\"city\": \" \"}]}").andExpect(status().isBadRequest());
+        batch("{\"points\": [{\"latitude\": 48.86, \"longitude\": 2.35, \"radius\": 60000}]}")
+                .andExpect(status().isBadRequest());
+
+        verify(airQualityService, never()).getBatch(any());
+    }
+
+    @Test
+    void resultsAreStreamedAsNdjsonLines() throws Exception {
+        when(airQualityService.maxRadius()).thenReturn(48_000);
+        when(airQualityService.getBatch(any())).thenReturn(Flux.just(
+                new BatchResult("city:Paris:FR", List.of(no2(41.2)), null),
+                new BatchResult("point:48.86:2.35:25000", null, "Error fetching air quality data")));
+
+        MvcResult pending = batch("""
+                {"cities": [{"city": "Paris"}], "points": [{"latitude": 48.86, "longitude": 2.35}]}""")
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(pending))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        // Une ligne JSON par entrée, sans champ null
+        assertThat(body.lines().toList()).hasSize(2);
+        assertThat(body.lines().findFirst().orElseThrow())
+                .startsWith("{\"key\":\"city:Paris:FR\"")
+                .doesNotContain("error");
+        assertThat(body.lines().skip(1).findFirst().orElseThrow())
+                .isEqualTo("{\"key\":\"point:48.86:2.35:25000\",\"error\":\"Error fetching air quality data\"}");
+    }
+
+    private ResultActions batch(String json) throws Exception {
+        return mockMvc.perform(post("/api/air-quality/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .content(json));
+    }
+
+    private static AirQualityData no2(double value) {
+        return new AirQualityData("Paris 18ème", "France", 48.89, 2.35, "no2", value, "µg/m³",
+                "2025-01-15T10:00:00Z", (int) value, "Bon", null, null);
+    }
+}
@@ -0,0 +1,84 @@
+package com.formation.airquality.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.formation.airquality.model.AirQualityData;
+import com.formation.airquality.service.MeasurementAssembler;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EncodedCityResponsesTest {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final EncodedCityResponses responses =
+            new EncodedCityResponses(new ObjectMapper(), registry, 200);
+    private final List<AirQualityData> source = List.of(
+            new AirQualityData("Paris 18ème", "France", 48.89, 2.35, "no2", 41.2, "µg/m³",
+                    "2025-01-15T10:00:00Z", 38, "Bon", null, null),
+            new AirQualityData("Paris 18ème", "France", 48.89, 2.35, "pm25", 12.7, "µg/m³",
+                    "2025-01-15T10:00:00Z", 52, "Modéré", null, null));
+
+    @Test
+    void sameListIsEncodedOnceWhateverTheSpellingOfTheCity() {
+        ResponseEntity<byte[]> first = responses.respond("Paris", "FR", source, null, null);
+        ResponseEntity<byte[]> second = respond(source, null);
+
+        // Même clé de ville résolue, même liste : ni resérialisé, ni recompressé, ni rehaché
+        assertThat(second.getBody()).isSameAs(first.getBody());
+    }
+
+    @Test
+    void staleAgeIsExactInTheBodyButTheEtagHoldsForAMinute() {
+        ResponseEntity<byte[]> first = respond(MeasurementAssembler.markStale(source, Duration.ofSeconds(725)), null);
+        ResponseEntity<byte[]> second = respond(MeasurementAssembler.markStale(source, Duration.ofSeconds(779)), null);
+        ResponseEntity<byte[]> nextMinute = respond(MeasurementAssembler.markStale(source, Duration.ofSeconds(781)), null);
+
+        assertThat(new String(first.getBody(), StandardCharsets.UTF_8)).contains("\"ageSeconds\":725");
+        assertThat(new String(second.getBody(), StandardCharsets.UTF_8)).contains("\"ageSeconds\":779");
+        assertThat(second.getHeaders().getETag()).isEqualTo(first.getHeaders().getETag());
+        assertThat(nextMinute.getHeaders().getETag()).isNotEqualTo(first.getHeaders().getETag());
+
+        String etag = first.getHeaders().getETag();
+        ResponseEntity<byte[]> revalidated = respond(MeasurementAssembler.markStale(source, Duration.ofSeconds(750)), etag);
+        assertThat(revalidated.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+    }
+
+    @Test
+    void matchingEtagGetsNotModifiedWithoutBody() {
+        String etag = respond(source, null).getHeaders().getETag();
+
+        ResponseEntity<byte[]> revalidated = respond(List.copyOf(source), etag);
+
+        assertThat(revalidated.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(revalidated.getBody()).isNull();
+        assertThat(registry.get("airquality.http.not.modified").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void gzipIsServedOnlyWhenAccepted() {
+        ResponseEntity<byte[]> plain = responses.respond("Paris", "FR", source, null, null);
+        ResponseEntity<byte[]> gzip = responses.respond("Paris", "FR", source, null, "br, gzip;q=0.8");
+        ResponseEntity<byte[]> refused = responses.respond("Paris", "FR", source, null, "gzip;q=0");
+        ResponseEntity<byte[]> refusedDecimal = responses.respond("Paris", "FR", source, null, "br, gzip ; q=0.0");
+
+        assertThat(plain.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(gzip.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(gzip.getBody()).startsWith((byte) 0x1f, (byte) 0x8b);
+        assertThat(refused.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(refusedDecimal.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(gzip.getHeaders().getETag()).isEqualTo(plain.getHeaders().getETag());
+    }
+
+    private ResponseEntity<byte[]> respond(List<AirQualityData> data, String ifNoneMatch) {
+        return responses.respond(" paris ", "fr", data, ifNoneMatch, null);
+    }
+}
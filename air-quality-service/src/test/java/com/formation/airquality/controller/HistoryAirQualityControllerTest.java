@@ -0,0 +1,58 @@
+package com.formation.airquality.controller;
+
+import com.formation.airquality.model.HistorySummary;
+import com.formation.airquality.service.AirQualityService;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class HistoryAirQualityControllerTest {
+
+    private final AirQualityService airQualityService = mock(AirQualityService.class);
+    private final MockMvc mockMvc = MockMvcBuilders
+            .standaloneSetup(new HistoryAirQualityController(airQualityService))
+            .build();
+
+    @Test
+    void malformedDurationsAreClientErrors() throws Exception {
+        mockMvc.perform(get("/api/air-quality/history").param("city", "Paris").param("window", "abc"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/air-quality/history").param("city", "Paris").param("step", "-1h"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/air-quality/history").param("city", "Paris").param("window", "0s"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(airQualityService);
+    }
+
+    @Test
+    void parsesSimpleAndIsoDurations() throws Exception {
+        when(airQualityService.getHistory(eq("Paris"), eq(Duration.ofDays(2)), eq(Duration.ofMinutes(30))))
+                .thenReturn(new HistorySummary("Paris", "from", "to", 1800, 1, List.of()));
+
+        mockMvc.perform(get("/api/air-quality/history").param("city", "Paris")
+                        .param("window", "48h").param("step", "PT30M"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stepSeconds").value(1800));
+    }
+
+    @Test
+    void unknownCityIsNotFound() throws Exception {
+        when(airQualityService.getHistory(eq("Atlantis"), any(), any())).thenReturn(null);
+
+        mockMvc.perform(get("/api/air-quality/history").param("city", "Atlantis"))
+                .andExpect(status().isNotFound());
+    }
+}
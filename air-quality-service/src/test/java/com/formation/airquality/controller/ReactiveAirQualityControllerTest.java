@@ -0,0 +1,110 @@
+package com.formation.airquality.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.formation.airquality.model.AirQualityData;
+import com.formation.airquality.openaq.UpstreamUnavailableException;
+import com.formation.airquality.service.AirQualityService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ReactiveAirQualityControllerTest {
+
+    private final AirQualityService airQualityService = mock(AirQualityService.class);
+    private final EncodedCityResponses encodedCityResponses =
+            new EncodedCityResponses(new ObjectMapper(), new SimpleMeterRegistry(), 200);
+    private final MockMvc mockMvc = MockMvcBuilders
+            .standaloneSetup(new ReactiveAirQualityController(airQualityService, encodedCityResponses))
+            .build();
+
+    @Test
+    void cityRequestReleasesTheServletThreadUntilTheUpstreamAnswers() throws Exception {
+        Sinks.One<List<AirQualityData>> upstream = Sinks.one();
+        when(airQualityService.getLatestMeasurementsReactive("Paris", "FR")).thenReturn(upstream.asMono());
+
+        // La méthode du contrôleur rend la main sans attendre la réponse amont
+        MvcResult pending = mockMvc.perform(get("/api/air-quality/city").param("city", "Paris"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertThat(pending.getResponse().getContentLength()).isZero();
+
+        upstream.tryEmitValue(List.of(no2(41.2)));
+        mockMvc.perform(asyncDispatch(pending))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].parameter").value("no2"))
+                .andExpect(jsonPath("$[0].value").value(41.2));
+    }
+
+    @Test
+    void upstreamUnavailableIsAServiceUnavailableResponse() throws Exception {
+        when(airQualityService.getLatestMeasurementsReactive("Paris", "FR"))
+                .thenReturn(Mono.error(new UpstreamUnavailableException("OpenAQ circuit open")));
+
+        MvcResult pending = mockMvc.perform(get("/api/air-quality/city").param("city", "Paris"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(pending)).andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    void coordinatesAreAnsweredAsynchronouslyAndRadiusIsValidatedFirst() throws Exception {
+        when(airQualityService.maxRadius()).thenReturn(48_000);
+        when(airQualityService.getLatestByCoordinatesReactive(anyDouble(), anyDouble(), anyInt()))
+                .thenReturn(Mono.just(List.of(no2(18.0))));
+
+        mockMvc.perform(get("/api/air-quality/coordinates")
+                        .param("latitude", "48.86").param("longitude", "2.35").param("radius", "60000"))
+                .andExpect(status().isBadRequest());
+
+        MvcResult pending = mockMvc.perform(get("/api/air-quality/coordinates")
+                        .param("latitude", "48.86").param("longitude", "2.35").param("radius", "10000"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(pending))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].value").value(18.0));
+        verify(airQualityService).getLatestByCoordinatesReactive(48.86, 2.35, 10_000);
+    }
+
+    @Test
+    void executionModeSelectsOneControllerForTheSameRoutes() {
+        ApplicationContextRunner runner = new ApplicationContextRunner()
+                .withBean(AirQualityService.class, () -> airQualityService)
+                .withBean(EncodedCityResponses.class, () -> encodedCityResponses)
+                .withUserConfiguration(AirQualityController.class, ReactiveAirQualityController.class);
+
+        runner.run(context -> assertThat(context)
+                .hasSingleBean(AirQualityController.class)
+                .doesNotHaveBean(ReactiveAirQualityController.class));
+        runner.withPropertyValues("airquality.execution.mode=reactive").run(context -> assertThat(context)
+                .hasSingleBean(ReactiveAirQualityController.class)
+                .doesNotHaveBean(AirQualityController.class));
+        verifyNoInteractions(airQualityService);
+    }
+
+    private static AirQualityData no2(double value) {
+        return new AirQualityData("Paris 18ème", "France", 48.89, 2.35, "no2", value, "µg/m³",
+                "2025-01-15T10:00:00Z", (int) value, "Bon", null, null);
+    }
+}
@@ -0,0 +1,49 @@
+package com.formation.airquality.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GeoMathTest {
+
+    private static final double TILE_RADIUS = 25_000;
+
+    @Test
+    void hugeRadiusIsBoundedByMaxTilesWithoutScanningTheWholeGrid() {
+        long start = System.nanoTime();
+
+        List<double[]> tiles = GeoMath.coveringTiles(45.0, 5.0, Integer.MAX_VALUE, TILE_RADIUS, 24);
+
+        assertThat(tiles).hasSize(24);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void maxCoveredRadiusIsFullyCoveredByMaxTiles() {
+        for (int maxTiles : new int[]{7, 19, 24}) {
+            int radius = GeoMath.maxCoveredRadius(TILE_RADIUS, maxTiles);
+            List<double[]> tiles = GeoMath.coveringTiles(45.0, 5.0, radius, TILE_RADIUS, maxTiles);
+
+            // Points du bord et de l'intérieur du disque : chacun à moins d'un rayon de sous-disque d'un centre
+            for (int step = 0; step < 360; step += 5) {
+                for (double fraction : new double[]{0.5, 0.9, 1.0}) {
+                    double angle = Math.toRadians(step);
+                    double lat = 45.0 + fraction * radius * Math.sin(angle) / 111_320.0;
+                    double lon = 5.0 + fraction * radius * Math.cos(angle) / (111_320.0 * Math.cos(Math.toRadians(45.0)));
+                    assertThat(tiles).anySatisfy(tile ->
+                            assertThat(GeoMath.distanceMeters(lat, lon, tile[0], tile[1])).isLessThanOrEqualTo(TILE_RADIUS));
+                }
+            }
+        }
+    }
+
+    @Test
+    void maxCoveredRadiusGrowsWithTilesAndNeverDropsBelowOneTile() {
+        assertThat(GeoMath.maxCoveredRadius(TILE_RADIUS, 1)).isEqualTo(25_000);
+        assertThat(GeoMath.maxCoveredRadius(TILE_RADIUS, 7)).isGreaterThan(45_000);
+        assertThat(GeoMath.maxCoveredRadius(TILE_RADIUS, 19)).isGreaterThan(GeoMath.maxCoveredRadius(TILE_RADIUS, 7));
+    }
+}
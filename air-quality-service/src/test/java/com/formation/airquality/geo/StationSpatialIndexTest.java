@@ -0,0 +1,96 @@
+package com.formation.airquality.geo;
+
+import com.formation.airquality.openaq.OpenAqLocation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StationSpatialIndexTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final StationSpatialIndex index = new StationSpatialIndex(registry, 0.05, Duration.ofHours(6));
+
+    @Test
+    void ignoresDiscsWiderThanItsScanBudget() {
+        index.recordQuery(45.0, 5.0, Integer.MAX_VALUE, List.of(), 20);
+
+        assertThat(index.findFresh(45.0, 5.0, Integer.MAX_VALUE, 20)).isNull();
+        assertThat(index.findFresh(45.0, 5.0, 1_000, 20)).isNull();
+    }
+
+    @Test
+    void completeQueryAnswersSmallerSearchesLocally() {
+        OpenAqLocation near = station(1, 45.0, 5.01);
+        OpenAqLocation far = station(2, 45.0, 5.1);
+        index.recordQuery(45.0, 5.0, 10_000, List.of(near, far), 20);
+
+        assertThat(index.findFresh(45.0, 5.0, 10_000, 20)).containsExactly(near, far);
+        assertThat(index.findFresh(45.0, 5.0, 5_000, 20)).containsExactly(near);
+    }
+
+    @Test
+    void limitedQueryCoversUpToItsFarthestStation() {
+        // Limite atteinte : stations à ~0.8, 1.6 et 2.4 km, le disque de 10 km n'est couvert que jusqu'à 2.4 km
+        List<OpenAqLocation> found = List.of(station(1, 45.0, 5.01), station(2, 45.0, 5.02), station(3, 45.0, 5.03));
+        index.recordQuery(45.0, 5.0, 10_000, found, found.size());
+
+        assertThat(index.findFresh(45.0, 5.0, 2_000, 20)).hasSize(2);
+        assertThat(index.findFresh(45.0, 5.0, 5_000, 20)).isNull();
+    }
+
+    @Test
+    void partiallyCoveredSearchOnlyAsksForTheMissingZone() {
+        // Deux recherches voisines de 25 km ; une recherche de 15 km à cheval dépasse leur union seulement au nord
+        OpenAqLocation west = station(1, 45.05, 5.1);
+        OpenAqLocation east = station(2, 45.05, 5.25);
+        index.recordQuery(45.0, 5.0, 25_000, List.of(west), 20);
+        index.recordQuery(45.0, 5.3, 25_000, List.of(east), 20);
+
+        StationSpatialIndex.Lookup lookup = index.lookup(45.1, 5.15, 15_000);
+
+        assertThat(lookup.indexed()).containsExactlyInAnyOrder(west, east);
+        // Moins de la moitié de la surface est redemandée
+        assertThat(lookup.missing()).isNotEmpty();
+        assertThat(lookup.missing().stream().mapToDouble(zone -> zone.radius() * zone.radius()).sum())
+                .isLessThan(15_000.0 * 15_000 / 2);
+        // Le point le plus au nord de la recherche, hors des deux disques, est dans une zone manquante
+        double northLat = 45.1 + 15_000 / 111_320.0;
+        assertThat(lookup.missing()).anySatisfy(zone -> assertThat(
+                GeoMath.distanceMeters(zone.latitude(), zone.longitude(), northLat, 5.15))
+                .isLessThanOrEqualTo(zone.radius()));
+
+        OpenAqLocation north = station(3, 45.22, 5.15);
+        OpenAqLocation westAgain = station(1, 45.05, 5.1);
+        assertThat(lookup.merge(List.of(north, westAgain), 20)).containsExactly(westAgain, east, north);
+    }
+
+    @Test
+    void uncoveredSearchAsksForTheWholeDisc() {
+        StationSpatialIndex.Lookup lookup = index.lookup(45.0, 5.0, 10_000);
+
+        assertThat(lookup.indexed()).isEmpty();
+        assertThat(lookup.missing()).containsExactly(new StationSpatialIndex.Zone(45.0, 5.0, 10_000));
+    }
+
+    @Test
+    void expiredCellsAreEvictedWithTheirStations() {
+        index.recordQuery(45.0, 5.0, 10_000, List.of(station(1, 45.0, 5.01)), 20);
+        assertThat(registry.get("airquality.spatial.stations").gauge().value()).isEqualTo(1);
+
+        assertThat(index.evictTouchedBefore(System.currentTimeMillis() - 60_000)).isZero();
+        assertThat(index.evictTouchedBefore(System.currentTimeMillis() + 1)).isPositive();
+
+        assertThat(registry.get("airquality.spatial.cells").gauge().value()).isZero();
+        assertThat(registry.get("airquality.spatial.stations").gauge().value()).isZero();
+        assertThat(index.findFresh(45.0, 5.0, 5_000, 20)).isNull();
+    }
+
+    private static OpenAqLocation station(int id, double latitude, double longitude) {
+        return new OpenAqLocation(id, "Station " + id, "France", latitude, longitude, Map.of());
+    }
+}
@@ -0,0 +1,88 @@
+package com.formation.airquality.history;
+
+import com.formation.airquality.model.HistorySummary;
+import com.formation.airquality.openaq.LatestMeasurement;
+import com.formation.airquality.openaq.OpenAqLocation;
+import com.formation.airquality.openaq.SensorParameter;
+import com.formation.airquality.openaq.StationReadings;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MeasurementHistoryTest {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final MeasurementHistory history = new MeasurementHistory(registry, 168, 3, Duration.ofDays(7));
+
+    @Test
+    void idleStationsAreEvictedAndFreeTheirSeriesUnderTheCap() {
+        history.record(readings(1, 48.85, 2.35));
+        history.record(readings(2, 48.86, 2.36));
+        history.record(readings(3, 48.87, 2.37));
+
+        // Plafond de 3 séries atteint dès la deuxième station : les séries suivantes sont ignorées
+        assertThat(gauge("airquality.history.series")).isEqualTo(3.0);
+        assertThat(registry.get("airquality.history.dropped").counter().count()).isEqualTo(3.0);
+
+        long cutoff = System.currentTimeMillis() + 1;
+        assertThat(history.evictRecordedBefore(cutoff)).isEqualTo(3);
+        assertThat(gauge("airquality.history.series")).isZero();
+        assertThat(gauge("airquality.history.stations")).isZero();
+
+        history.record(readings(3, 48.87, 2.37));
+        assertThat(gauge("airquality.history.series")).isEqualTo(2.0);
+    }
+
+    @Test
+    void recentlyRecordedStationsAreKept() {
+        history.record(readings(1, 48.85, 2.35));
+
+        assertThat(history.evictRecordedBefore(System.currentTimeMillis() - Duration.ofDays(7).toMillis())).isZero();
+
+        HistorySummary summary = history.summarize("Paris", 48.85, 2.35, 25_000, Duration.ofHours(24), Duration.ofHours(1));
+        assertThat(summary.getStations()).isEqualTo(1);
+        assertThat(summary.getParameters()).hasSize(2);
+    }
+
+    @Test
+    void sampleTakenNowFallsInTheLastStep() {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MINUTES);
+        history.record(readings(1, 48.85, 2.35, now));
+        // Exactement 24 h avant : hors de la fenêtre de 24 h qui se termine maintenant
+        history.record(readings(2, 48.86, 2.36, now.minus(24, ChronoUnit.HOURS)));
+
+        HistorySummary summary = history.summarize("Paris", 48.85, 2.35, 25_000, Duration.ofHours(24), Duration.ofHours(1));
+
+        assertThat(summary.getStations()).isEqualTo(1);
+        assertThat(summary.getParameters()).allSatisfy(parameter -> {
+            assertThat(parameter.getSamples()).isEqualTo(1);
+            assertThat(parameter.getSeries()).hasSize(1);
+        });
+    }
+
+    private double gauge(String name) {
+        return registry.get(name).gauge().value();
+    }
+
+    private static StationReadings readings(int id, double latitude, double longitude) {
+        return readings(id, latitude, longitude, Instant.now().minus(1, ChronoUnit.HOURS).truncatedTo(ChronoUnit.HOURS));
+    }
+
+    private static StationReadings readings(int id, double latitude, double longitude, Instant measuredAt) {
+        String datetime = measuredAt.toString();
+        OpenAqLocation location = new OpenAqLocation(id, "station " + id, "France", latitude, longitude, Map.of(
+                id * 10, new SensorParameter("no2", "µg/m³"),
+                id * 10 + 1, new SensorParameter("pm25", "µg/m³")));
+        return new StationReadings(location, List.of(
+                new LatestMeasurement(id * 10, 40.0, datetime),
+                new LatestMeasurement(id * 10 + 1, 12.0, datetime)));
+    }
+}
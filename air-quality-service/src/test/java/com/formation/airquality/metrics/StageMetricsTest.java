@@ -0,0 +1,106 @@
+package com.formation.airquality.metrics;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.context.Scope;
+import io.prometheus.metrics.model.registry.PrometheusRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StageMetricsTest {
+
+    private static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+    private static final String SPAN_ID = "00f067aa0ba902b7";
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final StageMetrics stageMetrics = new StageMetrics(registry);
+
+    @Test
+    void stagesAreTimedSeparatelyByOutcome() {
+        // Appels synchrones : la mesure (doFinally) est faite avant le retour de block()
+        stageMetrics.timed(StageMetrics.Stage.LOCATIONS, Mono.fromCallable(() -> {
+            Thread.sleep(20);
+            return "ok";
+        })).block();
+        stageMetrics.timed(StageMetrics.Stage.LATEST, Mono.error(new IllegalStateException("502"))).onErrorComplete()
+                .block();
+        // Requête abandonnée à l'échéance : comptée à part
+        Disposable abandoned = stageMetrics.timed(StageMetrics.Stage.LATEST, Mono.never()).subscribe();
+        abandoned.dispose();
+        stageMetrics.record(StageMetrics.Stage.PARSE, TimeUnit.MILLISECONDS.toNanos(3));
+
+        assertThat(stage("locations", "success").count()).isEqualTo(1);
+        assertThat(stage("locations", "success").totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(20);
+        assertThat(stage("latest", "error").count()).isEqualTo(1);
+        assertThat(stage("latest", "cancelled").count()).isEqualTo(1);
+        assertThat(stage("latest", "success").count()).isZero();
+        assertThat(stage("parse", "success").totalTime(TimeUnit.MILLISECONDS)).isEqualTo(3);
+    }
+
+    @Test
+    void everyStageAndOutcomeIsRegisteredUpFront() {
+        // Séries présentes dès le démarrage : les taux d'erreur ne sont jamais "no data"
+        assertThat(registry.get("airquality.stage.duration").timers())
+                .hasSize(StageMetrics.Stage.values().length * 3);
+    }
+
+    @Test
+    void cityRequestsAndResponseSizesAreTaggedByCity() {
+        stageMetrics.recordCityRequest("Paris", TimeUnit.MILLISECONDS.toNanos(120));
+        stageMetrics.recordCityRequest(StageMetrics.OTHER_CITY, TimeUnit.MILLISECONDS.toNanos(80));
+        stageMetrics.recordMeasurements("city", "Paris", 7);
+
+        assertThat(registry.get("airquality.city.duration").tag("city", "Paris").timer().count()).isEqualTo(1);
+        assertThat(registry.get("airquality.city.duration").tag("city", "other").timer().count()).isEqualTo(1);
+        assertThat(registry.get("airquality.response.measurements").tag("query", "city").tag("city", "Paris")
+                .summary().totalAmount()).isEqualTo(7);
+    }
+
+    @Test
+    void histogramBucketsCarryTheCurrentTraceAsExemplar() {
+        PrometheusMeterRegistry prometheus = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT,
+                new PrometheusRegistry(), Clock.SYSTEM, new TraceExemplarSpanContext());
+        // Équivalent de management.metrics.distribution.percentiles-histogram dans application.yml
+        prometheus.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                return DistributionStatisticConfig.builder().percentilesHistogram(true).build().merge(config);
+            }
+        });
+        StageMetrics traced = new StageMetrics(prometheus);
+        Span span = Span.wrap(SpanContext.create(TRACE_ID, SPAN_ID, TraceFlags.getSampled(), TraceState.getDefault()));
+
+        try (Scope ignored = span.makeCurrent()) {
+            traced.record(StageMetrics.Stage.LATEST, TimeUnit.MILLISECONDS.toNanos(42));
+        }
+        traced.record(StageMetrics.Stage.PARSE, TimeUnit.MILLISECONDS.toNanos(2));
+
+        String scrape = prometheus.scrape("application/openmetrics-text; version=1.0.0; charset=utf-8");
+        assertThat(scrape.lines().filter(line -> line.startsWith("airquality_stage_duration_seconds_bucket")
+                        && line.contains("stage=\"latest\"") && line.contains("trace_id=\"" + TRACE_ID + "\""))
+                .findAny()).isPresent();
+        // Sans trace active, pas d'exemplaire
+        assertThat(scrape.lines().filter(line -> line.contains("stage=\"parse\"") && line.contains("trace_id"))
+                .findAny()).isEmpty();
+    }
+
+    private Timer stage(String stage, String outcome) {
+        return registry.get("airquality.stage.duration").tag("stage", stage).tag("outcome", outcome).timer();
+    }
+}
@@ -0,0 +1,81 @@
+package com.formation.airquality.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VirtualThreadPinningMetricsTest {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void onlyActiveWithVirtualThreads() {
+        // Conversion "20ms" -> Duration comme dans l'application
+        ApplicationContextRunner runner = new ApplicationContextRunner()
+                .withInitializer(context -> context.getBeanFactory()
+                        .setConversionService(ApplicationConversionService.getSharedInstance()))
+                .withBean(MeterRegistry.class, () -> registry)
+                .withUserConfiguration(VirtualThreadPinningMetrics.class);
+
+        runner.run(context -> assertThat(context).doesNotHaveBean(VirtualThreadPinningMetrics.class));
+        runner.withPropertyValues("spring.threads.virtual.enabled=true").run(context -> {
+            assertThat(context).hasSingleBean(VirtualThreadPinningMetrics.class);
+            assertThat(context.getBean(VirtualThreadPinningMetrics.class).isRunning()).isTrue();
+        });
+    }
+
+    @Test
+    void recordingStreamIsClosedOnStop() {
+        VirtualThreadPinningMetrics metrics = new VirtualThreadPinningMetrics(registry, Duration.ofMillis(20));
+
+        metrics.start();
+        assertThat(metrics.isRunning()).isTrue();
+        metrics.stop();
+
+        assertThat(metrics.isRunning()).isFalse();
+        assertThat(registry.get("airquality.virtualthreads.pinned").timer().count()).isZero();
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    void blockingInsideSynchronizedIsRecordedAsPinning() throws Exception {
+        VirtualThreadPinningMetrics metrics = new VirtualThreadPinningMetrics(registry, Duration.ofMillis(20));
+        metrics.start();
+        // Compilé pour Java 17 : l'exécuteur de threads virtuels est obtenu par réflexion
+        ExecutorService virtualThreads = (ExecutorService) Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        try {
+            Object lock = new Object();
+            virtualThreads.submit(() -> {
+                synchronized (lock) {
+                    Thread.sleep(100);
+                }
+                return null;
+            }).get(5, TimeUnit.SECONDS);
+
+            // Les événements JFR sont livrés au flux par lots (environ une fois par seconde)
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (registry.get("airquality.virtualthreads.pinned").timer().count() == 0
+                    && System.nanoTime() < deadline) {
+                Thread.sleep(100);
+            }
+        } finally {
+            virtualThreads.shutdownNow();
+            metrics.stop();
+        }
+
+        assertThat(registry.get("airquality.virtualthreads.pinned").timer().max(TimeUnit.MILLISECONDS))
+                .isGreaterThanOrEqualTo(100);
+    }
+}
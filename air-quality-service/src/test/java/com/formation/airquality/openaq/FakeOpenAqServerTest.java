@@ -0,0 +1,125 @@
+package com.formation.airquality.openaq;
+
+import com.formation.airquality.geo.GeoMath;
+import com.formation.airquality.metrics.StageMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Contrat entre le faux serveur du banc de charge hors ligne (scripts/fake-openaq.py) et le vrai client :
+ * les réponses doivent se décoder comme celles d'OpenAQ, sans quoi les mesures de charge ne valent rien.
+ * Ignoré si python3 n'est pas disponible.
+ */
+class FakeOpenAqServerTest {
+
+    private static final Path SCRIPT = Path.of("..", "scripts", "fake-openaq.py");
+
+    private static Process server;
+    private static int port;
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    @BeforeAll
+    static void startFakeServer() throws Exception {
+        assumeTrue(Files.exists(SCRIPT), "scripts/fake-openaq.py not found");
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        // Métadonnées de remplissage : le décodeur doit les ignorer sans se désynchroniser
+        ProcessBuilder builder = new ProcessBuilder("python3", SCRIPT.toString(), "--host", "127.0.0.1",
+                "--port", String.valueOf(port), "--latency", "none", "--locations", "20", "--sensors", "4",
+                "--padding-bytes", "2048")
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        try {
+            server = builder.start();
+        } catch (IOException e) {
+            assumeTrue(false, "python3 not available: " + e.getMessage());
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!accepting() && System.nanoTime() < deadline) {
+            assumeTrue(server.isAlive(), "fake OpenAQ server exited");
+            Thread.sleep(50);
+        }
+        assumeTrue(accepting(), "fake OpenAQ server did not start");
+    }
+
+    @AfterAll
+    static void stopFakeServer() throws InterruptedException {
+        if (server != null) {
+            server.destroy();
+            server.waitFor(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void locationsAreDecodedNearestFirstWithinTheRadius() {
+        List<OpenAqLocation> locations = client().findLocations(48.8566, 2.3522, 10_000, 20)
+                .block(Duration.ofSeconds(5));
+
+        assertThat(locations).hasSize(20).allSatisfy(location -> {
+            assertThat(location.countryName()).isEqualTo("France");
+            assertThat(location.sensors()).hasSize(4);
+            assertThat(GeoMath.distanceMeters(48.8566, 2.3522, location.latitude(), location.longitude()))
+                    .isLessThanOrEqualTo(10_000);
+        });
+        assertThat(locations).extracting(location ->
+                        GeoMath.distanceMeters(48.8566, 2.3522, location.latitude(), location.longitude()))
+                .isSorted();
+        // Grille fixe : une recherche voisine renvoie les mêmes stations (à égalité de distance près)
+        assertThat(client().findLocations(48.8567, 2.3523, 10_000, 20).block(Duration.ofSeconds(5)))
+                .extracting(OpenAqLocation::id)
+                .containsExactlyInAnyOrderElementsOf(locations.stream().map(OpenAqLocation::id).toList());
+    }
+
+    @Test
+    void latestMeasurementsMatchTheAnnouncedSensors() {
+        OpenAqClient client = client();
+        OpenAqLocation location = client.findLocations(45.764, 4.8357, 5_000, 1).block(Duration.ofSeconds(5)).get(0);
+
+        List<LatestMeasurement> latest = client.fetchLatest(location.id(), 10).block(Duration.ofSeconds(5));
+
+        assertThat(latest).extracting(LatestMeasurement::sensorId)
+                .containsExactlyInAnyOrderElementsOf(location.sensors().keySet());
+        assertThat(latest).allSatisfy(measurement -> {
+            assertThat(measurement.value()).isBetween(1.0, 120.0);
+            assertThat(measurement.datetimeUtc()).endsWith("Z");
+        });
+    }
+
+    private OpenAqClient client() {
+        UpstreamRateLimiter rateLimiter = new UpstreamRateLimiter(registry, false, 60, 50, 0.25, 1, 16, 0.5, 200);
+        UpstreamCircuitBreaker circuitBreaker = new UpstreamCircuitBreaker(registry, false, 50, 20, 10,
+                Duration.ofSeconds(2), Duration.ofSeconds(30), 3, 32);
+        UpstreamHedging hedging = new UpstreamHedging(registry, rateLimiter, false, 0.95, Duration.ofMillis(20), 50, 10);
+        return new OpenAqClient(WebClient.builder(), new ReactorClientHttpConnector(), hedging, circuitBreaker,
+                rateLimiter, new StageMetrics(registry), "http://127.0.0.1:" + port + "/v3", "");
+    }
+
+    private static boolean accepting() {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress("127.0.0.1", port), 200);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
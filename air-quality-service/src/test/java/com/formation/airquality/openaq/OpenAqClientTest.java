@@ -0,0 +1,89 @@
+package com.formation.airquality.openaq;
+
+import com.formation.airquality.metrics.StageMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OpenAqClientTest {
+
+    private static final int CHUNK_BYTES = 64 * 1024;
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicInteger chunksSent = new AtomicInteger();
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+
+    @Test
+    void bodyIsDecodedChunkByChunk() {
+        OpenAqClient client = client(chunked("{\"results\": [{\"sensorsId\": 1, \"value\": 2.0},", 0,
+                " {\"sensorsId\": 2, \"value\": 3.0}]}"));
+
+        assertThat(client.fetchLatest(1, 10).block(Duration.ofSeconds(5)))
+                .extracting(LatestMeasurement::value)
+                .containsExactly(2.0, 3.0);
+        assertThat(registry.get("airquality.stage.duration").tag("stage", "parse").tag("outcome", "success").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void oversizedBodyIsCancelledAtTheCap() {
+        // 16 Mo de stations annoncés, seuls les 4 premiers Mo (et un morceau) sont lus
+        int chunks = 256;
+        OpenAqClient client = client(chunked("{\"results\": [", chunks, "]}"));
+
+        assertThatThrownBy(() -> client.findLocations(48.86, 2.35, 10_000, 20).block(Duration.ofSeconds(5)))
+                .isInstanceOf(DataBufferLimitException.class);
+        assertThat(cancelled).isTrue();
+        assertThat(chunksSent.get()).isLessThan(chunks / 2);
+    }
+
+    // Début, morceaux de remplissage (stations) puis fin du corps
+    private Flux<DataBuffer> chunked(String head, int fillers, String tail) {
+        String filler = filler();
+        return Flux.concat(Flux.just(head),
+                        Flux.range(0, fillers).map(i -> (i == 0 ? "" : ",") + filler),
+                        Flux.just(tail))
+                .doOnNext(chunk -> chunksSent.incrementAndGet())
+                .doOnCancel(() -> cancelled.set(true))
+                .map(chunk -> DefaultDataBufferFactory.sharedInstance.wrap(chunk.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String filler() {
+        String station = "{\"id\": 1, \"name\": \"Station\"}";
+        StringBuilder chunk = new StringBuilder(station);
+        while (chunk.length() + station.length() + 1 < CHUNK_BYTES) {
+            chunk.append(',').append(station);
+        }
+        return chunk.toString();
+    }
+
+    private OpenAqClient client(Flux<DataBuffer> body) {
+        WebClient.Builder builder = WebClient.builder().exchangeFunction(request -> Mono.just(
+                ClientResponse.create(HttpStatus.OK)
+                        .header("Content-Type", "application/json")
+                        .body(body)
+                        .build()));
+        UpstreamRateLimiter rateLimiter = new UpstreamRateLimiter(registry, false, 60, 50, 0.25, 1, 16, 0.5, 200);
+        UpstreamCircuitBreaker circuitBreaker = new UpstreamCircuitBreaker(registry, false, 50, 20, 10,
+                Duration.ofSeconds(2), Duration.ofSeconds(30), 3, 32);
+        UpstreamHedging hedging = new UpstreamHedging(registry, rateLimiter, false, 0.95, Duration.ofMillis(20), 50, 10);
+        return new OpenAqClient(builder, new ReactorClientHttpConnector(), hedging, circuitBreaker, rateLimiter,
+                new StageMetrics(registry), "http://openaq.test/v3", "");
+    }
+}
@@ -0,0 +1,163 @@
+package com.formation.airquality.openaq;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OpenAqStreamingDecoderTest {
+
+    private static final int CHUNK_BYTES = 7;
+
+    @Test
+    void decodesV3LocationsAndSkipsUnusedSubtrees() throws IOException {
+        List<OpenAqLocation> locations = locations(resource("locations-paris.json"));
+
+        assertThat(locations).hasSize(2);
+        OpenAqLocation paris18 = locations.get(0);
+        assertThat(paris18.id()).isEqualTo(2995);
+        assertThat(paris18.name()).isEqualTo("Paris 18ème");
+        assertThat(paris18.countryName()).isEqualTo("France");
+        assertThat(paris18.latitude()).isEqualTo(48.89167);
+        assertThat(paris18.longitude()).isEqualTo(2.34667);
+        assertThat(paris18.sensors()).containsEntry(7773, new SensorParameter("no2", "µg/m³"))
+                .containsEntry(7774, new SensorParameter("pm25", "µg/m³"))
+                // "name" null : repli sur "displayName"
+                .containsEntry(7775, new SensorParameter("O₃ mass", "µg/m³"));
+
+        OpenAqLocation anonymous = locations.get(1);
+        assertThat(anonymous.id()).isEqualTo(3023);
+        assertThat(anonymous.name()).isNull();
+        assertThat(anonymous.countryName()).isNull();
+        assertThat(anonymous.sensors()).containsOnlyKeys(7801);
+    }
+
+    @Test
+    void decodesV3LatestUpToTheLimit() throws IOException {
+        List<LatestMeasurement> all = latest(resource("latest-paris.json"), 10);
+        List<LatestMeasurement> firstTwo = latest(resource("latest-paris.json"), 2);
+
+        assertThat(all).containsExactly(
+                new LatestMeasurement(7773, 41.2, "2025-01-15T10:00:00Z"),
+                new LatestMeasurement(7774, 12.7, "2025-01-15T10:00:00Z"),
+                new LatestMeasurement(7775, 38.0, "2025-01-15T09:00:00Z"));
+        assertThat(firstTwo).containsExactlyElementsOf(all.subList(0, 2));
+    }
+
+    @Test
+    void missingFieldsKeepTheirDefaults() throws IOException {
+        List<OpenAqLocation> locations = locations(bytes(
+                "{\"results\": [{\"id\": 1}]}"));
+        List<LatestMeasurement> latest = latest(bytes(
+                "{\"results\": [{\"value\": 3.5}]}"), 10);
+
+        assertThat(locations).containsExactly(new OpenAqLocation(1, null, null, 0.0, 0.0, Map.of()));
+        assertThat(latest).containsExactly(new LatestMeasurement(0, 3.5, null));
+    }
+
+    @Test
+    void nullFieldsKeepTheirDefaults() throws IOException {
+        List<OpenAqLocation> locations = locations(bytes("""
+                {"results": [{"id": 2, "name": null, "country": null, "coordinates": null, "sensors": null},
+                             {"id": 3, "coordinates": {"latitude": null, "longitude": 2.5}}]}
+                """));
+        List<LatestMeasurement> latest = latest(bytes("""
+                {"results": [{"sensorsId": 9, "value": null, "datetime": null}]}
+                """), 10);
+
+        assertThat(locations).extracting(OpenAqLocation::id).containsExactly(2, 3);
+        assertThat(locations.get(1).longitude()).isEqualTo(2.5);
+        assertThat(latest).containsExactly(new LatestMeasurement(9, 0.0, null));
+    }
+
+    @Test
+    void unexpectedTypesAreSkippedWithoutDesynchronisingTheParser() throws IOException {
+        // Chaque champ connu reçoit un type inattendu ; la station suivante doit rester intacte
+        List<OpenAqLocation> locations = locations(bytes("""
+                {"results": [
+                  {"id": {"value": 5}, "name": ["x"], "country": "FR", "coordinates": [48.8, 2.3],
+                   "sensors": {"id": 1}},
+                  {"id": 6, "sensors": [42, {"id": {"n": 1}, "parameter": {"name": "no2"}},
+                                        {"id": 8, "parameter": "no2"},
+                                        {"id": 9, "parameter": {"id": {"x": 1}, "name": "pm10", "units": null}}],
+                   "coordinates": {"latitude": {"deg": 48}, "longitude": 2.3}},
+                  {"id": 7, "name": "Gennevilliers"}
+                ]}
+                """));
+        List<LatestMeasurement> latest = latest(bytes("""
+                {"results": [
+                  {"sensorsId": {"id": 1}, "value": {"v": 1}, "datetime": "2025-01-15T10:00:00Z"},
+                  {"sensorsId": 2, "value": [1, 2], "datetime": {"utc": {"t": 1}, "local": "x"}},
+                  {"sensorsId": 3, "value": 4.0, "datetime": {"utc": "2025-01-15T10:00:00Z"}}
+                ]}
+                """), 10);
+
+        assertThat(locations).extracting(OpenAqLocation::id).containsExactly(0, 6, 7);
+        assertThat(locations.get(0).name()).isNull();
+        assertThat(locations.get(0).countryName()).isNull();
+        assertThat(locations.get(0).sensors()).isEmpty();
+        assertThat(locations.get(1).latitude()).isZero();
+        assertThat(locations.get(1).longitude()).isEqualTo(2.3);
+        assertThat(locations.get(1).sensors()).containsOnlyKeys(9)
+                .containsEntry(9, new SensorParameter("pm10", ""));
+        assertThat(locations.get(2).name()).isEqualTo("Gennevilliers");
+
+        assertThat(latest).containsExactly(
+                new LatestMeasurement(0, 0.0, null),
+                new LatestMeasurement(2, 0.0, null),
+                new LatestMeasurement(3, 4.0, "2025-01-15T10:00:00Z"));
+    }
+
+    @Test
+    void bodyWithoutResultsDecodesToAnEmptyList() throws IOException {
+        assertThat(locations(bytes("{\"meta\": {\"found\": 0}}"))).isEmpty();
+        assertThat(locations(bytes("{\"results\": null}"))).isEmpty();
+        assertThat(latest(bytes("[]"), 10)).isEmpty();
+    }
+
+    @Test
+    void stopsReadingOnceTheLimitIsReached() throws IOException {
+        // La suite du corps, même invalide, n'est plus analysée
+        assertThat(latest(bytes("{\"results\": [{\"sensorsId\": 1, \"value\": 2.0}, {\"sensorsId\": !!!"), 1))
+                .containsExactly(new LatestMeasurement(1, 2.0, null));
+    }
+
+    @Test
+    void truncatedBodyIsAnError() {
+        assertThatThrownBy(() -> locations(bytes("{\"results\": [{\"id\": 1}, {\"id\": 2")))
+                .isInstanceOf(JsonParseException.class);
+    }
+
+    private static List<OpenAqLocation> locations(byte[] json) throws IOException {
+        return feed(OpenAqStreamingDecoder.locationsFeeder(), json);
+    }
+
+    private static List<LatestMeasurement> latest(byte[] json, int maxResults) throws IOException {
+        return feed(OpenAqStreamingDecoder.latestFeeder(maxResults), json);
+    }
+
+    // Corps reçu en morceaux de quelques octets : tokens et caractères UTF-8 coupés entre deux morceaux
+    private static <T> List<T> feed(OpenAqStreamingDecoder.ResultsFeeder<T> feeder, byte[] json) throws IOException {
+        for (int offset = 0; offset < json.length; offset += CHUNK_BYTES) {
+            feeder.feed(json, offset, Math.min(CHUNK_BYTES, json.length - offset));
+        }
+        return feeder.finish();
+    }
+
+    private static byte[] resource(String name) throws IOException {
+        try (InputStream in = OpenAqStreamingDecoderTest.class.getResourceAsStream("/openaq/" + name)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] bytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}
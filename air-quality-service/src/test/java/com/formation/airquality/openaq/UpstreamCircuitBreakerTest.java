@@ -0,0 +1,183 @@
+package com.formation.airquality.openaq;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UpstreamCircuitBreakerTest {
+
+    private static final Duration OPEN_DURATION = Duration.ofMillis(100);
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void failureRateAboveThresholdOpensTheCircuitAndRejectsWithoutCalling() {
+        UpstreamCircuitBreaker breaker = breaker(Duration.ofSeconds(5), Duration.ofHours(1), 8);
+        succeed(breaker);
+        succeed(breaker);
+        fail(breaker);
+        assertThat(breaker.state()).isEqualTo(UpstreamCircuitBreaker.State.CLOSED);
+
+        fail(breaker);
+        assertThat(breaker.state()).isEqualTo(UpstreamCircuitBreaker.State.OPEN);
+
+        AtomicInteger emitted = new AtomicInteger();
+        assertThatThrownBy(() -> breaker.call(Mono.fromCallable(emitted::incrementAndGet)).block())
+                .isInstanceOf(UpstreamUnavailableException.class)
+                .hasMessageContaining("circuit breaker open");
+        assertThat(emitted).hasValue(0);
+        assertThat(rejected("circuit_open")).isEqualTo(1.0);
+    }
+
+    @Test
+    void clientErrorsDoNotCountAsFailures() {
+        UpstreamCircuitBreaker breaker = breaker(Duration.ofSeconds(5), Duration.ofHours(1), 8);
+
+        for (int i = 0; i < 4; i++) {
+            complete(breaker.call(Mono.error(WebClientResponseException.create(404, "Not Found", null, null, null))));
+        }
+
+        assertThat(breaker.state()).isEqualTo(UpstreamCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void successfulTrialCallsCloseTheCircuitAfterTheOpenDuration() throws InterruptedException {
+        UpstreamCircuitBreaker breaker = opened();
+
+        Thread.sleep(OPEN_DURATION.toMillis() + 50);
+        assertThat(breaker.state()).isEqualTo(UpstreamCircuitBreaker.State.HALF_OPEN);
+
+        succeed(breaker);
+        assertThat(breaker.state()).isEqualTo(UpstreamCircuitBreaker.State.HALF_OPEN);
+        succeed(breaker);
+        assertThat(breaker.state()).isEqualTo(UpstreamCircuitBreaker.State.CLOSED);
+
+        // Fenêtre remise à zéro : un échec isolé ne rouvre pas le circuit
+        fail(breaker);
+        assertThat(breaker.state()).isEqualTo(UpstreamCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void failedTrialCallReopensTheCircuit() throws InterruptedException {
+        UpstreamCircuitBreaker breaker = opened();
+        Thread.sleep(OPEN_DURATION.toMillis() + 50);
+
+        fail(breaker);
+
+        assertThat(breaker.state()).isEqualTo(UpstreamCircuitBreaker.State.OPEN);
+        assertThatThrownBy(() -> breaker.call(Mono.just(1)).block()).isInstanceOf(UpstreamUnavailableException.class);
+    }
+
+    @Test
+    void halfOpenLetsOnlyTheTrialCallsThrough() throws InterruptedException {
+        UpstreamCircuitBreaker breaker = opened();
+        Thread.sleep(OPEN_DURATION.toMillis() + 50);
+
+        Disposable first = breaker.call(Mono.never()).subscribe();
+        Disposable second = breaker.call(Mono.never()).subscribe();
+
+        assertThatThrownBy(() -> breaker.call(Mono.just(1)).block()).isInstanceOf(UpstreamUnavailableException.class);
+
+        // Essai annulé avant le seuil de lenteur : sa place est rendue
+        first.dispose();
+        assertThat(breaker.call(Mono.just(1)).block()).isEqualTo(1);
+        second.dispose();
+    }
+
+    @Test
+    void slowCallsCountAsFailuresEvenWhenTheySucceed() {
+        UpstreamCircuitBreaker breaker = breaker(Duration.ofMillis(20), Duration.ofHours(1), 8);
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(breaker.call(Mono.delay(Duration.ofMillis(40)).thenReturn(i)).block()).isEqualTo(i);
+        }
+
+        assertThat(breaker.state()).isEqualTo(UpstreamCircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void callsCancelledByATimeoutPastTheSlowThresholdCountAsFailures() {
+        UpstreamCircuitBreaker breaker = breaker(Duration.ofMillis(20), Duration.ofHours(1), 8);
+
+        for (int i = 0; i < 4; i++) {
+            complete(breaker.call(Mono.never()).timeout(Duration.ofMillis(40)));
+        }
+
+        assertThat(breaker.state()).isEqualTo(UpstreamCircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void fullBulkheadRejectsImmediatelyAndFreesItsSlotOnCompletion() {
+        UpstreamCircuitBreaker breaker = breaker(Duration.ofSeconds(5), Duration.ofHours(1), 1);
+
+        Disposable holder = breaker.call(Mono.never()).subscribe();
+        assertThat(registry.get("airquality.bulkhead.active").gauge().value()).isEqualTo(1.0);
+
+        assertThatThrownBy(() -> breaker.call(Mono.just(1)).block())
+                .isInstanceOf(UpstreamUnavailableException.class)
+                .hasMessageContaining("bulkhead full");
+        assertThat(rejected("bulkhead_full")).isEqualTo(1.0);
+        // Un refus du bulkhead ne dit rien de l'état d'OpenAQ
+        assertThat(breaker.state()).isEqualTo(UpstreamCircuitBreaker.State.CLOSED);
+
+        holder.dispose();
+        assertThat(registry.get("airquality.bulkhead.active").gauge().value()).isZero();
+        assertThat(breaker.call(Mono.just(1)).block()).isEqualTo(1);
+    }
+
+    @Test
+    void disabledBreakerPassesCallsThrough() {
+        UpstreamCircuitBreaker breaker = new UpstreamCircuitBreaker(registry, false, 50, 4, 4,
+                Duration.ofSeconds(5), Duration.ofHours(1), 2, 1);
+
+        for (int i = 0; i < 8; i++) {
+            fail(breaker);
+        }
+        Disposable holder = breaker.call(Mono.never()).subscribe();
+
+        assertThat(breaker.call(Mono.just(1)).block()).isEqualTo(1);
+        assertThat(breaker.state()).isEqualTo(UpstreamCircuitBreaker.State.CLOSED);
+        holder.dispose();
+    }
+
+    // Fenêtre de 4 appels, ouverture à 50 % d'échecs, 2 appels d'essai
+    private UpstreamCircuitBreaker breaker(Duration slowCallThreshold, Duration openDuration, int maxConcurrentCalls) {
+        return new UpstreamCircuitBreaker(registry, true, 50, 4, 4,
+                slowCallThreshold, openDuration, 2, maxConcurrentCalls);
+    }
+
+    private UpstreamCircuitBreaker opened() {
+        UpstreamCircuitBreaker breaker = breaker(Duration.ofSeconds(5), OPEN_DURATION, 8);
+        for (int i = 0; i < 4; i++) {
+            fail(breaker);
+        }
+        assertThat(breaker.state()).isEqualTo(UpstreamCircuitBreaker.State.OPEN);
+        return breaker;
+    }
+
+    private double rejected(String reason) {
+        return registry.get("airquality.circuit.rejected").tag("reason", reason).counter().count();
+    }
+
+    private static void succeed(UpstreamCircuitBreaker breaker) {
+        assertThat(breaker.call(Mono.just("ok")).block()).isEqualTo("ok");
+    }
+
+    private static void fail(UpstreamCircuitBreaker breaker) {
+        complete(breaker.call(Mono.error(new TimeoutException("upstream"))));
+    }
+
+    private static void complete(Mono<?> call) {
+        call.onErrorResume(e -> Mono.empty()).block(Duration.ofSeconds(5));
+    }
+}
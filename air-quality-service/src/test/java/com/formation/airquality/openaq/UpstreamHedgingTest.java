@@ -0,0 +1,120 @@
+package com.formation.airquality.openaq;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UpstreamHedgingTest {
+
+    // Délai de doublon : le centile des appels d'amorçage est quasi nul, min-delay s'applique
+    private static final Duration HEDGE_DELAY = Duration.ofSeconds(1);
+    private static final int MIN_SAMPLES = 5;
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final UpstreamHedging hedging = new UpstreamHedging(registry,
+            new UpstreamRateLimiter(registry, false, 60, 20, 0.25, 1, 16, 0.5, 200),
+            true, 0.95, HEDGE_DELAY, MIN_SAMPLES, 100);
+
+    @Test
+    void clientErrorSurfacesWithoutWaitingForTheHedgeDelay() {
+        warmUp();
+        AtomicInteger calls = new AtomicInteger();
+        WebClientResponseException badRequest = WebClientResponseException.create(400, "Bad Request", null, null, null);
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> hedging.call("latest", () -> Mono.defer(() -> {
+                    calls.incrementAndGet();
+                    return Mono.error(badRequest);
+                })).block(Duration.ofSeconds(3)))
+                .isInstanceOf(WebClientResponseException.BadRequest.class);
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertThat(elapsed).isLessThan(HEDGE_DELAY.dividedBy(4));
+        assertThat(calls).hasValue(1);
+        assertThat(hedged("sent")).isZero();
+    }
+
+    @Test
+    void fastServerErrorSurfacesAtOnceBeforeAnyHedge() {
+        warmUp();
+        WebClientResponseException unavailable =
+                WebClientResponseException.create(503, "Service Unavailable", null, null, null);
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> hedging.call("latest", () -> Mono.error(unavailable)).block(Duration.ofSeconds(3)))
+                .isInstanceOf(WebClientResponseException.ServiceUnavailable.class);
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(HEDGE_DELAY.dividedBy(4));
+        assertThat(hedged("sent")).isZero();
+    }
+
+    @Test
+    void slowPrimaryIsHedgedAndTheFirstAnswerWins() {
+        warmUp();
+        AtomicInteger calls = new AtomicInteger();
+
+        String value = hedging.call("latest", () -> Mono.defer(() ->
+                        calls.incrementAndGet() == 1 ? Mono.<String>never() : Mono.just("hedge")))
+                .block(Duration.ofSeconds(3));
+
+        assertThat(value).isEqualTo("hedge");
+        assertThat(calls).hasValue(2);
+        assertThat(hedged("sent")).isEqualTo(1.0);
+        assertThat(hedged("won")).isEqualTo(1.0);
+    }
+
+    @Test
+    void retryablePrimaryFailureAfterTheHedgeLeftLetsTheHedgeAnswer() {
+        warmUp();
+        AtomicInteger calls = new AtomicInteger();
+
+        // L'appel principal échoue en 5xx une fois le doublon parti : le doublon répond
+        String value = hedging.call("latest", () -> Mono.defer(() -> calls.incrementAndGet() == 1 ?
+                        Mono.<String>error(WebClientResponseException.create(502, "Bad Gateway", null, null, null))
+                                .delaySubscription(HEDGE_DELAY.plusMillis(100)) :
+                        Mono.just("hedge").delayElement(Duration.ofMillis(200))))
+                .block(Duration.ofSeconds(3));
+
+        assertThat(value).isEqualTo("hedge");
+    }
+
+    @Test
+    void noHedgeBeforeEnoughSamples() {
+        AtomicInteger calls = new AtomicInteger();
+
+        String value = hedging.call("locations", () -> Mono.defer(() -> {
+                    calls.incrementAndGet();
+                    return Mono.just("primary").delayElement(HEDGE_DELAY.plusMillis(100));
+                }))
+                .block(Duration.ofSeconds(3));
+
+        assertThat(value).isEqualTo("primary");
+        assertThat(calls).hasValue(1);
+    }
+
+    private void warmUp() {
+        for (int i = 0; i < MIN_SAMPLES; i++) {
+            hedging.call("latest", () -> Mono.just("ok")).block();
+        }
+        // Le centile n'est relu qu'une fois par seconde
+        try {
+            Thread.sleep(1100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        hedging.call("latest", () -> Mono.just("ok")).block();
+    }
+
+    private double hedged(String outcome) {
+        return registry.get("airquality.hedging.requests").tag("endpoint", "latest").tag("outcome", outcome)
+                .counter().count();
+    }
+}
@@ -0,0 +1,138 @@
+package com.formation.airquality.openaq;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UpstreamRateLimiterTest {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void cancellationRacingTheGrantNeverLeaksConcurrency() {
+        UpstreamRateLimiter limiter = limiter(1, 2);
+
+        // Timeouts de l'ordre du temps d'attribution : des annulations tombent entre drain() et la reprise
+        for (int round = 0; round < 300; round++) {
+            List<Mono<Long>> calls = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                long timeoutMicros = ThreadLocalRandom.current().nextLong(1, 300);
+                calls.add(limiter.call(Mono.delay(Duration.ofMillis(1)))
+                        .timeout(Duration.ofNanos(timeoutMicros * 1000), Schedulers.parallel())
+                        .onErrorResume(TimeoutException.class, e -> Mono.empty()));
+            }
+            Flux.merge(calls).blockLast(Duration.ofSeconds(10));
+        }
+
+        assertThat(limiter.inFlight()).isZero();
+        assertThat(queued("interactive")).isZero();
+        assertThat(limiter.call(Mono.just(42)).block(Duration.ofSeconds(1))).isEqualTo(42);
+    }
+
+    @Test
+    void cancelledWaiterLeavesTheQueueAndReleasedCallFreesItsSlot() {
+        UpstreamRateLimiter limiter = limiter(1, 1);
+
+        Disposable holder = limiter.call(Mono.never()).subscribe();
+        Disposable waiting = limiter.call(Mono.just(1)).subscribe();
+        assertThat(limiter.inFlight()).isEqualTo(1);
+        assertThat(queued("interactive")).isEqualTo(1);
+
+        waiting.dispose();
+        assertThat(queued("interactive")).isZero();
+
+        holder.dispose();
+        assertThat(limiter.inFlight()).isZero();
+    }
+
+    @Test
+    void tooManyRequestsHalvesTheLimitOncePerCooldownAndEmptiesTheBucket() {
+        UpstreamRateLimiter limiter = limiter(60, 20, 1, 16);
+
+        respond(limiter, HttpStatus.TOO_MANY_REQUESTS);
+        respond(limiter, HttpStatus.TOO_MANY_REQUESTS);
+
+        assertThat(concurrencyLimit()).isEqualTo(8.0);
+        assertThat(registry.get("airquality.ratelimit.backoff").tag("cause", "429").counter().count()).isEqualTo(1.0);
+        assertThat(registry.get("airquality.ratelimit.tokens").gauge().value()).isLessThan(1.0);
+    }
+
+    @Test
+    void serverErrorsNeverPushTheLimitBelowTheMinimum() {
+        UpstreamRateLimiter limiter = limiter(60, 20, 4, 6);
+
+        respond(limiter, HttpStatus.SERVICE_UNAVAILABLE);
+
+        assertThat(concurrencyLimit()).isEqualTo(4.0);
+        assertThat(registry.get("airquality.ratelimit.backoff").tag("cause", "5xx").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void successesRaiseTheLimitByAboutOnePerWindow() {
+        UpstreamRateLimiter limiter = limiter(60, 20, 1, 16);
+        respond(limiter, HttpStatus.TOO_MANY_REQUESTS);
+
+        for (int i = 0; i < 8; i++) {
+            respond(limiter, HttpStatus.OK);
+        }
+
+        // 8 + 1/8 + 1/8.125 + ... après 8 succès
+        assertThat(concurrencyLimit()).isGreaterThan(8.9).isLessThan(9.0);
+    }
+
+    @Test
+    void remainingQuotaHeaderCapsTheBucket() {
+        UpstreamRateLimiter limiter = limiter(60, 20, 1, 16);
+
+        respond(limiter, HttpStatus.OK, "x-ratelimit-remaining", "3");
+
+        assertThat(registry.get("airquality.ratelimit.tokens").gauge().value()).isLessThan(3.1);
+    }
+
+    private UpstreamRateLimiter limiter(int minConcurrency, int maxConcurrency) {
+        // Débit élevé : seule la concurrence limite les appels
+        return limiter(600_000, 1_000_000, minConcurrency, maxConcurrency);
+    }
+
+    private UpstreamRateLimiter limiter(double requestsPerMinute, int burst, int minConcurrency, int maxConcurrency) {
+        return new UpstreamRateLimiter(registry, true, requestsPerMinute, burst, 0.0,
+                minConcurrency, maxConcurrency, 0.5, 200);
+    }
+
+    private double concurrencyLimit() {
+        return registry.get("airquality.ratelimit.concurrency.limit").gauge().value();
+    }
+
+    private double queued(String priority) {
+        return registry.get("airquality.ratelimit.queued").tag("priority", priority).gauge().value();
+    }
+
+    private static void respond(UpstreamRateLimiter limiter, HttpStatus status, String... headers) {
+        ClientResponse.Builder builder = ClientResponse.create(status);
+        for (int i = 0; i < headers.length; i += 2) {
+            builder.header(headers[i], headers[i + 1]);
+        }
+        ClientResponse response = builder.build();
+        limiter.responseObserver()
+                .filter(ClientRequest.create(HttpMethod.GET, URI.create("http://openaq.test/v3/locations")).build(),
+                        request -> Mono.just(response))
+                .block();
+    }
+}
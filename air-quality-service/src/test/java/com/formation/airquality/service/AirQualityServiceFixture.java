@@ -0,0 +1,64 @@
+package com.formation.airquality.service;
+
+import com.formation.airquality.cache.CoalescingCache;
+import com.formation.airquality.geo.StationSpatialIndex;
+import com.formation.airquality.history.MeasurementHistory;
+import com.formation.airquality.metrics.StageMetrics;
+import com.formation.airquality.model.AirQualityData;
+import com.formation.airquality.openaq.LatestMeasurement;
+import com.formation.airquality.openaq.OpenAqClient;
+import com.formation.airquality.openaq.OpenAqLocation;
+import com.formation.airquality.openaq.SensorParameter;
+import com.formation.airquality.openaq.StationReadings;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * {@link AirQualityService} réel autour d'un {@link OpenAqClient} simulé (ou fourni), avec des caches et une
+ * échéance réglables pour les tests.
+ */
+final class AirQualityServiceFixture {
+
+    final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    final OpenAqClient openAqClient;
+    final CoalescingCache<String, List<AirQualityData>> cityCache;
+    final CoalescingCache<Integer, StationReadings> locationCache;
+    final CitySnapshot citySnapshot = new CitySnapshot(registry, Duration.ofHours(1));
+    final StationSpatialIndex spatialIndex = new StationSpatialIndex(registry, 0.05, Duration.ofHours(6));
+    final MeasurementHistory history = new MeasurementHistory(registry, 168, 30_000, Duration.ofDays(7));
+    final AirQualityService service;
+
+    AirQualityServiceFixture(Duration cityTtl, Duration locationTtl, Duration requestDeadline) {
+        this(mock(OpenAqClient.class), cityTtl, locationTtl, requestDeadline);
+    }
+
+    AirQualityServiceFixture(OpenAqClient openAqClient, Duration cityTtl, Duration locationTtl,
+                             Duration requestDeadline) {
+        this.openAqClient = openAqClient;
+        this.cityCache = new CoalescingCache<>("city", cityTtl, 200, registry);
+        this.locationCache = new CoalescingCache<>("location", locationTtl, 5000, registry);
+        WarmStartSnapshot warmStart = new WarmStartSnapshot(cityCache, locationCache, citySnapshot, history, registry,
+                false, Path.of("unused.snapshot").toString(), Duration.ofHours(6), cityTtl);
+        this.service = new AirQualityService(openAqClient, registry, new StageMetrics(registry), cityCache,
+                locationCache, citySnapshot, warmStart, spatialIndex, history,
+                true, 0.01, 100, 8, 8, 7, requestDeadline, 0.5, Duration.ofHours(6));
+    }
+
+    /**
+     * Station mesurant le NO2 (capteur {@code id * 10}) à la position donnée.
+     */
+    static OpenAqLocation station(int id, double latitude, double longitude) {
+        return new OpenAqLocation(id, "Station " + id, "France", latitude, longitude,
+                Map.of(id * 10, new SensorParameter("no2", "µg/m³")));
+    }
+
+    static List<LatestMeasurement> no2(OpenAqLocation station, double value) {
+        return List.of(new LatestMeasurement(station.id() * 10, value, "2025-01-15T10:00:00Z"));
+    }
+}
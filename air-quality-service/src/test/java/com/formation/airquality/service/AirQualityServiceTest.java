@@ -0,0 +1,127 @@
+package com.formation.airquality.service;
+
+import com.formation.airquality.model.AirQualityData;
+import com.formation.airquality.openaq.OpenAqLocation;
+import com.formation.airquality.openaq.UpstreamUnavailableException;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.formation.airquality.service.AirQualityServiceFixture.no2;
+import static com.formation.airquality.service.AirQualityServiceFixture.station;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+class AirQualityServiceTest {
+
+    private static final String PARIS = AirQualityService.cityCacheKey("Paris", "FR");
+
+    private final OpenAqLocation first = station(1, 48.86, 2.35);
+    private final OpenAqLocation second = station(2, 48.87, 2.36);
+
+    @Test
+    void brownoutAfterAGoodResponseServesStaleDataAndKeepsItCached() throws InterruptedException {
+        AirQualityServiceFixture fixture = new AirQualityServiceFixture(Duration.ofMillis(200), Duration.ofMillis(1),
+                Duration.ofSeconds(2));
+        when(fixture.openAqClient.findLocations(anyDouble(), anyDouble(), anyInt(), anyInt()))
+                .thenReturn(Mono.just(List.of(first, second)));
+        when(fixture.openAqClient.fetchLatest(eq(1), anyInt())).thenReturn(Mono.just(no2(first, 40)));
+        when(fixture.openAqClient.fetchLatest(eq(2), anyInt())).thenReturn(Mono.just(no2(second, 20)));
+        assertThat(fixture.service.getLatestMeasurementsReactive("Paris", "FR").block()).hasSize(2);
+
+        Thread.sleep(250);
+        when(fixture.openAqClient.fetchLatest(anyInt(), anyInt()))
+                .thenReturn(Mono.error(new IllegalStateException("502 Bad Gateway")));
+
+        List<AirQualityData> served = fixture.service.getLatestMeasurementsReactive("Paris", "FR").block();
+
+        assertThat(served).hasSize(2).allSatisfy(data -> assertThat(data.getStale()).isTrue());
+        // L'échec n'a pas remplacé la dernière réponse connue par une liste vide
+        assertThat(fixture.cityCache.getStale(PARIS).value()).hasSize(2);
+    }
+
+    @Test
+    void brownoutWithoutFallbackFailsInsteadOfCachingAnEmptyList() {
+        AirQualityServiceFixture fixture = new AirQualityServiceFixture(Duration.ofMinutes(10), Duration.ofMinutes(10),
+                Duration.ofMillis(300));
+        when(fixture.openAqClient.findLocations(anyDouble(), anyDouble(), anyInt(), anyInt()))
+                .thenReturn(Mono.just(List.of(first, second)));
+        when(fixture.openAqClient.fetchLatest(anyInt(), anyInt())).thenReturn(Mono.never());
+
+        assertThatThrownBy(() -> fixture.service.getLatestMeasurementsReactive("Paris", "FR").block())
+                .isInstanceOf(UpstreamUnavailableException.class)
+                .hasMessageContaining("No OpenAQ station answered");
+        assertThat(fixture.cityCache.getStale(PARIS)).isNull();
+    }
+
+    @Test
+    void stationsWithoutMeasurementsStillGiveAnEmptyAnswer() {
+        AirQualityServiceFixture fixture = new AirQualityServiceFixture(Duration.ofMinutes(10), Duration.ofMinutes(10),
+                Duration.ofSeconds(2));
+        when(fixture.openAqClient.findLocations(anyDouble(), anyDouble(), anyInt(), anyInt()))
+                .thenReturn(Mono.just(List.of(first)));
+        when(fixture.openAqClient.fetchLatest(anyInt(), anyInt())).thenReturn(Mono.just(List.of()));
+
+        assertThat(fixture.service.getLatestMeasurementsReactive("Paris", "FR").block()).isEmpty();
+    }
+
+    @Test
+    void inFlightGaugeCountsRequestsWaitingOnOpenAq() throws Exception {
+        AirQualityServiceFixture fixture = new AirQualityServiceFixture(Duration.ofMinutes(10), Duration.ofMinutes(10),
+                Duration.ofSeconds(5));
+        Sinks.One<List<OpenAqLocation>> locations = Sinks.one();
+        when(fixture.openAqClient.findLocations(anyDouble(), anyDouble(), anyInt(), anyInt()))
+                .thenReturn(locations.asMono());
+        when(fixture.openAqClient.fetchLatest(eq(1), anyInt())).thenReturn(Mono.just(no2(first, 40)));
+
+        // Chemin bloquant, sur un thread de requête (virtuel si spring.threads.virtual.enabled=true)
+        CompletableFuture<List<AirQualityData>> blocking = CompletableFuture.supplyAsync(
+                () -> fixture.service.getLatestMeasurements("Lyon", "FR"));
+        Disposable reactive = fixture.service.getLatestMeasurementsReactive("Paris", "FR").subscribe();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (inFlight(fixture) < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(inFlight(fixture)).isEqualTo(2);
+
+        reactive.dispose();
+        locations.tryEmitValue(List.of(first));
+        assertThat(blocking.get(5, TimeUnit.SECONDS)).hasSize(1);
+        assertThat(inFlight(fixture)).isZero();
+    }
+
+    @Test
+    void cityTagIsLimitedToKnownCities() {
+        AirQualityServiceFixture fixture = new AirQualityServiceFixture(Duration.ofMinutes(10), Duration.ofMinutes(10),
+                Duration.ofSeconds(2));
+        when(fixture.openAqClient.findLocations(anyDouble(), anyDouble(), anyInt(), anyInt()))
+                .thenReturn(Mono.just(List.of(first)));
+        when(fixture.openAqClient.fetchLatest(anyInt(), anyInt())).thenReturn(Mono.just(no2(first, 40)));
+
+        fixture.service.getLatestMeasurementsReactive("paris", "FR").block();
+        fixture.service.getLatestMeasurementsReactive("Atlantis", "FR").block();
+        fixture.service.getLatestMeasurements("Ys", "FR");
+
+        // Nom canonique pour une ville connue, "other" pour toutes les autres : pas de série par saisie utilisateur
+        assertThat(fixture.registry.get("airquality.city.duration").timers())
+                .extracting(timer -> timer.getId().getTag("city"))
+                .containsExactlyInAnyOrder("Paris", "other");
+        assertThat(fixture.registry.get("airquality.city.duration").tag("city", "other").timer().count())
+                .isEqualTo(2);
+    }
+
+    private static double inFlight(AirQualityServiceFixture fixture) {
+        return fixture.registry.get("airquality.requests.inflight").gauge().value();
+    }
+}
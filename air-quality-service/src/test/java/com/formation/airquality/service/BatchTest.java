@@ -0,0 +1,80 @@
+package com.formation.airquality.service;
+
+import com.formation.airquality.model.BatchRequest;
+import com.formation.airquality.model.BatchResult;
+import com.formation.airquality.openaq.OpenAqLocation;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static com.formation.airquality.service.AirQualityServiceFixture.no2;
+import static com.formation.airquality.service.AirQualityServiceFixture.station;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BatchTest {
+
+    private final AirQualityServiceFixture fixture = new AirQualityServiceFixture(Duration.ofMinutes(10),
+            Duration.ofMinutes(10), Duration.ofSeconds(5));
+    private final OpenAqLocation first = station(1, 48.86, 2.35);
+    private final OpenAqLocation second = station(2, 48.87, 2.36);
+
+    @Test
+    void duplicateCitiesAndOverlappingPointsShareTheirUpstreamCalls() {
+        when(fixture.openAqClient.findLocations(anyDouble(), anyDouble(), anyInt(), anyInt()))
+                .thenReturn(Mono.just(List.of(first, second)).delayElement(Duration.ofMillis(20)));
+        when(fixture.openAqClient.fetchLatest(eq(1), anyInt()))
+                .thenReturn(Mono.just(no2(first, 40)).delayElement(Duration.ofMillis(20)));
+        when(fixture.openAqClient.fetchLatest(eq(2), anyInt()))
+                .thenReturn(Mono.just(no2(second, 20)).delayElement(Duration.ofMillis(20)));
+        BatchRequest request = new BatchRequest(
+                List.of(new BatchRequest.CityQuery("Paris", "FR"), new BatchRequest.CityQuery("paris", "FR")),
+                List.of(new BatchRequest.PointQuery(48.86, 2.35, 5_000)));
+
+        List<BatchResult> results = batch(request);
+
+        // Un résultat par entrée, les deux orthographes de Paris résolues vers la même ville
+        assertThat(results).extracting(BatchResult::getKey)
+                .containsExactlyInAnyOrder("city:Paris:FR", "city:Paris:FR", "point:48.86:2.35:5000");
+        assertThat(results).allSatisfy(result -> {
+            assertThat(result.getError()).isNull();
+            assertThat(result.getData()).hasSize(2);
+        });
+        // Une recherche par ville distincte et par point, un seul /latest par station pour tout le lot
+        verify(fixture.openAqClient, times(2)).findLocations(anyDouble(), anyDouble(), anyInt(), anyInt());
+        verify(fixture.openAqClient, times(1)).fetchLatest(eq(1), anyInt());
+        verify(fixture.openAqClient, times(1)).fetchLatest(eq(2), anyInt());
+    }
+
+    @Test
+    void failedEntryIsReportedWithoutFailingTheBatch() {
+        when(fixture.openAqClient.findLocations(eq(48.8566), anyDouble(), anyInt(), anyInt()))
+                .thenReturn(Mono.just(List.of(first)));
+        when(fixture.openAqClient.findLocations(eq(45.764), anyDouble(), anyInt(), anyInt()))
+                .thenReturn(Mono.error(new IllegalStateException("502 Bad Gateway")));
+        when(fixture.openAqClient.fetchLatest(eq(1), anyInt())).thenReturn(Mono.just(no2(first, 40)));
+        BatchRequest request = new BatchRequest(
+                List.of(new BatchRequest.CityQuery("Paris", "FR"), new BatchRequest.CityQuery("Lyon", "FR")),
+                List.of());
+
+        Map<String, BatchResult> results = batch(request).stream()
+                .collect(Collectors.toMap(BatchResult::getKey, result -> result));
+
+        assertThat(results.get("city:Paris:FR").getData()).hasSize(1);
+        assertThat(results.get("city:Lyon:FR").getData()).isNull();
+        assertThat(results.get("city:Lyon:FR").getError()).contains("502 Bad Gateway");
+    }
+
+    private List<BatchResult> batch(BatchRequest request) {
+        return fixture.service.getBatch(request).collectList().block(Duration.ofSeconds(10));
+    }
+}
@@ -0,0 +1,77 @@
+package com.formation.airquality.service;
+
+import com.formation.airquality.model.AirQualityData;
+import com.formation.airquality.openaq.OpenAqLocation;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+import static com.formation.airquality.service.AirQualityServiceFixture.no2;
+import static com.formation.airquality.service.AirQualityServiceFixture.station;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+
+class CitySnapshotRefresherTest {
+
+    private static final String PARIS = AirQualityService.cityCacheKey("Paris", "FR");
+
+    // Échéance courte : les /latest suspendus sont abandonnés vite ; cache des stations expiré à chaque passage
+    private final AirQualityServiceFixture fixture = new AirQualityServiceFixture(Duration.ofMinutes(10),
+            Duration.ofMillis(1), Duration.ofMillis(300));
+    // Toutes les villes connues en parallèle, sans jitter
+    private final CitySnapshotRefresher refresher = new CitySnapshotRefresher(fixture.service, fixture.citySnapshot,
+            fixture.registry, 64, Duration.ZERO);
+
+    private final OpenAqLocation station = station(1, 48.86, 2.35);
+
+    @Test
+    void refreshSwapsInEveryKnownCity() {
+        upstreamAnswers(42);
+
+        refresher.refresh();
+
+        assertThat(fixture.citySnapshot.entries()).hasSize(AirQualityService.knownCities().size());
+        assertThat(fixture.citySnapshot.get(PARIS)).extracting(AirQualityData::getValue).containsExactly(42.0);
+        assertThat(fixture.cityCache.getStale(PARIS).value()).hasSize(1);
+        assertThat(fixture.registry.get("airquality.snapshot.cities").gauge().value())
+                .isEqualTo(AirQualityService.knownCities().size());
+    }
+
+    @Test
+    void citiesWhoseLatestCallsAllTimeOutKeepTheirPreviousSnapshot() throws InterruptedException {
+        upstreamAnswers(42);
+        refresher.refresh();
+        List<AirQualityData> previous = fixture.citySnapshot.get(PARIS);
+        long previousFetchedAt = fixture.citySnapshot.entries().get(PARIS).fetchedAtMillis();
+
+        Thread.sleep(5);
+        when(fixture.openAqClient.fetchLatest(anyInt(), anyInt())).thenReturn(Mono.never());
+        refresher.refresh();
+
+        assertThat(fixture.citySnapshot.get(PARIS)).isSameAs(previous);
+        assertThat(fixture.citySnapshot.entries().get(PARIS).fetchedAtMillis()).isEqualTo(previousFetchedAt);
+        assertThat(fixture.citySnapshot.entries()).hasSize(AirQualityService.knownCities().size());
+        assertThat(fixture.cityCache.getStale(PARIS).value()).isSameAs(previous);
+    }
+
+    @Test
+    void cityWithoutAnyStationIsNotSwappedInEmpty() {
+        when(fixture.openAqClient.findLocations(anyDouble(), anyDouble(), anyInt(), anyInt()))
+                .thenReturn(Mono.just(List.of()));
+
+        refresher.refresh();
+
+        assertThat(fixture.citySnapshot.entries()).isEmpty();
+        assertThat(fixture.cityCache.size()).isZero();
+    }
+
+    private void upstreamAnswers(double value) {
+        when(fixture.openAqClient.findLocations(anyDouble(), anyDouble(), anyInt(), anyInt()))
+                .thenReturn(Mono.just(List.of(station)));
+        when(fixture.openAqClient.fetchLatest(anyInt(), anyInt())).thenReturn(Mono.just(no2(station, value)));
+    }
+}
@@ -0,0 +1,68 @@
+package com.formation.airquality.service;
+
+import com.formation.airquality.model.AirQualityData;
+import com.formation.airquality.openaq.OpenAqLocation;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.formation.airquality.service.AirQualityServiceFixture.no2;
+import static com.formation.airquality.service.AirQualityServiceFixture.station;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class CitySnapshotTest {
+
+    private static final String PARIS = AirQualityService.cityCacheKey("Paris", "FR");
+
+    private final AirQualityServiceFixture fixture = new AirQualityServiceFixture(Duration.ofMinutes(10),
+            Duration.ofMinutes(10), Duration.ofSeconds(2));
+    private final List<AirQualityData> prefetched = List.of(new AirQualityData("Station 9", "France", 48.86, 2.35,
+            "no2", 12.0, "µg/m³", "2025-01-15T10:00:00Z", 12, "Bon", null, null));
+
+    @Test
+    void prefetchedCityIsServedWithoutUpstreamCall() {
+        fixture.citySnapshot.swap(Map.of(PARIS, new CitySnapshot.Entry(prefetched, System.currentTimeMillis())), 5);
+
+        assertThat(fixture.service.getLatestMeasurements("Paris", "FR")).isSameAs(prefetched);
+        assertThat(fixture.service.getLatestMeasurementsReactive("paris", "FR").block()).isSameAs(prefetched);
+        verifyNoInteractions(fixture.openAqClient);
+    }
+
+    @Test
+    void swapReplacesTheWholeSnapshot() {
+        String lyon = AirQualityService.cityCacheKey("Lyon", "FR");
+        fixture.citySnapshot.swap(Map.of(PARIS, new CitySnapshot.Entry(prefetched, System.currentTimeMillis())), 5);
+
+        fixture.citySnapshot.swap(Map.of(lyon, new CitySnapshot.Entry(prefetched, System.currentTimeMillis())), 7);
+
+        assertThat(fixture.citySnapshot.get(PARIS)).isNull();
+        assertThat(fixture.citySnapshot.get(lyon)).isSameAs(prefetched);
+        assertThat(fixture.registry.get("airquality.snapshot.cities").gauge().value()).isEqualTo(1);
+        assertThat(fixture.registry.get("airquality.snapshot.refresh.duration").timeGauge()
+                .value(TimeUnit.MILLISECONDS)).isEqualTo(7);
+    }
+
+    @Test
+    void entryOlderThanTheMaxAgeIsFetchedOnDemand() {
+        // Dernier rafraîchissement réussi pour Paris il y a plus d'une heure (airquality.prefetch.max-age)
+        long twoHoursAgo = System.currentTimeMillis() - Duration.ofHours(2).toMillis();
+        fixture.citySnapshot.swap(Map.of(PARIS, new CitySnapshot.Entry(prefetched, twoHoursAgo)), 5);
+        OpenAqLocation fresh = station(1, 48.86, 2.35);
+        when(fixture.openAqClient.findLocations(anyDouble(), anyDouble(), anyInt(), anyInt()))
+                .thenReturn(Mono.just(List.of(fresh)));
+        when(fixture.openAqClient.fetchLatest(anyInt(), anyInt())).thenReturn(Mono.just(no2(fresh, 40)));
+
+        assertThat(fixture.citySnapshot.get(PARIS)).isNull();
+        assertThat(fixture.service.getLatestMeasurementsReactive("Paris", "FR").block())
+                .extracting(AirQualityData::getValue)
+                .containsExactly(40.0);
+    }
+}
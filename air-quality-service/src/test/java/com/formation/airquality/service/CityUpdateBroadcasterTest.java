@@ -0,0 +1,150 @@
+package com.formation.airquality.service;
+
+import com.formation.airquality.model.AirQualityData;
+import com.formation.airquality.model.CityUpdate;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CityUpdateBroadcasterTest {
+
+    private static final Duration REFRESH = Duration.ofMinutes(1);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AirQualityService airQualityService = mock(AirQualityService.class);
+    private final CityUpdateBroadcaster broadcaster = new CityUpdateBroadcaster(airQualityService, registry, REFRESH);
+    private final AtomicInteger polls = new AtomicInteger();
+
+    @Test
+    void subscribersOfTheSameCityShareOneUpstreamPoll() {
+        // NO2 puis PM10 changent à chaque rafraîchissement
+        upstream(List.of(no2(40), pm10(20)), List.of(no2(40), pm10(25)));
+
+        StepVerifier.withVirtualTime(() -> Flux.merge(paris(), paris(), paris()))
+                .expectNextCount(3)
+                .thenAwait(REFRESH)
+                .expectNextCount(3)
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+
+        assertThat(polls).hasValue(2);
+    }
+
+    @Test
+    void onlyChangedEntriesAreBroadcast() {
+        upstream(List.of(no2(40), pm10(20)), List.of(no2(40), pm10(25)), List.of(no2(40), pm10(25)),
+                List.of(no2(55), pm10(25)));
+
+        StepVerifier.withVirtualTime(this::paris)
+                .assertNext(update -> assertUpdate(update, "snapshot", 40, 20))
+                .thenAwait(REFRESH)
+                .assertNext(update -> assertUpdate(update, "update", 25))
+                // Rien n'a changé au troisième rafraîchissement
+                .thenAwait(REFRESH)
+                .expectNoEvent(REFRESH.minusSeconds(1))
+                .thenAwait(Duration.ofSeconds(1))
+                .assertNext(update -> assertUpdate(update, "update", 55))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void lateSubscriberReceivesTheCurrentStateWithoutAnotherPoll() {
+        upstream(List.of(no2(40), pm10(20)), List.of(no2(40), pm10(25)));
+
+        StepVerifier.withVirtualTime(() -> Flux.merge(paris(), Mono.delay(Duration.ofSeconds(10)).thenMany(paris())))
+                .assertNext(update -> assertUpdate(update, "snapshot", 40, 20))
+                .thenAwait(Duration.ofSeconds(10))
+                .assertNext(update -> assertUpdate(update, "snapshot", 40, 20))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+
+        assertThat(polls).hasValue(1);
+    }
+
+    @Test
+    void slowSubscriberGetsOneConflatedUpdateWithTheLatestValues() {
+        upstream(List.of(no2(40), pm10(20)), List.of(no2(41), pm10(20)), List.of(no2(42), pm10(30)),
+                List.of(no2(43), pm10(30)));
+
+        // Aucune demande pendant trois rafraîchissements : le snapshot attend dans flatMap, les trois changements
+        // suivants sont fusionnés en un seul événement sans être perdus
+        StepVerifier.withVirtualTime(this::paris, 0)
+                .thenAwait(REFRESH.multipliedBy(3))
+                .thenRequest(1)
+                .assertNext(update -> assertUpdate(update, "snapshot", 40, 20))
+                .thenRequest(1)
+                .assertNext(update -> assertUpdate(update, "update", 43, 30))
+                .thenRequest(1)
+                .expectNoEvent(Duration.ofSeconds(1))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+
+        assertThat(registry.get("airquality.stream.conflated").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void cityFeedIsRemovedWithItsLastSubscriber() {
+        upstream(List.of(no2(40)), List.of(no2(45)));
+
+        StepVerifier.withVirtualTime(this::paris)
+                .assertNext(update -> assertUpdate(update, "snapshot", 40))
+                .then(() -> assertThat(registry.get("airquality.stream.cities").gauge().value()).isEqualTo(1))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+
+        assertThat(registry.get("airquality.stream.cities").gauge().value()).isZero();
+        assertThat(registry.get("airquality.stream.subscribers").gauge().value()).isZero();
+
+        // Nouvel abonné : nouveau rafraîchissement, état complet
+        StepVerifier.withVirtualTime(this::paris)
+                .assertNext(update -> assertUpdate(update, "snapshot", 45))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+        assertThat(polls).hasValue(2);
+    }
+
+    private Flux<CityUpdate> paris() {
+        return broadcaster.subscribe(List.of("Paris"));
+    }
+
+    // Réponses successives de /city ; la dernière est répétée
+    @SafeVarargs
+    private void upstream(List<AirQualityData>... answers) {
+        when(airQualityService.getLatestMeasurementsReactive("Paris", "FR")).thenAnswer(invocation -> {
+            int poll = polls.getAndIncrement();
+            return Mono.just(answers[Math.min(poll, answers.length - 1)]);
+        });
+    }
+
+    private static void assertUpdate(CityUpdate update, String type, double... values) {
+        assertThat(update.getType()).isEqualTo(type);
+        assertThat(update.getCity()).isEqualTo("Paris");
+        assertThat(update.getData()).extracting(AirQualityData::getValue)
+                .containsExactly(Arrays.stream(values).boxed().toArray(Double[]::new));
+    }
+
+    private static AirQualityData no2(double value) {
+        return measurement("no2", value);
+    }
+
+    private static AirQualityData pm10(double value) {
+        return measurement("pm10", value);
+    }
+
+    private static AirQualityData measurement(String parameter, double value) {
+        return new AirQualityData("Station 1", "France", 48.86, 2.35, parameter, value, "µg/m³",
+                "2025-01-15T10:00:00Z", (int) value, "Moyen", null, null);
+    }
+}
@@ -0,0 +1,109 @@
+package com.formation.airquality.service;
+
+import com.formation.airquality.metrics.StageMetrics;
+import com.formation.airquality.model.AirQualityData;
+import com.formation.airquality.openaq.OpenAqClient;
+import com.formation.airquality.openaq.UpstreamCircuitBreaker;
+import com.formation.airquality.openaq.UpstreamHedging;
+import com.formation.airquality.openaq.UpstreamRateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Deux requêtes /city à froid simultanées derrière le régulateur de débit avec ses réglages par défaut :
+ * chacune coûte jusqu'à 21 jetons, la rafale doit les absorber sans attente au-delà de l'échéance.
+ */
+class ColdCityQuotaTest {
+
+    private static final Pattern LATEST = Pattern.compile("/locations/(\\d+)/latest");
+    private static final Duration UPSTREAM_LATENCY = Duration.ofMillis(50);
+    private static final int STATIONS = 20;
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private final AtomicInteger locationCalls = new AtomicInteger();
+
+    @Test
+    void twoConcurrentColdCitiesFitTheDefaultBurst() {
+        AirQualityServiceFixture fixture = new AirQualityServiceFixture(client(defaultLimiter()),
+                Duration.ofMinutes(10), Duration.ofMinutes(10), Duration.ofSeconds(5));
+
+        List<List<AirQualityData>> answers = Mono.zip(
+                        fixture.service.getLatestMeasurementsReactive("Paris", "FR"),
+                        fixture.service.getLatestMeasurementsReactive("Lyon", "FR"))
+                .map(both -> List.of(both.getT1(), both.getT2()))
+                .block(Duration.ofSeconds(10));
+
+        // Les 21 appels de chaque ville ont abouti avant l'échéance
+        assertThat(answers).allSatisfy(data -> assertThat(data).hasSize(STATIONS / 2));
+        assertThat(upstreamCalls).hasValue(2 * (1 + STATIONS));
+        assertThat(fixture.registry.get("airquality.deadline.dropped").tag("stage", "latest").counter().count())
+                .isZero();
+        assertThat(registry.get("airquality.ratelimit.wait").tag("priority", "interactive").timer()
+                .max(TimeUnit.MILLISECONDS)).isLessThan(1000);
+    }
+
+    // Mêmes valeurs que les défauts de openaq.rate-limit.*
+    private UpstreamRateLimiter defaultLimiter() {
+        return new UpstreamRateLimiter(registry, true, 60, 50, 0.25, 1, 16, 0.5, 200);
+    }
+
+    private OpenAqClient client(UpstreamRateLimiter rateLimiter) {
+        WebClient.Builder builder = WebClient.builder().exchangeFunction(request -> {
+            upstreamCalls.incrementAndGet();
+            Matcher latest = LATEST.matcher(request.url().getPath());
+            String body = latest.find() ? latest(Integer.parseInt(latest.group(1)))
+                    : locations(locationCalls.getAndIncrement() * 100);
+            return Mono.just(ClientResponse.create(HttpStatus.OK)
+                            .header("Content-Type", "application/json")
+                            .body(body)
+                            .build())
+                    .delayElement(UPSTREAM_LATENCY);
+        });
+        UpstreamCircuitBreaker circuitBreaker = new UpstreamCircuitBreaker(registry, true, 50, 20, 10,
+                Duration.ofSeconds(2), Duration.ofSeconds(30), 3, 32);
+        UpstreamHedging hedging = new UpstreamHedging(registry, rateLimiter, false, 0.95, Duration.ofMillis(20), 50, 10);
+        return new OpenAqClient(builder, new ReactorClientHttpConnector(), hedging, circuitBreaker, rateLimiter,
+                new StageMetrics(registry), "http://openaq.test/v3", "");
+    }
+
+    // Stations distinctes pour chaque ville : aucune réponse /latest n'est partagée entre les deux
+    private static String locations(int firstId) {
+        StringBuilder results = new StringBuilder();
+        for (int id = firstId + 1; id <= firstId + STATIONS; id++) {
+            if (id > firstId + 1) {
+                results.append(',');
+            }
+            results.append("""
+                    {"id": %d, "name": "Station %d", "country": {"name": "France"},
+                     "sensors": [{"id": %d, "parameter": {"name": "no2", "units": "µg/m³"}}],
+                     "coordinates": {"latitude": 48.86, "longitude": 2.35}}""".formatted(id, id, id * 10));
+        }
+        return "{\"results\": [" + results + "]}";
+    }
+
+    // Une station sur deux sans mesure : les 20 stations sont interrogées pour réunir 10 mesures
+    private static String latest(int id) {
+        if (id % 2 == 1) {
+            return "{\"results\": []}";
+        }
+        return """
+                {"results": [{"datetime": {"utc": "2025-01-15T10:00:00Z"}, "value": 40.0, "sensorsId": %d}]}"""
+                .formatted(id * 10);
+    }
+}
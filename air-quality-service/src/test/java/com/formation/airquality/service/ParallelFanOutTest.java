@@ -0,0 +1,96 @@
+package com.formation.airquality.service;
+
+import com.formation.airquality.model.AirQualityData;
+import com.formation.airquality.openaq.OpenAqLocation;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+import static com.formation.airquality.service.AirQualityServiceFixture.no2;
+import static com.formation.airquality.service.AirQualityServiceFixture.station;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+
+/**
+ * Fan-out des appels /locations/{id}/latest d'une requête /city : ordre des stations, concurrence bornée
+ * (openaq.fanout.concurrency = 8 dans la fixture) et fin de la requête dès les 10 mesures réunies.
+ */
+class ParallelFanOutTest {
+
+    private final AirQualityServiceFixture fixture = new AirQualityServiceFixture(Duration.ofMinutes(10),
+            Duration.ofMinutes(10), Duration.ofSeconds(5));
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final AtomicInteger started = new AtomicInteger();
+
+    @Test
+    void measurementsKeepTheStationOrderWhateverTheResponseOrder() {
+        // Les premières stations répondent le plus lentement
+        List<OpenAqLocation> stations = stations(5);
+        answerLatest(stations, id -> Duration.ofMillis(100 - id * 15L));
+
+        assertThat(fixture.service.getLatestMeasurementsReactive("Paris", "FR").block(Duration.ofSeconds(5)))
+                .extracting(AirQualityData::getValue)
+                .containsExactly(1.0, 2.0, 3.0, 4.0, 5.0);
+    }
+
+    @Test
+    void stationCallsRunInParallelUpToTheConfiguredConcurrency() {
+        List<OpenAqLocation> stations = stations(20);
+        when(fixture.openAqClient.findLocations(anyDouble(), anyDouble(), anyInt(), anyInt()))
+                .thenReturn(Mono.just(stations));
+        // Aucune mesure : les 20 stations sont interrogées
+        stations.forEach(station -> when(fixture.openAqClient.fetchLatest(station.id(), 10))
+                .thenReturn(tracked(Mono.delay(Duration.ofMillis(50)).thenReturn(List.of()))));
+
+        fixture.service.getLatestMeasurementsReactive("Paris", "FR").onErrorResume(e -> Mono.empty())
+                .block(Duration.ofSeconds(5));
+
+        assertThat(started).hasValue(20);
+        assertThat(maxInFlight).hasValue(8);
+    }
+
+    @Test
+    void requestCompletesOnceTenMeasurementsArrivedWithoutStartingTheRemainingStations() {
+        // Les 10 premières stations répondent vite, les suivantes ne répondent jamais : la réponse n'attend pas
+        // les appels encore en vol (qui se poursuivent pour le cache) et les dernières stations ne sont pas appelées
+        List<OpenAqLocation> stations = stations(20);
+        answerLatest(stations, id -> id <= 10 ? Duration.ofMillis(10) : Duration.ofDays(1));
+
+        List<AirQualityData> data = fixture.service.getLatestMeasurementsReactive("Paris", "FR")
+                .block(Duration.ofSeconds(5));
+
+        assertThat(data).extracting(AirQualityData::getValue)
+                .containsExactly(1.0, 2.0, 3.0, 4.0, 5.0, 6.0, 7.0, 8.0, 9.0, 10.0);
+        assertThat(started.get()).isLessThanOrEqualTo(10 + 8);
+    }
+
+    private List<OpenAqLocation> stations(int count) {
+        return IntStream.rangeClosed(1, count).mapToObj(id -> station(id, 48.86, 2.35)).toList();
+    }
+
+    private void answerLatest(List<OpenAqLocation> stations, IntFunction<Duration> latency) {
+        when(fixture.openAqClient.findLocations(anyDouble(), anyDouble(), anyInt(), anyInt()))
+                .thenReturn(Mono.just(stations));
+        stations.forEach(station -> when(fixture.openAqClient.fetchLatest(station.id(), 10))
+                .thenReturn(tracked(Mono.delay(latency.apply(station.id())).thenReturn(no2(station, station.id())))));
+    }
+
+    // Compte les appels lancés et le maximum d'appels en vol ; la fin est comptée avant d'être transmise,
+    // sans quoi l'appel suivant démarrerait avant le décompte
+    private <T> Mono<T> tracked(Mono<T> call) {
+        return call
+                .doOnSubscribe(subscription -> {
+                    started.incrementAndGet();
+                    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                })
+                .doOnTerminate(inFlight::decrementAndGet);
+    }
+}
@@ -0,0 +1,68 @@
+package com.formation.airquality.service;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestDeadlineTest {
+
+    private static final Duration CAP = Duration.ofSeconds(10);
+
+    @Test
+    void responseArrivingAfterTheDeadlineIsDroppedNotReturned() {
+        RequestDeadline deadline = RequestDeadline.after(Duration.ofMillis(100));
+
+        StepVerifier.create(deadline.bound(Mono.delay(Duration.ofMillis(500)).thenReturn("late"), CAP))
+                .expectError(TimeoutException.class)
+                .verify(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void expiredDeadlineNeverSubscribesTheCall() throws InterruptedException {
+        RequestDeadline deadline = RequestDeadline.after(Duration.ofMillis(1));
+        Thread.sleep(5);
+        AtomicBoolean subscribed = new AtomicBoolean();
+
+        StepVerifier.create(deadline.bound(Mono.just("call").doOnSubscribe(s -> subscribed.set(true)), CAP))
+                .expectError(TimeoutException.class)
+                .verify(Duration.ofSeconds(1));
+        assertThat(subscribed).isFalse();
+    }
+
+    @Test
+    void lateStationsAreOmittedWhileOnTimeOnesKeepTheirOrder() {
+        // Même forme que le fan-out /latest : chaque station bornée par l'échéance, omise si elle arrive trop tard
+        RequestDeadline deadline = RequestDeadline.after(Duration.ofMillis(300));
+        List<Long> delays = List.of(20L, 1_000L, 50L, 2_000L, 10L);
+
+        long start = System.nanoTime();
+        List<Long> received = Flux.fromIterable(delays)
+                .flatMapSequential(delay -> deadline.bound(Mono.delay(Duration.ofMillis(delay)).thenReturn(delay), CAP)
+                        .onErrorResume(TimeoutException.class, e -> Mono.empty()))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertThat(received).containsExactly(20L, 50L, 10L);
+        // La réponse part à l'échéance, sans attendre les stations en retard
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(900));
+    }
+
+    @Test
+    void stageGetsItsShareOfTheRemainingTimeAndTheCapStillApplies() {
+        RequestDeadline deadline = RequestDeadline.after(Duration.ofSeconds(10));
+
+        assertThat(deadline.stage(0.5).remaining()).isBetween(Duration.ofMillis(4_500), Duration.ofSeconds(5));
+
+        StepVerifier.create(deadline.bound(Mono.never(), Duration.ofMillis(50)))
+                .expectError(TimeoutException.class)
+                .verify(Duration.ofSeconds(1));
+    }
+}
@@ -0,0 +1,128 @@
+package com.formation.airquality.service;
+
+import com.formation.airquality.model.AirQualityData;
+import com.formation.airquality.openaq.LatestMeasurement;
+import com.formation.airquality.openaq.OpenAqLocation;
+import com.formation.airquality.openaq.SensorParameter;
+import com.formation.airquality.openaq.StationReadings;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SnapshotFileTest {
+
+    // Décalages dans l'en-tête : magic (0), version (4), réservé (6), écrit à (8), taille (16), CRC (20)
+    private static final int VERSION_OFFSET = 4;
+    private static final int CRC_OFFSET = 20;
+    private static final int HEADER_BYTES = 24;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripKeepsCitiesStationsAndNulls() throws IOException {
+        Path path = directory.resolve("state/measurements.snapshot");
+        SnapshotFile.Content written = content();
+
+        long bytes = SnapshotFile.write(path, written);
+        SnapshotFile.Content read = SnapshotFile.read(path);
+
+        assertThat(bytes).isEqualTo(Files.size(path));
+        assertThat(read).usingRecursiveComparison().isEqualTo(written);
+        // Fichier temporaire renommé : rien d'autre dans le répertoire
+        try (var files = Files.list(path.getParent())) {
+            assertThat(files).containsExactly(path);
+        }
+    }
+
+    @Test
+    void missingFileIsAColdStart() throws IOException {
+        assertThat(SnapshotFile.read(directory.resolve("absent.snapshot"))).isNull();
+    }
+
+    @Test
+    void truncatedFileIsRejected() throws IOException {
+        Path path = written();
+        byte[] bytes = Files.readAllBytes(path);
+
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 7));
+        assertThatThrownBy(() -> SnapshotFile.read(path)).isInstanceOf(IOException.class).hasMessageContaining("truncated");
+
+        Files.write(path, Arrays.copyOf(bytes, 10));
+        assertThatThrownBy(() -> SnapshotFile.read(path)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void corruptedPayloadFailsTheChecksum() throws IOException {
+        Path path = written();
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length / 2] ^= 0x5A;
+        Files.write(path, bytes);
+
+        assertThatThrownBy(() -> SnapshotFile.read(path)).isInstanceOf(IOException.class).hasMessageContaining("checksum");
+    }
+
+    @Test
+    void otherVersionOrForeignFileIsRejected() throws IOException {
+        Path path = written();
+        byte[] bytes = Files.readAllBytes(path);
+
+        ByteBuffer.wrap(bytes).putShort(VERSION_OFFSET, (short) (SnapshotFile.VERSION + 1));
+        Files.write(path, bytes);
+        assertThatThrownBy(() -> SnapshotFile.read(path)).isInstanceOf(IOException.class).hasMessageContaining("version");
+
+        ByteBuffer.wrap(bytes).putInt(0, 0x7B226369);
+        Files.write(path, bytes);
+        assertThatThrownBy(() -> SnapshotFile.read(path)).isInstanceOf(IOException.class).hasMessageContaining("not a snapshot");
+    }
+
+    @Test
+    void inconsistentContentWithAValidChecksumIsRejected() throws IOException {
+        Path path = written();
+        byte[] bytes = Files.readAllBytes(path);
+        // Table des chaînes annonçant plus d'entrées que le fichier ne peut en contenir, CRC recalculé
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.putInt(HEADER_BYTES, Integer.MAX_VALUE);
+        CRC32 crc = new CRC32();
+        crc.update(bytes, HEADER_BYTES, bytes.length - HEADER_BYTES);
+        buffer.putInt(CRC_OFFSET, (int) crc.getValue());
+        Files.write(path, bytes);
+
+        assertThatThrownBy(() -> SnapshotFile.read(path)).isInstanceOf(IOException.class).hasMessageContaining("malformed");
+    }
+
+    private Path written() throws IOException {
+        Path path = directory.resolve("measurements.snapshot");
+        SnapshotFile.write(path, content());
+        return path;
+    }
+
+    private static SnapshotFile.Content content() {
+        AirQualityData fresh = new AirQualityData("Paris 18ème", "France", 48.89, 2.35, "no2", 41.2, "µg/m³",
+                "2025-01-15T10:00:00Z", 38, "Bon", null, null);
+        AirQualityData stale = new AirQualityData(null, "France", 48.83, 2.33, "pm25", 12.7, "µg/m³",
+                null, 52, "Modéré", true, 1_200L);
+        OpenAqLocation location = new OpenAqLocation(2995, "Paris 18ème", null, 48.89167, 2.34667, Map.of(
+                7773, new SensorParameter("no2", "µg/m³"),
+                7774, new SensorParameter("pm25", "µg/m³")));
+        StationReadings readings = new StationReadings(location, List.of(
+                new LatestMeasurement(7773, 41.2, "2025-01-15T10:00:00Z"),
+                new LatestMeasurement(7774, 12.7, null)));
+
+        return new SnapshotFile.Content(1_736_935_200_000L,
+                List.of(new SnapshotFile.CityEntry("paris|FR", 1_736_935_000_000L, List.of(fresh, stale)),
+                        new SnapshotFile.CityEntry("lyon|FR", 1_736_934_000_000L, List.of())),
+                List.of(new SnapshotFile.StationEntry(1_736_935_100_000L, readings)));
+    }
+}
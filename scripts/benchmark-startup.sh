@@ -0,0 +1,105 @@
+#!/bin/bash
+
+# Temps de démarrage du air-quality-service : image standard vs image fast-startup (Spring AOT + CDS)
+# Usage: ./scripts/benchmark-startup.sh
+#   RUNS=10 JAVA_VERSION=21 MEMORY=512m ./scripts/benchmark-startup.sh
+#
+# Pour chaque image : RUNS démarrages à froid (nouveau conteneur, sans fichier d'état), avec mesure du délai
+# entre "docker run" et la première réponse 200 de HEALTH_PATH, puis de la mémoire résidente (VmRSS) du JVM
+# à cet instant. Aucun appel à OpenAQ n'est fait au démarrage : le service n'a besoin d'aucune clé.
+# AGENT=false démarre les deux images sans l'agent OpenTelemetry. Nécessite GNU date (horodatage en ms).
+
+set -eo pipefail
+
+echo "⏱️  Benchmark de démarrage du air-quality-service..."
+
+if ! command -v docker &> /dev/null; then
+    echo "❌ 'docker' n'est pas installé."
+    exit 1
+fi
+
+SCRIPT_DIR="$(cd "$(dirname "${BASH_SOURCE[0]}")" && pwd)"
+SERVICE_DIR="${SCRIPT_DIR}/../air-quality-service"
+RUNS="${RUNS:-5}"
+JAVA_VERSION="${JAVA_VERSION:-17}"
+MEMORY="${MEMORY:-1g}"
+CPUS="${CPUS:-2}"
+PORT="${PORT:-18080}"
+HEALTH_PATH="${HEALTH_PATH:-/actuator/health}"
+TIMEOUT_SECONDS="${TIMEOUT_SECONDS:-120}"
+AGENT="${AGENT:-true}"
+CONTAINER="air-quality-startup-bench"
+
+trap 'docker rm -f "$CONTAINER" > /dev/null 2>&1 || true' EXIT
+
+echo "🏗️  Construction des images (JAVA_VERSION=${JAVA_VERSION})..."
+docker build -q --build-arg JAVA_VERSION="$JAVA_VERSION" -t air-quality-service:baseline "$SERVICE_DIR" > /dev/null
+docker build -q --build-arg JAVA_VERSION="$JAVA_VERSION" --target fast-startup \
+    -t air-quality-service:fast-startup "$SERVICE_DIR" > /dev/null
+
+now_ms() {
+    date +%s%3N
+}
+
+# Un démarrage : "<millisecondes jusqu'au premier 200> <RSS en Mo>"
+measure() {
+    local image="$1"
+    local run_args=()
+    local command=()
+    if [ "$AGENT" != "true" ]; then
+        if [ "$image" = "air-quality-service:fast-startup" ]; then
+            run_args=(-e JAVA_AGENT_OPTS=)
+        else
+            run_args=(--entrypoint java)
+            command=(-jar app.jar)
+        fi
+    fi
+
+    docker rm -f "$CONTAINER" > /dev/null 2>&1 || true
+    local start
+    start=$(now_ms)
+    docker run -d --name "$CONTAINER" --memory "$MEMORY" --cpus "$CPUS" -p "${PORT}:8080" \
+        -e OTEL_TRACES_EXPORTER=none -e OTEL_METRICS_EXPORTER=none -e OTEL_LOGS_EXPORTER=none \
+        "${run_args[@]}" "$image" "${command[@]}" > /dev/null
+
+    until curl -sf -o /dev/null "http://localhost:${PORT}${HEALTH_PATH}"; do
+        if [ $(( $(now_ms) - start )) -gt $(( TIMEOUT_SECONDS * 1000 )) ]; then
+            echo "❌ ${image} : pas de réponse sur ${HEALTH_PATH} après ${TIMEOUT_SECONDS}s" >&2
+            docker logs --tail 20 "$CONTAINER" >&2
+            exit 1
+        fi
+        sleep 0.05
+    done
+    local elapsed=$(( $(now_ms) - start ))
+
+    local rss_kb
+    rss_kb=$(docker exec "$CONTAINER" sh -c "grep VmRSS /proc/1/status" | awk '{print $2}')
+    docker rm -f "$CONTAINER" > /dev/null
+    echo "$elapsed $(( rss_kb / 1024 ))"
+}
+
+# Médiane d'une colonne de résultats
+median() {
+    sort -n | awk '{ values[NR] = $1 } END { print (NR % 2) ? values[(NR + 1) / 2] : int((values[NR / 2] + values[NR / 2 + 1]) / 2) }'
+}
+
+echo "📊 ${RUNS} démarrages par image, ${CPUS} CPU, ${MEMORY} de mémoire, agent OpenTelemetry: ${AGENT}"
+echo ""
+printf "%-14s %22s %22s %12s\n" "image" "1er ${HEALTH_PATH} (ms)" "min / max (ms)" "RSS (Mo)"
+
+for variant in baseline fast-startup; do
+    results=()
+    for _ in $(seq "$RUNS"); do
+        result=$(measure "air-quality-service:${variant}") || exit 1
+        results+=("$result")
+    done
+    times=$(printf "%s\n" "${results[@]}" | awk '{print $1}')
+    rss=$(printf "%s\n" "${results[@]}" | awk '{print $2}')
+    printf "%-14s %22s %22s %12s\n" "$variant" \
+        "$(echo "$times" | median)" \
+        "$(echo "$times" | sort -n | head -1) / $(echo "$times" | sort -n | tail -1)" \
+        "$(echo "$rss" | median)"
+done
+
+echo ""
+echo "✅ Benchmark terminé (médianes)."
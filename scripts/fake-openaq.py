@@ -0,0 +1,292 @@
+#!/usr/bin/env python3
+"""Faux serveur OpenAQ v3 pour les tests de charge hors ligne du air-quality-service.
+
+Sert GET /v3/locations et GET /v3/locations/{id}/latest avec la même structure que l'API réelle,
+sans quota ni accès réseau. Latence, taux d'erreur et taille des réponses sont configurables
+(options ou variables d'environnement FAKE_OPENAQ_*).
+
+Les stations sont déterministes : elles sont placées sur une grille fixe autour du point demandé,
+donc deux requêtes voisines renvoient les mêmes identifiants et /latest renvoie les capteurs
+annoncés par /locations.
+
+Usage:
+    python3 scripts/fake-openaq.py --port 8090 --latency lognormal --latency-median-ms 80 \\
+        --latency-p99-ms 600 --error-rate 0.02 --locations 20 --sensors 4
+    OPENAQ_BASE_URL=http://localhost:8090/v3 ./mvnw spring-boot:run
+"""
+import argparse
+import json
+import math
+import os
+import random
+import re
+import threading
+import time
+from datetime import datetime, timezone
+from http.server import BaseHTTPRequestHandler, ThreadingHTTPServer
+from urllib.parse import parse_qs, urlparse
+
+PARAMETERS = [
+    (2, "pm25", "µg/m³", "PM2.5"),
+    (1, "pm10", "µg/m³", "PM10"),
+    (5, "no2", "µg/m³", "NO₂ mass"),
+    (3, "o3", "µg/m³", "O₃ mass"),
+    (6, "so2", "µg/m³", "SO₂ mass"),
+    (4, "co", "µg/m³", "CO mass"),
+    (19, "pm1", "µg/m³", "PM1"),
+    (100, "temperature", "c", "Temperature (C)"),
+]
+
+# Pas de la grille des stations (degrés, ~2 km) et nombre maximum de capteurs par station
+GRID_DEGREES = 0.02
+MAX_SENSORS = len(PARAMETERS)
+
+LOCATIONS_PATH = re.compile(r"^(?:/v3)?/locations/?$")
+LATEST_PATH = re.compile(r"^(?:/v3)?/locations/(\d+)/latest/?$")
+
+
+def env(name, default):
+    return os.environ.get("FAKE_OPENAQ_" + name, default)
+
+
+def parse_args():
+    parser = argparse.ArgumentParser(description=__doc__.splitlines()[0])
+    parser.add_argument("--host", default=env("HOST", "0.0.0.0"))
+    parser.add_argument("--port", type=int, default=int(env("PORT", "8090")))
+    parser.add_argument("--latency", choices=["none", "fixed", "uniform", "lognormal"],
+                        default=env("LATENCY", "lognormal"),
+                        help="distribution de la latence ajoutée à chaque réponse")
+    parser.add_argument("--latency-median-ms", type=float, default=float(env("LATENCY_MEDIAN_MS", "80")),
+                        help="valeur fixe (fixed), centre (uniform) ou médiane (lognormal)")
+    parser.add_argument("--latency-p99-ms", type=float, default=float(env("LATENCY_P99_MS", "400")),
+                        help="borne haute (uniform) ou 99e centile (lognormal)")
+    parser.add_argument("--error-rate", type=float, default=float(env("ERROR_RATE", "0")),
+                        help="proportion de réponses en erreur, entre 0 et 1")
+    parser.add_argument("--error-status", default=env("ERROR_STATUS", "500,503,429"),
+                        help="codes HTTP tirés au hasard pour les erreurs")
+    parser.add_argument("--locations", type=int, default=int(env("LOCATIONS", "20")),
+                        help="stations renvoyées par /locations (plafonné par ?limit)")
+    parser.add_argument("--sensors", type=int, default=int(env("SENSORS", "4")),
+                        help="capteurs par station, donc mesures par /latest (max %d)" % MAX_SENSORS)
+    parser.add_argument("--padding-bytes", type=int, default=int(env("PADDING_BYTES", "0")),
+                        help="octets de métadonnées ignorées ajoutés à chaque résultat")
+    parser.add_argument("--seed", type=int, default=int(env("SEED", "42")))
+    return parser.parse_args()
+
+
+class Latency:
+    def __init__(self, kind, median_ms, p99_ms):
+        self.kind = kind
+        self.median = median_ms / 1000.0
+        self.p99 = max(p99_ms, median_ms) / 1000.0
+        # Loi log-normale : ln(p99) = mu + 2.326 sigma
+        self.mu = math.log(max(self.median, 1e-6))
+        self.sigma = (math.log(max(self.p99, 1e-6)) - self.mu) / 2.326
+
+    def sample(self, rng):
+        if self.kind == "none":
+            return 0.0
+        if self.kind == "fixed":
+            return self.median
+        if self.kind == "uniform":
+            return rng.uniform(max(0.0, 2 * self.median - self.p99), self.p99)
+        return rng.lognormvariate(self.mu, self.sigma)
+
+
+class FakeOpenAq:
+    def __init__(self, args):
+        self.args = args
+        self.latency = Latency(args.latency, args.latency_median_ms, args.latency_p99_ms)
+        self.error_statuses = [int(code) for code in args.error_status.split(",") if code.strip()]
+        self.sensors = max(1, min(args.sensors, MAX_SENSORS))
+        self.padding = "x" * max(0, args.padding_bytes)
+        self.local = threading.local()
+        self.lock = threading.Lock()
+        self.counters = {"locations": 0, "latest": 0, "errors": 0}
+
+    def rng(self):
+        rng = getattr(self.local, "rng", None)
+        if rng is None:
+            rng = random.Random(self.args.seed ^ threading.get_ident())
+            self.local.rng = rng
+        return rng
+
+    def count(self, name):
+        with self.lock:
+            self.counters[name] += 1
+
+    # Identifiant stable d'un point de grille (positif, tient dans un int Java)
+    @staticmethod
+    def location_id(row, col):
+        return (row + 5000) * 20000 + (col + 10000) + 1
+
+    @staticmethod
+    def grid_point(location_id):
+        index = location_id - 1
+        return index // 20000 - 5000, index % 20000 - 10000
+
+    def sensor_params(self, location_id):
+        rng = random.Random(location_id)
+        return rng.sample(PARAMETERS, self.sensors)
+
+    def locations(self, latitude, longitude, radius, limit):
+        # Points de grille les plus proches du centre, dans le rayon demandé
+        count = min(self.args.locations, limit)
+        steps = int(radius / (GRID_DEGREES * 111_320)) + 1
+        row0, col0 = round(latitude / GRID_DEGREES), round(longitude / GRID_DEGREES)
+        candidates = []
+        for dr in range(-steps, steps + 1):
+            for dc in range(-steps, steps + 1):
+                lat = (row0 + dr) * GRID_DEGREES
+                lon = (col0 + dc) * GRID_DEGREES
+                distance = haversine(latitude, longitude, lat, lon)
+                if distance <= radius:
+                    candidates.append((distance, row0 + dr, col0 + dc, lat, lon))
+        candidates.sort()
+        return [self.location(row, col, lat, lon) for _, row, col, lat, lon in candidates[:count]]
+
+    def location(self, row, col, lat, lon):
+        location_id = self.location_id(row, col)
+        sensors = []
+        for index, (pid, name, units, display) in enumerate(self.sensor_params(location_id)):
+            sensors.append({
+                "id": location_id * 10 + index,
+                "name": f"{name} {units}",
+                "parameter": {"id": pid, "name": name, "units": units, "displayName": display},
+            })
+        result = {
+            "id": location_id,
+            "name": f"FAKE{location_id}",
+            "locality": None,
+            "timezone": "Europe/Paris",
+            "country": {"id": 22, "code": "FR", "name": "France"},
+            "owner": {"id": 4, "name": "Unknown Governmental Organization"},
+            "provider": {"id": 119, "name": "EEA"},
+            "isMobile": False,
+            "isMonitor": True,
+            "instruments": [{"id": 2, "name": "Government Monitor"}],
+            "sensors": sensors,
+            "coordinates": {"latitude": round(lat, 6), "longitude": round(lon, 6)},
+            "licenses": None,
+            "bounds": [lon, lat, lon, lat],
+            "distance": None,
+            "datetimeFirst": {"utc": "2016-11-22T23:00:00Z", "local": "2016-11-23T00:00:00+01:00"},
+            "datetimeLast": {"utc": now_utc(), "local": now_utc()},
+        }
+        if self.padding:
+            result["metadata"] = self.padding
+        return result
+
+    def latest(self, location_id):
+        row, col = self.grid_point(location_id)
+        lat, lon = row * GRID_DEGREES, col * GRID_DEGREES
+        rng = self.rng()
+        timestamp = now_utc()
+        results = []
+        for index, _ in enumerate(self.sensor_params(location_id)):
+            result = {
+                "datetime": {"utc": timestamp, "local": timestamp},
+                "value": round(rng.uniform(1, 120), 1),
+                "coordinates": {"latitude": round(lat, 6), "longitude": round(lon, 6)},
+                "sensorsId": location_id * 10 + index,
+                "locationsId": location_id,
+            }
+            if self.padding:
+                result["metadata"] = self.padding
+            results.append(result)
+        return results
+
+
+def haversine(lat1, lon1, lat2, lon2):
+    p1, p2 = math.radians(lat1), math.radians(lat2)
+    dp, dl = p2 - p1, math.radians(lon2 - lon1)
+    a = math.sin(dp / 2) ** 2 + math.cos(p1) * math.cos(p2) * math.sin(dl / 2) ** 2
+    return 2 * 6_371_000 * math.asin(math.sqrt(min(1.0, a)))
+
+
+def now_utc():
+    return datetime.now(timezone.utc).strftime("%Y-%m-%dT%H:%M:%SZ")
+
+
+def envelope(results, limit):
+    return {
+        "meta": {"name": "openaq-api", "website": "/", "page": 1, "limit": limit, "found": len(results)},
+        "results": results,
+    }
+
+
+def make_handler(fake):
+    class Handler(BaseHTTPRequestHandler):
+        protocol_version = "HTTP/1.1"
+
+        def do_GET(self):
+            url = urlparse(self.path)
+            if url.path in ("/health", "/stats"):
+                with fake.lock:
+                    self.send_json(200, dict(fake.counters))
+                return
+
+            rng = fake.rng()
+            time.sleep(fake.latency.sample(rng))
+
+            latest = LATEST_PATH.match(url.path)
+            if not latest and not LOCATIONS_PATH.match(url.path):
+                self.send_json(404, {"detail": "Not Found"})
+                return
+
+            if fake.error_statuses and rng.random() < fake.args.error_rate:
+                fake.count("errors")
+                status = rng.choice(fake.error_statuses)
+                headers = {"Retry-After": "1"} if status == 429 else {}
+                self.send_json(status, {"detail": "Injected error"}, headers)
+                return
+
+            if latest:
+                fake.count("latest")
+                self.send_json(200, envelope(fake.latest(int(latest.group(1))), 100))
+                return
+
+            query = parse_qs(url.query)
+            try:
+                latitude, longitude = (float(v) for v in query["coordinates"][0].split(","))
+                radius = int(query.get("radius", ["25000"])[0])
+                limit = int(query.get("limit", ["100"])[0])
+            except (KeyError, ValueError):
+                self.send_json(422, {"detail": "coordinates=lat,lon is required"})
+                return
+            fake.count("locations")
+            self.send_json(200, envelope(fake.locations(latitude, longitude, radius, limit), limit))
+
+        def send_json(self, status, payload, headers=None):
+            body = json.dumps(payload, ensure_ascii=False).encode("utf-8")
+            self.send_response(status)
+            self.send_header("Content-Type", "application/json")
+            self.send_header("Content-Length", str(len(body)))
+            for name, value in (headers or {}).items():
+                self.send_header(name, value)
+            self.end_headers()
+            self.wfile.write(body)
+
+        def log_message(self, format, *args):
+            # Pas de log par requête : il fausserait les mesures à forte charge
+            pass
+
+    return Handler
+
+
+def main():
+    args = parse_args()
+    fake = FakeOpenAq(args)
+    server = ThreadingHTTPServer((args.host, args.port), make_handler(fake))
+    server.daemon_threads = True
+    print(f"🧪 Faux OpenAQ sur http://{args.host}:{args.port}/v3 "
+          f"(latence={args.latency} médiane={args.latency_median_ms}ms p99={args.latency_p99_ms}ms, "
+          f"erreurs={args.error_rate:.0%}, stations={args.locations}, capteurs={fake.sensors})", flush=True)
+    try:
+        server.serve_forever()
+    except KeyboardInterrupt:
+        pass
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,43 @@
+#!/bin/bash
+
+# Test de charge du air-quality-service contre le faux serveur OpenAQ (aucun quota consommé)
+# Usage: ./scripts/generate-load-offline.sh
+#   CONCURRENCY=1,8,32,64 STAGE_DURATION=30s ENDPOINTS=city,coordinates ./scripts/generate-load-offline.sh
+#
+# Prérequis : le service doit utiliser le faux serveur, par exemple
+#   docker compose --profile offline up -d   (avec OPENAQ_BASE_URL=http://fake-openaq:8090/v3 dans .env)
+# ou en local :
+#   python3 scripts/fake-openaq.py &
+#   OPENAQ_BASE_URL=http://localhost:8090/v3 ./mvnw spring-boot:run
+
+echo "⚡ Test de charge hors ligne du air-quality-service avec k6..."
+
+if ! command -v k6 &> /dev/null; then
+    echo "❌ 'k6' n'est pas installé (voir scripts/generate-load.sh pour l'installation)."
+    exit 1
+fi
+
+SCRIPT_DIR="$(cd "$(dirname "${BASH_SOURCE[0]}")" && pwd)"
+K6_SCRIPT="${SCRIPT_DIR}/load-test-air-quality.js"
+BASE_URL="${BASE_URL:-http://localhost:8080}"
+FAKE_OPENAQ_URL="${FAKE_OPENAQ_URL:-http://localhost:8090}"
+
+if ! curl -sf "${FAKE_OPENAQ_URL}/health" > /dev/null; then
+    echo "❌ Faux serveur OpenAQ injoignable sur ${FAKE_OPENAQ_URL}"
+    echo "   Lancez: python3 scripts/fake-openaq.py  (ou docker compose --profile offline up -d)"
+    exit 1
+fi
+
+if ! curl -sf "${BASE_URL}/api/air-quality/health" > /dev/null; then
+    echo "❌ Air Quality Service injoignable sur ${BASE_URL}"
+    exit 1
+fi
+
+echo "📊 Paliers: ${CONCURRENCY:-1,8,32,64} VUs, ${STAGE_DURATION:-30s} chacun, endpoints: ${ENDPOINTS:-city,coordinates}"
+echo ""
+
+k6 run --quiet "$K6_SCRIPT"
+
+echo ""
+echo "📈 Appels reçus par le faux serveur OpenAQ: $(curl -s "${FAKE_OPENAQ_URL}/stats")"
+echo "✅ Test de charge terminé!"
@@ -0,0 +1,154 @@
+import http from 'k6/http';
+import { check } from 'k6';
+import { Rate } from 'k6/metrics';
+
+// Test de charge du air-quality-service seul, à utiliser avec le faux serveur OpenAQ
+// (scripts/fake-openaq.py) : aucun quota consommé, résultats reproductibles.
+//
+// Paliers de concurrence enchaînés pour chaque endpoint (/city et /coordinates) ;
+// le résumé final donne p50/p99/p99.9 et req/s par endpoint et par palier.
+//
+// Variables d'environnement :
+//   BASE_URL       URL du service           (défaut: http://localhost:8080)
+//   CONCURRENCY    paliers de VUs           (défaut: 1,8,32,64)
+//   STAGE_DURATION durée de chaque palier   (défaut: 30s)
+//   ENDPOINTS      endpoints à tester       (défaut: city,coordinates)
+//   SPREAD_KM      dispersion des points /coordinates autour des villes, 0 pour toujours
+//                  interroger le même point (défaut: 20)
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const CONCURRENCY = (__ENV.CONCURRENCY || '1,8,32,64').split(',').map((c) => parseInt(c, 10));
+const STAGE_DURATION = __ENV.STAGE_DURATION || '30s';
+const ENDPOINTS = (__ENV.ENDPOINTS || 'city,coordinates').split(',');
+const SPREAD_KM = parseFloat(__ENV.SPREAD_KM || '20');
+
+// Pause entre deux paliers, pour que les requêtes en vol du palier précédent se terminent
+const GRACEFUL_STOP = '10s';
+
+const CITIES = [
+  { city: 'Paris', latitude: 48.8566, longitude: 2.3522 },
+  { city: 'Lyon', latitude: 45.764, longitude: 4.8357 },
+  { city: 'Marseille', latitude: 43.2965, longitude: 5.3698 },
+  { city: 'Toulouse', latitude: 43.6047, longitude: 1.4442 },
+  { city: 'Nice', latitude: 43.7102, longitude: 7.262 },
+  { city: 'Nantes', latitude: 47.2184, longitude: -1.5536 },
+  { city: 'Strasbourg', latitude: 48.5734, longitude: 7.7521 },
+  { city: 'Bordeaux', latitude: 44.8378, longitude: -0.5792 },
+  { city: 'Lille', latitude: 50.6292, longitude: 3.0573 },
+];
+
+const errorRate = new Rate('errors');
+
+function seconds(duration) {
+  const match = /^(\d+)(ms|s|m)$/.exec(duration);
+  const value = parseInt(match[1], 10);
+  return match[2] === 'ms' ? value / 1000 : match[2] === 'm' ? value * 60 : value;
+}
+
+function scenarioName(endpoint, vus) {
+  return `${endpoint}_c${vus}`;
+}
+
+function buildScenarios() {
+  const scenarios = {};
+  const thresholds = {};
+  const stageSeconds = seconds(STAGE_DURATION) + seconds(GRACEFUL_STOP);
+  let offset = 0;
+  for (const endpoint of ENDPOINTS) {
+    for (const vus of CONCURRENCY) {
+      const name = scenarioName(endpoint, vus);
+      scenarios[name] = {
+        executor: 'constant-vus',
+        exec: endpoint,
+        vus,
+        duration: STAGE_DURATION,
+        startTime: `${offset}s`,
+        gracefulStop: GRACEFUL_STOP,
+        tags: { endpoint, concurrency: String(vus) },
+      };
+      // Seuils toujours vrais : ils forcent k6 à conserver les sous-métriques par palier
+      thresholds[`http_req_duration{scenario:${name}}`] = ['max>=0'];
+      thresholds[`http_reqs{scenario:${name}}`] = ['count>=0'];
+      thresholds[`errors{scenario:${name}}`] = ['rate>=0'];
+      offset += stageSeconds;
+    }
+  }
+  return { scenarios, thresholds };
+}
+
+const plan = buildScenarios();
+
+export const options = {
+  scenarios: plan.scenarios,
+  thresholds: plan.thresholds,
+  summaryTrendStats: ['avg', 'min', 'med', 'p(50)', 'p(90)', 'p(99)', 'p(99.9)', 'max'],
+};
+
+function record(res) {
+  const success = check(res, {
+    'status is 200': (r) => r.status === 200,
+  });
+  errorRate.add(!success);
+}
+
+// Fonction pour /city : villes connues à tour de rôle
+export function city() {
+  const target = CITIES[Math.floor(Math.random() * CITIES.length)];
+  record(http.get(`${BASE_URL}/api/air-quality/city?city=${target.city}&country=FR`, {
+    tags: { name: 'city' },
+  }));
+}
+
+// Fonction pour /coordinates : points tirés autour des villes pour limiter l'effet des caches
+export function coordinates() {
+  const target = CITIES[Math.floor(Math.random() * CITIES.length)];
+  const dLat = ((Math.random() * 2 - 1) * SPREAD_KM) / 111.32;
+  const dLon = ((Math.random() * 2 - 1) * SPREAD_KM) / (111.32 * Math.cos((target.latitude * Math.PI) / 180));
+  const latitude = (target.latitude + dLat).toFixed(4);
+  const longitude = (target.longitude + dLon).toFixed(4);
+  record(http.get(`${BASE_URL}/api/air-quality/coordinates?latitude=${latitude}&longitude=${longitude}&radius=10000`, {
+    tags: { name: 'coordinates' },
+  }));
+}
+
+function pad(value, width) {
+  const text = String(value);
+  return text.length >= width ? text : ' '.repeat(width - text.length) + text;
+}
+
+function ms(value) {
+  return value === undefined ? '-' : value.toFixed(1);
+}
+
+// Tableau récapitulatif par endpoint et palier, plus le résumé JSON complet si SUMMARY_FILE est défini
+export function handleSummary(data) {
+  const stageSeconds = seconds(STAGE_DURATION);
+  const lines = [
+    '',
+    'Air Quality Service - latence (ms) et débit par palier de concurrence',
+    `${pad('endpoint', 12)} ${pad('VUs', 5)} ${pad('req/s', 9)} ${pad('p50', 9)} ${pad('p99', 9)} ${pad('p99.9', 9)} ${pad('erreurs', 8)}`,
+  ];
+  for (const endpoint of ENDPOINTS) {
+    for (const vus of CONCURRENCY) {
+      const name = scenarioName(endpoint, vus);
+      const duration = data.metrics[`http_req_duration{scenario:${name}}`];
+      const requests = data.metrics[`http_reqs{scenario:${name}}`];
+      const errors = data.metrics[`errors{scenario:${name}}`];
+      if (!duration || !requests) {
+        continue;
+      }
+      const rps = requests.values.count / stageSeconds;
+      const errorPct = errors ? `${(errors.values.rate * 100).toFixed(1)}%` : '-';
+      lines.push(`${pad(endpoint, 12)} ${pad(vus, 5)} ${pad(rps.toFixed(1), 9)} `
+        + `${pad(ms(duration.values['p(50)']), 9)} ${pad(ms(duration.values['p(99)']), 9)} `
+        + `${pad(ms(duration.values['p(99.9)']), 9)} ${pad(errorPct, 8)}`);
+    }
+  }
+  lines.push('');
+
+  const output = { stdout: lines.join('\n') };
+  if (__ENV.SUMMARY_FILE) {
+    output[__ENV.SUMMARY_FILE] = JSON.stringify(data, null, 2);
+  }
+  return output;
+}